@@ -1,57 +1,161 @@
 import java.util.List;
-import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
 
 import src.Interpreter;
+import src.ProgramCache;
 import src.analyzer.SemanticAnalyzer;
+import src.compiler.BytecodeCompiler;
+import src.compiler.ClosureCompiler;
+import src.compiler.RegisterCompiler;
+import src.compiler.RegisterProgram;
 import src.lexer.Lexer;
 import src.nodes.ProgramNode;
+import src.optimizer.ConstantFolder;
+import src.optimizer.DeadCodeEliminator;
 import src.parser.Parser;
+import src.runtime.DisplayOutput;
+import src.runtime.RegisterMachine;
+import src.utils.MappedSource;
 import src.utils.SymbolTable;
-import src.utils.Token;
+import src.utils.TokenStream;
 
 public class App {
+    private static final List<String> ENGINES = List.of("interpreter", "closure", "vm", "bytecode");
+    private static final List<String> FLUSH_POLICIES = List.of("size", "scan", "line");
+
     public static void main(String[] args) {
 
-        if (args.length != 1) {
-            System.out.println("Usage: java App <input_file>");
-            System.exit(1);
+        String filePath = null;
+        String engine = "interpreter";
+        String flush = "scan";
+        boolean stream = false;
+        String cacheDirectory = null;
+
+        for (String arg : args) {
+            if (arg.startsWith("--engine=")) {
+                engine = arg.substring("--engine=".length());
+            } else if (arg.startsWith("--flush=")) {
+                flush = arg.substring("--flush=".length());
+            } else if (arg.startsWith("--cache=")) {
+                cacheDirectory = arg.substring("--cache=".length());
+            } else if (arg.equals("--stream")) {
+                stream = true;
+            } else if (filePath == null) {
+                filePath = arg;
+            } else {
+                filePath = null;
+                break;
+            }
         }
 
-        String filePath = args[0];
+        if (filePath == null || !ENGINES.contains(engine) || !FLUSH_POLICIES.contains(flush)) {
+            System.out.println("Usage: java App [--engine=" + String.join("|", ENGINES) + "] [--flush="
+                    + String.join("|", FLUSH_POLICIES) + "] [--stream] [--cache=<directory>] <input_file>");
+            System.exit(1);
+        }
 
         if (!filePath.endsWith(".code")) {
             System.err.println("Input file must be a .code file");
             System.exit(1);
         }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            StringBuilder sb = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                sb.append(line).append("\n");
-            }
+        try {
+            ProgramNode programNode;
+            SymbolTable symbolTable;
+
+            // A program analyzed before from the same source is loaded instead of built again
+            ProgramCache cache = cacheDirectory != null
+                    ? new ProgramCache(Paths.get(cacheDirectory), Paths.get(filePath))
+                    : null;
 
-            String input = sb.toString();
-            Lexer lexer = new Lexer(input);
+            if (cache != null && cache.load()) {
+                programNode = cache.getProgram();
+                symbolTable = cache.getSymbolTable();
+            } else {
+                TokenStream tokens;
 
-            List<Token> tokens = lexer.tokenize();
+                // Streamed, the parser pulls tokens as it goes and the lexer only
+                // holds a few lines of the file at a time. Otherwise the file is
+                // mapped into memory and lexed in place
+                if (stream) {
+                    tokens = new Lexer(new FileReader(filePath)).stream();
+                } else {
+                    Lexer lexer = new Lexer(MappedSource.load(Paths.get(filePath)));
 
-            Parser parser = new Parser(tokens);
-            ProgramNode programNode = parser.parse();
+                    tokens = lexer.tokenize();
+                }
 
-            SemanticAnalyzer analyzer = new SemanticAnalyzer(programNode);
-            analyzer.analyze();
+                Parser parser = new Parser(tokens);
+                programNode = parser.parse();
 
-            SymbolTable symbolTable = analyzer.getInitialSymbolTable();
+                SemanticAnalyzer analyzer = new SemanticAnalyzer(programNode);
+                analyzer.analyze();
 
-            Interpreter interpreter = new Interpreter(programNode, symbolTable);
-            interpreter.interpret();
+                symbolTable = analyzer.getInitialSymbolTable();
+
+                // What does not depend on the program running is worked out
+                // once here, then what can never run is taken out. The cache
+                // keeps the optimized program
+                programNode = new ConstantFolder(symbolTable).fold(programNode);
+                programNode = new DeadCodeEliminator().eliminate(programNode);
+
+                if (cache != null) {
+                    cache.store(programNode, symbolTable);
+                }
+            }
+
+            // DISPLAY output is buffered, the flush policy decides what besides
+            // a full buffer and the end of the program writes it out
+            DisplayOutput output = new DisplayOutput(System.out,
+                    DisplayOutput.FlushPolicy.valueOf(flush.toUpperCase()));
+
+            // Whatever was displayed is still written out if the run stops on an exception
+            try {
+                if (engine.equals("closure")) {
+                    Runnable program = new ClosureCompiler(symbolTable, output).compile(programNode);
+                    program.run();
+                } else if (engine.equals("vm")) {
+                    RegisterProgram program = new RegisterCompiler(symbolTable).compile(programNode);
+                    new RegisterMachine(program, symbolTable.getFrame(), output).run();
+                } else if (engine.equals("bytecode")) {
+                    Runnable program = new BytecodeCompiler(symbolTable, output).compile(programNode);
+
+                    // A program too large for one JVM method runs on the interpreter instead
+                    if (program != null) {
+                        program.run();
+                    } else {
+                        new Interpreter(programNode, symbolTable, output).interpret();
+                    }
+                } else {
+                    Interpreter interpreter = new Interpreter(programNode, symbolTable, output);
+                    interpreter.interpret();
+                }
+            } finally {
+                output.flush();
+            }
 
         } catch (IOException e) {
-            System.err.println("Error reading file: " + e.getMessage());
+            System.err.println("Error reading file: " + describe(e, filePath));
             System.exit(1);
         }
     }
+
+    // Mapping the file leaves the reason out of some messages, it is worded
+    // here the way FileReader words it
+    private static String describe(IOException e, String filePath) {
+        if (e instanceof NoSuchFileException) {
+            return filePath + " (No such file or directory)";
+        } else if (e instanceof AccessDeniedException) {
+            return filePath + " (Permission denied)";
+        } else if (Files.isDirectory(Paths.get(filePath))) {
+            return filePath + " (Is a directory)";
+        }
+
+        return e.getMessage() != null ? e.getMessage() : filePath + " (" + e.getClass().getSimpleName() + ")";
+    }
 }
\ No newline at end of file
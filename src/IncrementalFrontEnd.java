@@ -0,0 +1,328 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import src.analyzer.SemanticAnalyzer;
+import src.lexer.Lexer;
+import src.nodes.ProgramNode;
+import src.nodes.StatementNode;
+import src.nodes.VariableDeclarationNode;
+import src.parser.Parser;
+import src.utils.LineIndex;
+import src.utils.SymbolTable;
+import src.utils.TokenStream;
+import src.utils.Type;
+
+// Keeps the lexed, parsed and analyzed program between edits of its source,
+// for an editor or a watch loop that rebuilds on every change.
+//
+// The program body is kept as segments, one per top-level statement, each
+// being the whole lines from where the statement starts to where the next one
+// does. An edit inside the body only lexes and parses again the segments it
+// touches, which covers any BEGIN IF, BEGIN WHILE or BEGIN FOR block around
+// it. Analysis goes again from the first of them and stops at the first
+// segment after them that starts from the same symbol table as before.
+// Everything else, like an edit of the declarations, rebuilds the program
+public class IncrementalFrontEnd {
+    // The indentation of a top-level statement
+    private static final int BODY_LEVEL = 1;
+
+    private static class Segment {
+        int start;
+        int end;
+        int firstLine;
+        LineIndex lines;
+        List<StatementNode> statements;
+
+        // The symbol table the statements were analyzed from
+        SymbolTable before;
+    }
+
+    private String source;
+    private List<VariableDeclarationNode> declarations;
+    private SemanticAnalyzer analyzer;
+    private List<Segment> segments;
+    private ProgramNode program;
+
+    // The lines of the source before and after the segments
+    private LineIndex headerLines;
+    private int trailerStart;
+    private int trailerLine;
+
+    public IncrementalFrontEnd(String source) {
+        build(source);
+    }
+
+    public ProgramNode getProgram() {
+        return program;
+    }
+
+    // A fresh copy for every run, running the program changes the values
+    public SymbolTable getInitialSymbolTable() {
+        return analyzer.getInitialSymbolTable().copy();
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    // Replaces removed characters at offset with the inserted text and
+    // returns the program for the new source
+    public ProgramNode edit(int offset, int removed, String inserted) {
+        String updated = source.substring(0, offset) + inserted + source.substring(offset + removed);
+
+        if (!update(updated, offset, removed, inserted.length())) {
+            build(updated);
+        }
+
+        return program;
+    }
+
+    private void build(String source) {
+        Lexer lexer = new Lexer(source);
+        TokenStream tokens = lexer.tokenize();
+
+        Parser parser = new Parser(tokens);
+        ProgramNode parsed = parser.parse();
+
+        this.source = source;
+        this.declarations = parsed.getDeclarations();
+        this.analyzer = new SemanticAnalyzer(parsed);
+        this.headerLines = tokens.getLines();
+        this.segments = new ArrayList<>();
+
+        analyzer.analyzeDeclarations();
+
+        List<Integer> starts = parser.getStatementStarts();
+
+        if (starts.isEmpty()) {
+            // No body to edit on its own, every edit builds the program again
+            trailerStart = 0;
+            trailerLine = 1;
+        } else {
+            int last = starts.size() - 1;
+
+            trailerStart = lineStart(source, tokens.getOffset(starts.get(last)));
+            trailerLine = tokens.getLine(starts.get(last));
+
+            segments.addAll(split(source, tokens, parser, parsed.getStatements(), lineStart(source,
+                    tokens.getOffset(starts.get(0))), trailerStart, 0, tokens.getLines()));
+        }
+
+        for (Segment segment : segments) {
+            segment.before = analyzer.checkpoint();
+            analyzer.analyzeStatements(segment.statements);
+        }
+
+        program = assemble();
+    }
+
+    // Lexes and parses again the segments the edit falls in, or returns false
+    // when the edit has to be handled by building the whole program
+    private boolean update(String updated, int offset, int removed, int inserted) {
+        if (segments.isEmpty() || offset < segments.get(0).start) {
+            return false;
+        }
+
+        int first = 0;
+        while (first < segments.size() && segments.get(first).end <= offset) {
+            first++;
+        }
+
+        // Inserting right before the END CODE line still adds to the body when it adds whole lines
+        if (first == segments.size()) {
+            if (offset != trailerStart || removed != 0) {
+                return false;
+            }
+            first--;
+        }
+
+        int last = first;
+        while (last + 1 < segments.size() && segments.get(last + 1).start < offset + removed) {
+            last++;
+        }
+
+        if (offset + removed > segments.get(last).end) {
+            return false;
+        }
+
+        int delta = inserted - removed;
+        int start = segments.get(first).start;
+        int end = segments.get(last).end + delta;
+        String text = updated.substring(start, end);
+
+        if (!text.isEmpty() && text.charAt(text.length() - 1) != '\n') {
+            return false;
+        }
+
+        TokenStream tokens = new Lexer(text).tokenizeLines(BODY_LEVEL);
+
+        if (tokens == null || !onlyStatements(tokens)) {
+            return false;
+        }
+
+        int firstLine = segments.get(first).firstLine;
+        int endLine = last + 1 < segments.size() ? segments.get(last + 1).firstLine : trailerLine;
+        int movedLines = count(text, '\n') - (endLine - firstLine);
+
+        tokens.getLines().moveLines(1, firstLine - 1);
+
+        Parser parser = new Parser(tokens);
+        List<StatementNode> statements = parser.parseStatementList();
+        List<Segment> replacement = split(text, tokens, parser, statements, 0, text.length(), start, tokens.getLines());
+
+        // The line numbers and offsets of everything after the edit move with it
+        if (movedLines != 0) {
+            headerLines.moveLines(endLine, movedLines);
+
+            for (LineIndex lines : liveLines(last)) {
+                lines.moveLines(endLine, movedLines);
+            }
+        }
+
+        for (int i = last + 1; i < segments.size(); i++) {
+            segments.get(i).start += delta;
+            segments.get(i).end += delta;
+            segments.get(i).firstLine += movedLines;
+        }
+
+        trailerStart += delta;
+        trailerLine += movedLines;
+
+        SymbolTable before = segments.get(first).before;
+
+        segments.subList(first, last + 1).clear();
+        segments.addAll(first, replacement);
+
+        // Lines left without a statement join a neighbour, so the segments still cover the body
+        if (replacement.isEmpty() && first > 0) {
+            segments.get(first - 1).end = end;
+        } else if (replacement.isEmpty() && first < segments.size()) {
+            segments.get(first).start = start;
+            segments.get(first).firstLine = firstLine;
+        }
+
+        source = updated;
+        analyzeFrom(first, replacement.size(), before);
+        program = assemble();
+
+        return true;
+    }
+
+    // Splits statements parsed from text into one segment per top-level
+    // statement, covering the text from start to end. A segment starts at the
+    // line of its first token, the first one at start
+    private List<Segment> split(String text, TokenStream tokens, Parser parser, List<StatementNode> statements,
+            int start, int end, int base, LineIndex lines) {
+
+        List<Integer> starts = parser.getStatementStarts();
+        List<Integer> counts = parser.getStatementCounts();
+        List<Segment> split = new ArrayList<>();
+
+        for (int i = 0; i + 1 < starts.size(); i++) {
+            Segment segment = new Segment();
+            int lineStart = lineStart(text, tokens.getOffset(starts.get(i)));
+
+            // The first segment also takes the blank lines before its statement
+            if (i == 0) {
+                segment.start = base + start;
+                segment.firstLine = tokens.getLine(starts.get(i)) - count(text.substring(start, lineStart), '\n');
+            } else {
+                segment.start = base + lineStart;
+                segment.firstLine = tokens.getLine(starts.get(i));
+            }
+            segment.lines = lines;
+            segment.statements = new ArrayList<>(statements.subList(counts.get(i), counts.get(i + 1)));
+
+            if (!split.isEmpty()) {
+                split.get(split.size() - 1).end = segment.start;
+            }
+            split.add(segment);
+        }
+
+        if (!split.isEmpty()) {
+            split.get(split.size() - 1).end = base + end;
+        }
+
+        return split;
+    }
+
+    // Analyzes again from segment first, starting from the symbol table it
+    // had before. The changed segments always are, after them it stops at the
+    // first segment that starts from the same symbol table as last time
+    private void analyzeFrom(int first, int changed, SymbolTable before) {
+        analyzer.restore(before);
+
+        for (int i = first; i < segments.size(); i++) {
+            Segment segment = segments.get(i);
+
+            if (i >= first + changed && analyzer.matches(segment.before)) {
+                break;
+            }
+
+            segment.before = analyzer.checkpoint();
+            analyzer.analyzeStatements(segment.statements);
+        }
+    }
+
+    // Declarations and the END CODE marker change the shape of the whole
+    // program, lines with them are never parsed on their own
+    private boolean onlyStatements(TokenStream tokens) {
+        for (int i = 0; i < tokens.size(); i++) {
+            Type type = tokens.getType(i);
+
+            if (type == Type.INT || type == Type.CHAR || type == Type.FLOAT || type == Type.BOOL
+                    || type == Type.BEGIN_CODE || type == Type.END_CODE) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // The line indexes the segments after the edited ones still use, besides the header's
+    private Set<LineIndex> liveLines(int last) {
+        Set<LineIndex> live = new HashSet<>();
+
+        for (int i = last + 1; i < segments.size(); i++) {
+            if (segments.get(i).lines != headerLines) {
+                live.add(segments.get(i).lines);
+            }
+        }
+
+        return live;
+    }
+
+    private ProgramNode assemble() {
+        List<StatementNode> statements = new ArrayList<>();
+
+        for (Segment segment : segments) {
+            statements.addAll(segment.statements);
+        }
+
+        return new ProgramNode(declarations, statements);
+    }
+
+    private static int lineStart(String text, int offset) {
+        while (offset > 0 && text.charAt(offset - 1) != '\n') {
+            offset--;
+        }
+
+        return offset;
+    }
+
+    private static int count(String text, char c) {
+        int count = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == c) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+}
@@ -1,61 +1,49 @@
 package src;
 
-import java.util.Stack;
-
 import java.util.List;
-import java.util.ArrayList;
-import java.util.Scanner;
 
+import src.compiler.CompiledExpression;
+import src.compiler.ExpressionCompiler;
 import src.nodes.*;
+import src.runtime.DisplayOutput;
+import src.runtime.ExpressionEvaluator;
+import src.runtime.ScanInput;
 import src.utils.Token;
 import src.utils.Type;
-import src.utils.Position;
 import src.utils.SymbolTable;
 import src.utils.Symbol;
 
 public class Interpreter {
     private ProgramNode program;
     private SymbolTable symbolTable;
+    private Symbol[] frame;
+    private ExpressionCompiler expressionCompiler;
+    private ExpressionEvaluator evaluator;
+    private DisplayOutput output;
+    private ScanInput scanInput;
     private boolean displayError = true;
 
-    public Interpreter(ProgramNode program, SymbolTable symbolTable) {
+    public Interpreter(ProgramNode program, SymbolTable symbolTable, DisplayOutput output) {
         this.program = program;
         this.symbolTable = symbolTable;
+        this.frame = symbolTable.getFrame();
+        this.output = output;
+        this.expressionCompiler = new ExpressionCompiler();
+        this.evaluator = new ExpressionEvaluator(frame, output);
+        this.scanInput = new ScanInput(output);
+
+        expressionCompiler.compile(program);
     }
 
     public void interpret() {
 
-        List<StatementNode> statements = program.getStatements();
-
-        for (int i = 0; i < statements.size(); i++) {
-
-            StatementNode statement = statements.get(i);
-
-            if (statement instanceof IfNode) {
-                List<StatementNode> ifStatements = new ArrayList<>();
-
-                ifStatements.add(statement);
-
-                while (i + 1 < statements.size() && statements.get(i + 1) instanceof ElseIfNode) {
-                    ifStatements.add(statements.get(i + 1));
-                    i++;
-                }
-
-                if (i + 1 < statements.size() && statements.get(i + 1) instanceof ElseNode) {
-                    ifStatements.add(statements.get(i + 1));
-                    i++;
-                }
-
-                interpretIf(ifStatements);
-
-            } else {
-
-                interpretStatement(statement);
-            }
+        for (StatementNode statement : program.getStatements()) {
+            interpretStatement(statement);
         }
 
         if (displayError) {
-            System.out.println("No Error");
+            output.write("No Error");
+            output.newLine();
         }
     }
 
@@ -67,118 +55,63 @@ public class Interpreter {
 
             if (assignment.getExpression() instanceof LiteralNode) {
 
-                Symbol s = symbolTable.lookup(assignment.getVariable().getName());
+                Symbol s = frame[assignment.getVariable().getSlot()];
 
                 LiteralNode literal = (LiteralNode) assignment.getExpression();
 
-                if (s.getType() != literal.getDataType()) {
-                    error("Type mismatch. Assigning a " + literal.getDataType() + " datatype to a " + s.getType(),
-                            assignment.getVariable().getPosition());
-                }
-
-                s.setValue(literal.toString());
+                setLiteral(s, literal);
 
             } else if (assignment.getExpression() instanceof UnaryNode) {
 
-                Symbol s = symbolTable.lookup(assignment.getVariable().getName());
+                Symbol s = frame[assignment.getVariable().getSlot()];
 
                 UnaryNode unary = (UnaryNode) assignment.getExpression();
 
                 if (unary.getOperand() instanceof LiteralNode) {
                     LiteralNode literal = (LiteralNode) unary.getOperand();
 
-                    if (s.getType() != literal.getDataType()) {
-                        error("Type mismatch. Assigning a " + literal.getDataType() + " datatype to a " + s.getType(),
-                                assignment.getVariable().getPosition());
-                    }
-
                     if (unary.getOperator().getType() == Type.NOT) {
+                        s.setBoolValue(!literal.getBoolValue());
+                    } else if (unary.getOperator().getType() == Type.NEGATIVE) {
 
-                        if (literal.toString().equals("TRUE")) {
-                            s.setValue("FALSE");
+                        if (literal.getDataType() == Type.INT) {
+                            s.setIntValue(-literal.getIntValue());
                         } else {
-                            s.setValue("TRUE");
+                            s.setFloatValue(-literal.getFloatValue());
                         }
-
-                    } else if (unary.getOperator().getType() == Type.NEGATIVE) {
-                        s.setValue("-" + unary.getOperand().toString());
                     } else {
-                        s.setValue(unary.getOperand().toString());
+                        setLiteral(s, literal);
                     }
                 } else if (unary.getOperand() instanceof VariableNode) {
-                    Symbol operand = symbolTable.lookup(((VariableNode) unary.getOperand()).getName());
-
-                    if (s.getType() != operand.getType()) {
-                        error("Type mismatch. Assigning a " + operand.getType() + " datatype to a " + s.getType(),
-                                assignment.getVariable().getPosition());
-                    }
+                    Symbol operand = frame[((VariableNode) unary.getOperand()).getSlot()];
 
                     if (unary.getOperator().getType() == Type.NOT) {
-
-                        if (operand.getValue().equals("TRUE")) {
-                            s.setValue("FALSE");
-                        } else {
-                            s.setValue("TRUE");
-                        }
-
+                        s.setBoolValue(!operand.getBoolValue());
                     } else if (unary.getOperator().getType() == Type.NEGATIVE) {
 
                         if (operand.getType() == Type.INT) {
-                            int value = Integer.parseInt(operand.getValue()) * -1;
-                            s.setValue(String.valueOf(value));
-
+                            s.setIntValue(-operand.getIntValue());
                         } else {
-                            double value = Double.parseDouble(operand.getValue()) * -1;
-
-                            s.setValue(String.valueOf(value));
+                            s.setFloatValue(-operand.getFloatValue());
                         }
+                    } else {
+                        s.copyValue(operand);
                     }
                 } else if (unary.getOperand() instanceof ExpressionNode) {
-
-                    String result = evaluateExpression((ExpressionNode) unary.getOperand());
-
-                    if (unary.getOperator().getType() == Type.NOT) {
-
-                        if (result.equals("TRUE")) {
-                            s.setValue("FALSE");
-                        } else {
-                            s.setValue("TRUE");
-                        }
-
-                    } else if (unary.getOperator().getType() == Type.NEGATIVE) {
-
-                        if (result.contains(".")) {
-                            double value = Double.parseDouble(result) * -1;
-                            s.setValue(String.valueOf(value));
-                        } else {
-                            int value = Integer.parseInt(result) * -1;
-                            s.setValue(String.valueOf(value));
-                        }
-                    }
+                    assign(s, unary);
                 }
 
             } else if (assignment.getExpression() instanceof VariableNode) {
 
-                Symbol left = symbolTable.lookup(assignment.getVariable().getName());
-                Symbol right = symbolTable.lookup(((VariableNode) assignment.getExpression()).getName());
+                Symbol left = frame[assignment.getVariable().getSlot()];
+                Symbol right = frame[((VariableNode) assignment.getExpression()).getSlot()];
 
-                left.setValue(right.getValue());
+                left.copyValue(right);
             } else {
 
-                String result = evaluateExpression((ExpressionNode) assignment.getExpression());
-
-                String value = String.valueOf(result);
+                Symbol symbol = frame[assignment.getVariable().getSlot()];
 
-                Symbol symbol = symbolTable.lookup(assignment.getVariable().getName());
-
-                if (symbol.getType() == Type.INT) {
-                    if (value.contains(".")) {
-                        String newValue = value.substring(0, value.indexOf("."));
-                        value = newValue;
-                    }
-                }
-
-                symbol.setValue(value);
+                assign(symbol, assignment.getExpression());
             }
 
         } else if (statement instanceof DisplayNode) {
@@ -187,6 +120,8 @@ public class Interpreter {
         } else if (statement instanceof ScanNode) {
             displayError = false;
             interpretScan((ScanNode) statement);
+        } else if (statement instanceof IfStatementNode) {
+            interpretIf((IfStatementNode) statement);
         } else if (statement instanceof WhileNode) {
             interpretWhile((WhileNode) statement);
         } else if (statement instanceof ForNode) {
@@ -194,254 +129,69 @@ public class Interpreter {
         }
     }
 
-    public String evaluateExpression(ExpressionNode expression) {
-        List<Token> tokens = expression.getTokens();
-        List<Token> postfixExpression = infixToPostfix(tokens);
-
-        return evaluatePostfix(postfixExpression);
-    }
-
-    private List<Token> infixToPostfix(List<Token> tokens) {
-        Stack<Token> operatorStack = new Stack<>();
-        List<Token> postfix = new ArrayList<>();
-
-        for (int i = 0; i < tokens.size(); i++) {
-            Token token = tokens.get(i);
-
-            if (token.getType() == Type.IDENTIFIER || token.getType() == Type.LITERAL) {
-                postfix.add(token);
-            } else if (token.getType() == Type.NEGATIVE || token.getType() == Type.POSITIVE
-                    || token.getType() == Type.NOT) {
-                operatorStack.push(token);
-            } else if (token.getLexeme().equals("(")) {
-                operatorStack.push(token);
-            } else if (token.getLexeme().equals(")")) {
-                while (!operatorStack.isEmpty() && !operatorStack.peek().getLexeme().equals("(")) {
-                    postfix.add(operatorStack.pop());
-                }
-                operatorStack.pop();
-            } else {
-                while (!operatorStack.isEmpty() && hasHigherPrecedence(operatorStack.peek(), token)) {
-                    postfix.add(operatorStack.pop());
-                }
-                operatorStack.push(token);
-            }
+    // The literal was converted when it was parsed and is of the symbol's type
+    private void setLiteral(Symbol symbol, LiteralNode literal) {
+        switch (literal.getDataType()) {
+            case INT:
+                symbol.setIntValue(literal.getIntValue());
+                break;
+            case FLOAT:
+                symbol.setFloatValue(literal.getFloatValue());
+                break;
+            case BOOL:
+                symbol.setBoolValue(literal.getBoolValue());
+                break;
+            default:
+                symbol.setCharValue(literal.getCharValue());
+                break;
         }
+    }
 
-        while (!operatorStack.isEmpty()) {
-            postfix.add(operatorStack.pop());
+    // Store the value of an expression in a symbol. An INT variable keeps the whole part of a FLOAT result
+    private void assign(Symbol symbol, ExpressionNode expression) {
+        CompiledExpression compiled = compile(expression);
+        Type type = compiled.getType();
+
+        if (symbol.getType() == Type.INT && type == Type.INT) {
+            symbol.setIntValue(evaluator.evaluateInt(compiled));
+        } else if (symbol.getType() == Type.INT) {
+            symbol.setIntValue((long) evaluator.evaluateFloat(compiled));
+        } else if (symbol.getType() == Type.FLOAT && type == Type.FLOAT) {
+            symbol.setFloatValue(evaluator.evaluateFloat(compiled));
+        } else if (symbol.getType() == Type.FLOAT) {
+            symbol.setFloatValue(evaluator.evaluateInt(compiled));
+        } else if (symbol.getType() == Type.BOOL) {
+            symbol.setBoolValue(evaluator.evaluateBool(compiled));
+        } else {
+            symbol.setCharValue(evaluator.evaluateChar(compiled));
         }
-
-        return postfix;
     }
 
-    private boolean hasHigherPrecedence(Token a, Token b) {
-        int precedence1 = getOperatorPrecedence(a);
-        int precedence2 = getOperatorPrecedence(b);
-        return precedence1 >= precedence2;
+    private CompiledExpression compile(ExpressionNode expression) {
+        return expressionCompiler.compile(expression);
     }
 
-    private int getOperatorPrecedence(Token token) {
-        switch (token.getType()) {
-            case ADD:
-            case SUBTRACT:
-                return 1;
-            case MULTIPLY:
-            case DIVIDE:
-            case MODULO:
-                return 2;
-            case LESS:
-            case GREATER:
-            case LESS_EQUAL:
-            case GREATER_EQUAL:
-            case NOT_EQUAL:
-            case EQUAL:
-                return 3;
-            case AND:
-                return 4;
-            case OR:
-                return 5;
-            case NOT:
-            case POSITIVE:
-            case NEGATIVE:
-                return 6;
-            default:
-                return 0;
-        }
+    private boolean evaluateCondition(ExpressionNode condition) {
+        return evaluator.evaluateBool(compile(condition));
     }
 
-    public String evaluatePostfix(List<Token> postfixExpression) {
-        Stack<Object> stack = new Stack<>();
-
-        for (int i = 0; i < postfixExpression.size(); i++) {
-            Token token = postfixExpression.get(i);
-            String lexeme = token.getLexeme();
-
-            if (token.getType() == Type.LITERAL) {
-                if (token.getLexeme().contains(".")) {
-                    stack.push(Double.valueOf(lexeme));
-                } else if (token.getLexeme().equals("TRUE") || token.getLexeme().equals("FALSE")) {
-                    stack.push(Boolean.valueOf(lexeme));
-                } else {
-                    try {
-                        stack.push(Integer.parseInt(lexeme));
-                    } catch (NumberFormatException e) {
-                        stack.push(lexeme);
-                    }
-                }
-
-            } else if (token.getType() == Type.IDENTIFIER) {
-                if (symbolTable.lookup(lexeme) != null) {
-
-                    if (symbolTable.lookup(lexeme).getType() == Type.INT) {
-                        // Convert the integer to a double before pushing it to the stack
-                        stack.push(Integer.valueOf(Integer.parseInt(symbolTable.lookup(lexeme).getValue())));
-                    } else if (symbolTable.lookup(lexeme).getType() == Type.FLOAT) {
-                        stack.push(Double.parseDouble(symbolTable.lookup(lexeme).getValue()));
-                    } else if (symbolTable.lookup(lexeme).getType() == Type.BOOL) {
-                        stack.push(Boolean.parseBoolean(symbolTable.lookup(lexeme).getValue()));
-                    } else {
-                        stack.push(symbolTable.lookup(lexeme).getValue());
-                    }
-                } else {
-                    error("Undefined variable: " + lexeme, token.getPosition());
-                }
-            } else {
-
-                switch (token.getType()) {
-
-                    case ADD:
-                    case SUBTRACT:
-                    case MULTIPLY:
-                    case DIVIDE:
-                    case MODULO:
-
-                        if (stack.size() < 2) {
-                            error("Invalid expression. Missing operands.", token.getPosition());
-                        }
-
-                        if (stack.peek() instanceof Boolean) {
-                            error("Invalid expression. Cannot " + token.getType() + " a BOOL",
-                                    token.getPosition());
-                        }
-
-                        if (stack.peek() instanceof String && stack.peek().toString().length() == 1) {
-                            error("Invalid expression. Cannot " + token.getType() + " a CHAR",
-                                    token.getPosition());
-                        }
-
-                        Number right = getNumber(stack.pop());
+    // The evaluated value is encoded straight into the output, never as a String
+    private void displayValue(ExpressionNode expression) {
+        CompiledExpression compiled = compile(expression);
 
-                        if (stack.peek() instanceof Boolean) {
-                            error("Invalid expression. Cannot " + token.getType() + " a BOOL",
-                                    token.getPosition());
-                        }
-
-                        if (stack.peek() instanceof String && stack.peek().toString().length() == 1) {
-                            error("Invalid expression. Cannot " + token.getType() + " a CHAR",
-                                    token.getPosition());
-                        }
-
-                        Number left = getNumber(stack.pop());
-                        Number result = calculate(left, right, token);
-                        stack.push(result);
-                        break;
-                    case LESS:
-                        right = getNumber(stack.pop());
-                        left = getNumber(stack.pop());
-
-                        if (left instanceof Integer && right instanceof Integer) {
-                            stack.push((left.intValue() < right.intValue()));
-                        } else {
-                            stack.push((left.doubleValue() < right.doubleValue()));
-                        }
-                        break;
-                    case GREATER:
-                        right = getNumber(stack.pop());
-                        left = getNumber(stack.pop());
-
-                        if (left instanceof Integer && right instanceof Integer) {
-                            stack.push((left.intValue() > right.intValue()));
-                        } else {
-                            stack.push((left.doubleValue() > right.doubleValue()));
-                        }
-
-                        break;
-                    case LESS_EQUAL:
-                        right = getNumber(stack.pop());
-                        left = getNumber(stack.pop());
-
-                        if (left instanceof Integer && right instanceof Integer) {
-                            stack.push((left.intValue() <= right.intValue()));
-                        } else {
-                            stack.push((left.doubleValue() <= right.doubleValue()));
-                        }
-                        break;
-                    case GREATER_EQUAL:
-                        right = getNumber(stack.pop());
-                        left = getNumber(stack.pop());
-
-                        if (left instanceof Integer && right instanceof Integer) {
-                            stack.push((left.intValue() >= right.intValue()));
-                        } else {
-                            stack.push((left.doubleValue() >= right.doubleValue()));
-                        }
-                        break;
-                    case NOT_EQUAL:
-                        Object rightNotEqual = stack.pop();
-                        Object leftNotEqual = stack.pop();
-                        if (leftNotEqual instanceof Number && rightNotEqual instanceof Number) {
-                            stack.push(!leftNotEqual.equals(rightNotEqual));
-                        } else {
-                            stack.push(!leftNotEqual.toString().equals(rightNotEqual.toString()));
-                        }
-                        break;
-                    case EQUAL:
-                        Object rightEqual = stack.pop();
-                        Object leftEqual = stack.pop();
-
-                        if (leftEqual instanceof Number && rightEqual instanceof Number) {
-                            stack.push(leftEqual.equals(rightEqual));
-                        } else {
-                            stack.push(leftEqual.toString().equals(rightEqual.toString()));
-                        }
-                        break;
-                    case AND:
-                        stack.push(((boolean) stack.pop() && (boolean) stack.pop()));
-                        break;
-                    case OR:
-                        stack.push(((boolean) stack.pop() || (boolean) stack.pop()));
-                        break;
-                    case NOT:
-                        stack.push(!(boolean) stack.pop());
-                        break;
-                    case POSITIVE:
-                        if (stack.peek() instanceof Integer) {
-                            stack.push((int) stack.pop());
-                        } else {
-                            stack.push((double) stack.pop());
-                        }
-                        break;
-                    case NEGATIVE:
-                        if (stack.peek() instanceof Integer) {
-                            stack.push(-(int) stack.pop());
-                        } else {
-                            stack.push(-(double) stack.pop());
-                        }
-                        break;
-                    default:
-                        error("Unknown operator: " + lexeme, token.getPosition());
-                        break;
-                }
-            }
-        }
-
-        Object result = stack.pop();
-
-        if (result instanceof Boolean) {
-            return (boolean) result ? "TRUE" : "FALSE";
-        } else {
-            return result.toString();
+        switch (compiled.getType()) {
+            case INT:
+                output.write(evaluator.evaluateInt(compiled));
+                break;
+            case FLOAT:
+                output.write(evaluator.evaluateFloat(compiled));
+                break;
+            case BOOL:
+                output.write(evaluator.evaluateBool(compiled));
+                break;
+            default:
+                output.writeChar(evaluator.evaluateChar(compiled));
+                break;
         }
     }
 
@@ -454,42 +204,30 @@ public class Interpreter {
         for (Token token : arguments) {
 
             if (token.getType() == Type.STRING_LITERAL || token.getType() == Type.SPECIAL_CHARACTER) {
-                System.out.print(token.getLexeme());
+                output.write(token.getLexeme());
                 continue;
             }
 
             if (token.getType() == Type.IDENTIFIER) {
-                Symbol symbol = symbolTable.lookup(token.getLexeme());
-
-                String value = symbol.getValue();
-
-                System.out.print(value);
+                output.write(frame[token.getSlot()]);
                 continue;
             }
 
             if (token.getType() == Type.LITERAL) {
-                System.out.print(token.getLexeme());
+                output.write(token.getLexeme());
                 continue;
             }
 
             if (token.getType() == Type.EXPRESSION) {
                 ExpressionNode expression = expressions.get(currentIndexExpression);
-                String result = evaluateExpression(expression);
-
-                if (result.equals("TRUE")) {
-                    result = "TRUE";
-                } else if (result.equals("FALSE")) {
-                    result = "FALSE";
-                }
-
-                System.out.print(result);
+                displayValue(expression);
 
                 currentIndexExpression++;
                 continue;
             }
 
             if (token.getType() == Type.NEXT_LINE) {
-                System.out.println();
+                output.newLine();
                 continue;
             }
 
@@ -498,124 +236,31 @@ public class Interpreter {
             }
         }
 
-        System.out.println();
+        output.endLine();
 
     }
 
     private void interpretScan(ScanNode scanStatement) {
-        Scanner scanner = new Scanner(System.in);
-
         for (Token identifier : scanStatement.getIdentifiers()) {
-
-            Symbol s = symbolTable.lookup(identifier.getLexeme());
-
-            System.out.print(s.getType() + " " + s.getName() + ": ");
-            String input = scanner.next();
-
-            // Convert to a Data Type
-
-            Type inputDataType = null;
-
-            if (input.matches("[-+]?[0-9]+")) {
-                inputDataType = Type.INT;
-            } else if (input.matches("[-+]?[0-9]+(\\.[0-9]+)?")) {
-                inputDataType = Type.FLOAT;
-
-            } else if (input.matches("'[a-zA-Z0-9]'")) {
-
-                // could be replace with else if (input.matches("'[a-zA-Z0-9.,;:'\"!?-_]'"))
-
-                inputDataType = Type.CHAR;
-            } else if (input.equals("\"TRUE\"") || input.equals("\"FALSE\"")) {
-                inputDataType = Type.BOOL;
-            } else {
-                error("Invalid input entered. Couldn't be converted to a suitable data type",
-                        scanStatement.getPosition());
-            }
-
-            Symbol symbol = symbolTable.lookup(identifier.getLexeme());
-
-            if (symbol.getType() != inputDataType) {
-                error("Type mismatch. Assigning a " + inputDataType + " to a " + symbol.getType() + " datatype",
-                        scanStatement.getPosition());
-            }
-
-            if (inputDataType == Type.INT) {
-                if (input.contains(".")) {
-                    String newValue = input.substring(0, input.indexOf("."));
-                    input = newValue;
-                }
-            } else if (inputDataType == Type.BOOL) {
-                if (input.equals("\"TRUE\"")) {
-                    input = "TRUE";
-                } else {
-                    input = "FALSE";
-                }
-            }
-
-            symbol.setValue(input);
+            scanInput.read(frame[identifier.getSlot()], scanStatement.getPosition());
         }
-
-        scanner.close();
-
     }
 
-    private void interpretIf(List<StatementNode> ifStatements) {
-
-        StatementNode firstStatement = ifStatements.get(0);
-
-        if (firstStatement instanceof IfNode) {
-            IfNode ifNode = (IfNode) firstStatement;
-
-            ExpressionNode condition = ifNode.getCondition();
-            List<StatementNode> ifBranchStatements = ifNode.getStatements();
-
-            String conditionResult = evaluateExpression(condition);
-
-            if (conditionResult.equals("TRUE")) {
-                // Execute the statements in the current branch if the condition is true
-                for (StatementNode branchStatement : ifBranchStatements) {
-                    interpretStatement(branchStatement);
-                }
-                return;
-            }
-
-            if (ifStatements.size() > 1 && !ifStatements.isEmpty()) {
-                ifStatements.remove(0);
-                interpretIf(ifStatements);
-            }
-
-        } else if (firstStatement instanceof ElseIfNode) {
-            ElseIfNode elseIfNode = (ElseIfNode) firstStatement;
-
-            ExpressionNode condition = elseIfNode.getCondition();
-            List<StatementNode> ifElseBranchStatements = elseIfNode.getStatements();
+    // The branches are tried in order and only the first one whose condition holds runs
+    private void interpretIf(IfStatementNode ifStatement) {
 
-            String conditionResult = evaluateExpression(condition);
-
-            if (conditionResult.equals("TRUE")) {
-
-                for (StatementNode branchStatement : ifElseBranchStatements) {
-                    interpretStatement(branchStatement);
+        for (IfNode branch : ifStatement.getBranches()) {
+            if (evaluateCondition(branch.getCondition())) {
+                for (StatementNode statement : branch.getStatements()) {
+                    interpretStatement(statement);
                 }
                 return;
             }
+        }
 
-            // If none of the conditions are true, execute the statements in the final
-            // "else" branch, if it exists
-            if (ifStatements.size() > 0) {
-
-                if (!ifStatements.isEmpty()) {
-                    ifStatements.remove(0);
-                    interpretIf(ifStatements);
-                }
-            }
-        } else {
-            ElseNode elseNode = (ElseNode) firstStatement;
-            List<StatementNode> elseBranchStatements = elseNode.getStatements();
-
-            for (StatementNode branchStatement : elseBranchStatements) {
-                interpretStatement(branchStatement);
+        if (ifStatement.getElseBranch() != null) {
+            for (StatementNode statement : ifStatement.getElseBranch().getStatements()) {
+                interpretStatement(statement);
             }
         }
     }
@@ -624,53 +269,11 @@ public class Interpreter {
         ExpressionNode condition = whileStatement.getCondition();
         List<StatementNode> statements = whileStatement.getStatements();
 
-        String result = evaluateExpression(condition);
-
-        boolean breakFlag = false;
-
-        while (result.equals("TRUE")) {
-
-            for (int i = 0; i < statements.size(); i++) {
-
-                StatementNode statement = statements.get(i);
-
-                if (statement instanceof IfNode) {
-                    List<StatementNode> ifStatements = new ArrayList<>();
-
-                    ifStatements.add(statement);
-
-                    while (i + 1 < statements.size() && statements.get(i + 1) instanceof ElseIfNode) {
-                        ifStatements.add(statements.get(i));
-                        i++;
-                    }
-
-                    if (i + 1 < statements.size() && statements.get(i + 1) instanceof ElseNode) {
-                        ifStatements.add(statements.get(i));
-                        i++;
-                    }
-
-                    interpretIf(ifStatements);
-
-                }
-
-                if (statements.get(i) instanceof BreakNode) {
-                    breakFlag = true;
-                    break;
-                }
-
-                if (statements.get(i) instanceof ContinueNode) {
-                    break;
-                }
-
-                interpretStatement(statements.get(i));
-            }
-
-            if (breakFlag)
+        while (evaluateCondition(condition)) {
+            if (interpretLoopBody(statements)) {
                 break;
-
-            result = evaluateExpression(condition);
+            }
         }
-
     }
 
     private void interpretFor(ForNode forStatement) {
@@ -683,108 +286,31 @@ public class Interpreter {
 
         interpretStatement(initialization);
 
-        String result = evaluateExpression(condition);
-
-        boolean breakFlag = false;
-
-        while (result == "TRUE") {
-
-            for (int i = 0; i < statements.size(); i++) {
-
-                StatementNode statement = statements.get(i);
-
-                if (statement instanceof IfNode) {
-                    List<StatementNode> ifStatements = new ArrayList<>();
-
-                    ifStatements.add(statement);
-
-                    while (i + 1 < statements.size() && statements.get(i + 1) instanceof ElseIfNode) {
-                        ifStatements.add(statements.get(i));
-                        i++;
-                    }
-
-                    if (i + 1 < statements.size() && statements.get(i + 1) instanceof ElseNode) {
-                        ifStatements.add(statements.get(i));
-                        i++;
-                    }
-
-                    interpretIf(ifStatements);
-
-                }
-
-                if (statements.get(i) instanceof BreakNode) {
-                    breakFlag = true;
-                    break;
-                }
-
-                if (statements.get(i) instanceof ContinueNode) {
-                    break;
-                }
-
-                interpretStatement(statements.get(i));
-            }
-
-            if (breakFlag)
+        while (evaluateCondition(condition)) {
+            if (interpretLoopBody(statements)) {
                 break;
+            }
 
             interpretStatement(update);
-
-            result = evaluateExpression(condition);
         }
     }
 
-    private Number calculate(Number left, Number right, Token token) {
-        if (left instanceof Double || right instanceof Double) {
-            switch (token.getType()) {
-                case Type.ADD:
-                    return left.doubleValue() + right.doubleValue();
-                case Type.SUBTRACT:
-                    return left.doubleValue() - right.doubleValue();
-                case Type.MULTIPLY:
-                    return left.doubleValue() * right.doubleValue();
-                case Type.DIVIDE:
-                    if (right.doubleValue() == 0) {
-                        error("Cannot divide by zero", token.getPosition());
-                    }
-                    return left.doubleValue() / right.doubleValue();
-                default:
-                    error("Unknown operator: " + token.getLexeme(), token.getPosition());
-            }
-        } else {
-            switch (token.getType()) {
-                case Type.ADD:
-                    return left.intValue() + right.intValue();
-                case Type.SUBTRACT:
-                    return left.intValue() - right.intValue();
-                case Type.MULTIPLY:
-                    return left.intValue() * right.intValue();
-                case Type.DIVIDE:
-                    if (right.intValue() == 0) {
-                        error("Cannot divide by zero", token.getPosition());
-                    }
-                    return left.intValue() / right.intValue();
-                default:
-                    error("Unknown operator: " + token.getLexeme(), token.getPosition());
+    // Run the statements of a loop once. Returns true when a BREAK ends the loop
+    private boolean interpretLoopBody(List<StatementNode> statements) {
+
+        for (StatementNode statement : statements) {
+
+            if (statement instanceof BreakNode) {
+                return true;
             }
-        }
-        return 0;
-    }
 
-    private Number getNumber(Object number) {
+            if (statement instanceof ContinueNode) {
+                return false;
+            }
 
-        if (number instanceof Integer) {
-            return (Integer) number;
-        } else if (number instanceof Double) {
-            return (Double) number;
-        } else {
-            return null;
+            interpretStatement(statement);
         }
-    }
-
-    private void error(String message, Position position) {
-        System.err.println("Runtime Error: " + message + " at Line " +
-                position.getLine() + " and Column " + position.getColumn() + "\n");
 
-        System.exit(1);
+        return false;
     }
 }
\ No newline at end of file
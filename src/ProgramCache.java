@@ -0,0 +1,134 @@
+package src;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import src.nodes.ProgramEncoding;
+import src.nodes.ProgramNode;
+import src.utils.SymbolTable;
+
+// Analyzed programs kept on disk between runs, so a source that did not
+// change is not lexed, parsed and analyzed again. An entry is named after the
+// SHA-256 of the source and holds the encoding of the optimized program with
+// its resolved slots and types and the initial symbol table. Only programs
+// that made it through the analyzer are stored, one with an error is checked
+// again on every run
+public class ProgramCache {
+    private static final int MAGIC = 0x434F4445;
+
+    // Changed whenever what an entry holds changes, older entries are then ignored
+    private static final int VERSION = 5;
+
+    private final Path directory;
+    private final Path entry;
+
+    private ProgramNode program;
+    private SymbolTable symbolTable;
+
+    public ProgramCache(Path directory, Path source) throws IOException {
+        this.directory = directory;
+        this.entry = directory.resolve(hash(source) + ".bin");
+    }
+
+    // Returns false when there is no usable entry for the source
+    public boolean load() {
+        if (!Files.isRegularFile(entry)) {
+            return false;
+        }
+
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(entry)));
+
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return false;
+            }
+
+            ProgramEncoding encoding = ProgramEncoding.read(in);
+            symbolTable = SymbolTable.read(in);
+            program = encoding.decode();
+
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // A damaged entry is only a miss, the program is built again and the entry replaced
+            return false;
+        }
+    }
+
+    public ProgramNode getProgram() {
+        return program;
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    // Written to a temporary file first, so a run that reads the entry at the
+    // same time never sees half of it. Failing to write only costs the next run
+    public void store(ProgramNode program, SymbolTable symbolTable) {
+        Path temporary = null;
+
+        try {
+            Files.createDirectories(directory);
+            temporary = Files.createTempFile(directory, "entry", ".tmp");
+
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                ProgramEncoding.encode(program).write(out);
+                symbolTable.write(out);
+            }
+
+            Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Could not write to the program cache: " + e.getMessage());
+
+            try {
+                if (temporary != null) {
+                    Files.deleteIfExists(temporary);
+                }
+            } catch (IOException ignored) {
+                // Left for whoever cleans the directory
+            }
+        }
+    }
+
+    private static String hash(Path source) throws IOException {
+        MessageDigest digest;
+
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+
+        StringBuilder sb = new StringBuilder();
+
+        for (byte b : digest.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+
+        return sb.toString();
+    }
+}
@@ -1,7 +1,6 @@
 package src.analyzer;
 
 import src.nodes.*;
-import src.utils.EvaluationResult;
 import src.utils.Position;
 import src.utils.Symbol;
 import src.utils.SymbolTable;
@@ -26,11 +25,13 @@ public class SemanticAnalyzer {
 
     // Analyze the AST
     public void analyze() {
+        analyzeDeclarations();
+        analyzeStatements(programNode.getStatements());
+    }
 
-        for (VariableDeclarationNode declaration : programNode.getDeclarations()) {
+    public void analyzeDeclarations() {
 
-            Symbol symbol = new Symbol(declaration.getType(), declaration.getName(), declaration.getValue());
-            ;
+        for (VariableDeclarationNode declaration : programNode.getDeclarations()) {
 
             checkUsingReservedKeyword(declaration.getName(), declaration.getPosition());
             checkValidVariableName(declaration.getName(), declaration.getPosition());
@@ -39,18 +40,39 @@ public class SemanticAnalyzer {
                 checkValidDataType(declaration.getType(), declaration.getValue(), declaration.getPosition());
             }
 
+            // The symbol parses the initial value, so it is created after the value is checked
+            Symbol symbol = new Symbol(declaration.getType(), declaration.getName(), declaration.getValue());
+
             if (!symbolTable.insert(symbol)) {
                 error("Variable '" + declaration.getName() + "' was already declared", declaration.getPosition());
             }
         }
 
         initialSymbolTable = symbolTable.copy();
+    }
 
-        for (StatementNode statement : programNode.getStatements()) {
+    // Statements are checked in order against what the ones before them left in the symbol table
+    public void analyzeStatements(List<StatementNode> statements) {
+        for (StatementNode statement : statements) {
             visit(statement);
         }
     }
 
+    // What the statements analyzed so far left in the symbol table
+    public SymbolTable checkpoint() {
+        return symbolTable.snapshot();
+    }
+
+    // Goes back to a checkpoint, to analyze again the statements after it
+    public void restore(SymbolTable checkpoint) {
+        symbolTable = checkpoint.snapshot();
+    }
+
+    // Whether the statements analyzed so far left the symbol table as it was at the checkpoint
+    public boolean matches(SymbolTable checkpoint) {
+        return symbolTable.matches(checkpoint);
+    }
+
     // Visit an AST node
     private void visit(StatementNode node) {
         if (node instanceof AssignmentNode) {
@@ -59,8 +81,8 @@ public class SemanticAnalyzer {
             visitDisplayNode((DisplayNode) node);
         } else if (node instanceof ScanNode) {
             visitScanNode((ScanNode) node);
-        } else if (node instanceof IfNode || node instanceof ElseNode || node instanceof ElseIfNode) {
-            visitIfNode(node);
+        } else if (node instanceof IfStatementNode) {
+            visitIfNode((IfStatementNode) node);
         } else if (node instanceof WhileNode) {
             visitWhileNode((WhileNode) node);
         } else if (node instanceof ForNode) {
@@ -74,14 +96,14 @@ public class SemanticAnalyzer {
         VariableNode variableNode = node.getVariable();
         ExpressionNode expressionNode = node.getExpression();
 
-        Class<?> clazz = expressionNode.getClass();
-
         // We pass the type of the variable to the visitVariableNode method since we
         // don't need to check the type of the variable
         visitVariableNode(variableNode, null, false);
 
         Symbol leftSymbol = symbolTable.lookup(node.getVariable().getName());
 
+        variableNode.setType(leftSymbol.getType());
+
         if (expressionNode != null) {
             leftSymbol.setInitialized(true);
         }
@@ -90,9 +112,7 @@ public class SemanticAnalyzer {
 
             visitVariableNode((VariableNode) expressionNode, leftSymbol.getType(), true);
 
-            Symbol rightSymbol = symbolTable.lookup(((VariableNode) expressionNode).getName());
-
-            leftSymbol.setValue(rightSymbol.getValue());
+            expressionNode.setType(leftSymbol.getType());
 
         } else if (expressionNode instanceof LiteralNode) {
 
@@ -102,8 +122,121 @@ public class SemanticAnalyzer {
                         + ((LiteralNode) expressionNode).getDataType(), expressionNode.getPosition());
             }
 
-            leftSymbol.setValue(((LiteralNode) expressionNode).getValue().getLexeme());
+            expressionNode.setType(leftSymbol.getType());
+
+        } else if (expressionNode != null) {
+            Type type = resolveType(expressionNode);
+
+            // A sign or NOT over a literal or a variable keeps its type, any
+            // other INT or FLOAT result is converted to the type of the variable
+            boolean converted = isNumeric(type) && isNumeric(leftSymbol.getType())
+                    && !(expressionNode instanceof UnaryNode && isLeaf(((UnaryNode) expressionNode).getOperand()));
+
+            if (type != leftSymbol.getType() && !converted) {
+                error("Type mismatch. Assigning a " + type + " datatype to a " + leftSymbol.getType(),
+                        variableNode.getPosition());
+            }
+        }
+    }
+
+    // Resolve the slots and types inside an assigned expression, where INT and
+    // FLOAT operands mix and the result is FLOAT if either of them is
+    private Type resolveType(ExpressionNode node) {
+        Type type = null;
+
+        if (node instanceof VariableNode) {
+            VariableNode variableNode = (VariableNode) node;
+            Symbol symbol = symbolTable.lookup(variableNode.getName());
+
+            if (symbol == null) {
+                error("Variable '" + variableNode.getName() + "' is not declared", node.getPosition());
+            }
+
+            variableNode.setSlot(symbol.getSlot());
+            type = symbol.getType();
+
+        } else if (node instanceof LiteralNode) {
+            type = ((LiteralNode) node).getDataType();
+
+            if (type == null) {
+                error("Invalid literal " + node, node.getPosition());
+            }
+
+        } else if (node instanceof UnaryNode) {
+            UnaryNode unary = (UnaryNode) node;
+            type = resolveType(unary.getOperand());
+
+            if (unary.getOperator().getType() == Type.NOT) {
+                if (type != Type.BOOL) {
+                    error("Invalid expression. Cannot NOT a " + type, unary.getPosition());
+                }
+            } else if (!isNumeric(type)) {
+                error("Invalid expression. Cannot " + unary.getOperator().getType() + " a " + type,
+                        unary.getPosition());
+            }
+
+        } else if (node instanceof BinaryNode) {
+            BinaryNode binary = (BinaryNode) node;
+            Token operator = binary.getOperator();
+            Type leftType = resolveType(binary.getLeft());
+            Type rightType = resolveType(binary.getRight());
+            boolean numeric = isNumeric(leftType) && isNumeric(rightType);
+
+            switch (operator.getType()) {
+                case ADD:
+                case SUBTRACT:
+                case MULTIPLY:
+                case DIVIDE:
+                case MODULO:
+                    if (!numeric) {
+                        error("Invalid expression. Cannot " + operator.getType() + " a "
+                                + (isNumeric(leftType) ? rightType : leftType), operator.getPosition());
+                    }
+                    type = leftType == Type.FLOAT || rightType == Type.FLOAT ? Type.FLOAT : Type.INT;
+                    break;
+                case LESS:
+                case GREATER:
+                case LESS_EQUAL:
+                case GREATER_EQUAL:
+                    if (!numeric) {
+                        error("Invalid expression. Cannot compare a " + leftType + " with a " + rightType,
+                                operator.getPosition());
+                    }
+                    type = Type.BOOL;
+                    break;
+                case EQUAL:
+                case NOT_EQUAL:
+                    if (!numeric && leftType != rightType) {
+                        error("Invalid expression. Cannot compare a " + leftType + " with a " + rightType,
+                                operator.getPosition());
+                    }
+                    type = Type.BOOL;
+                    break;
+                case AND:
+                case OR:
+                    if (leftType != Type.BOOL || rightType != Type.BOOL) {
+                        error("Invalid expression. Both operands of " + operator.getType() + " must be BOOL",
+                                operator.getPosition());
+                    }
+                    type = Type.BOOL;
+                    break;
+                default:
+                    error("Unknown operator: " + operator.getLexeme(), operator.getPosition());
+            }
+        } else {
+            error("Invalid expression", node.getPosition());
         }
+
+        node.setType(type);
+        return type;
+    }
+
+    private static boolean isNumeric(Type type) {
+        return type == Type.INT || type == Type.FLOAT;
+    }
+
+    private static boolean isLeaf(ExpressionNode node) {
+        return node instanceof LiteralNode || node instanceof VariableNode;
     }
 
     // Visit a variable node
@@ -121,6 +254,8 @@ public class SemanticAnalyzer {
             error("Variable '" + name + "' is not declared", node.getPosition());
         }
 
+        node.setSlot(symbol.getSlot());
+
         if (checkInitialized && !symbol.isInitialized()) {
             error("Variable '" + name + "' is not initialized", node.getPosition());
         }
@@ -149,7 +284,7 @@ public class SemanticAnalyzer {
                 checkValidDataType(literalNode.getDataType(), argument.getLexeme(), argument.getPosition());
             } else if (argument.getType() == Type.EXPRESSION) {
                 ExpressionNode expression = expressions.get(currentIndexExpression);
-                evaluateExpression(expression);
+                checkExpression(expression);
                 currentIndexExpression++;
             }
         }
@@ -166,179 +301,93 @@ public class SemanticAnalyzer {
                 error("Variable '" + identifier + "' is not declared", node.getPosition());
             }
 
+            identifier.setSlot(symbol.getSlot());
             symbol.setInitialized(true);
         }
     }
 
     // Visit an if node
-    private void visitIfNode(StatementNode node) {
+    private void visitIfNode(IfStatementNode node) {
+        IfNode[] branches = node.getBranches();
 
-        if (node instanceof IfNode) {
-            IfNode ifNode = (IfNode) node;
+        for (int i = 0; i < branches.length; i++) {
+            IfNode branch = branches[i];
 
-            if (evaluateExpression(ifNode.getCondition()).getType() != Type.BOOL) {
-                error("Expected a BOOL expression in if condition",
-                        ifNode.getCondition().getPosition());
-            }
+            // The first branch is the IF, the rest are ELSE IFs
+            Type conditionType = checkExpression(branch.getCondition());
 
-            for (StatementNode statement : ifNode.getStatements()) {
-                visit(statement);
+            if (i == 0) {
+                if (conditionType != Type.BOOL) {
+                    error("Expected a BOOL expression in if condition",
+                            branch.getCondition().getPosition());
+                }
+            } else if (conditionType != Type.BOOL) {
+                error("Invalid type in condition. Expected BOOL but got " + conditionType,
+                        branch.getCondition().getPosition());
             }
 
-        } else if (node instanceof ElseNode) {
-            ElseNode elseNode = (ElseNode) node;
-
-            for (StatementNode statement : elseNode.getStatements()) {
+            for (StatementNode statement : branch.getStatements()) {
                 visit(statement);
             }
+        }
 
-        } else if (node instanceof ElseIfNode) {
-            ElseIfNode elseIfNode = (ElseIfNode) node;
-
-            if (evaluateExpression(elseIfNode.getCondition()).getType() != Type.BOOL) {
-                error("Invalid type in condition. Expected BOOL but got "
-                        + evaluateExpression(elseIfNode.getCondition()),
-                        elseIfNode.getCondition().getPosition());
-            }
-
-            for (StatementNode statement : elseIfNode.getStatements()) {
+        if (node.getElseBranch() != null) {
+            for (StatementNode statement : node.getElseBranch().getStatements()) {
                 visit(statement);
             }
         }
     }
 
-    private EvaluationResult evaluateExpression(ExpressionNode condition) {
+    // Check an expression of a condition or a DISPLAY, where both operands of
+    // an operator have to be of the same type, and record the type of every node
+    private Type checkExpression(ExpressionNode condition) {
+        Type type = null;
 
         if (condition instanceof BinaryNode) {
             BinaryNode binaryNode = (BinaryNode) condition;
 
-            EvaluationResult leftResult = evaluateExpression(binaryNode.getLeft());
-            EvaluationResult rightResult = evaluateExpression(binaryNode.getRight());
+            Type leftType = checkExpression(binaryNode.getLeft());
+            Type rightType = checkExpression(binaryNode.getRight());
 
             Type operatorType = binaryNode.getOperator().getType();
 
-            if (leftResult.getType() != rightResult.getType()) {
-                error("Invalid types in condition. Left is " + leftResult.getType() + " and right is "
-                        + rightResult.getType(),
+            if (leftType != rightType) {
+                error("Invalid types in condition. Left is " + leftType + " and right is " + rightType,
                         condition.getPosition());
             }
 
-            String result = null;
-
             if (operatorType == Type.AND || operatorType == Type.OR) {
-                if (leftResult.getType() != Type.BOOL && rightResult.getType() != Type.BOOL) {
-                    error("Invalid operation. Both operands must be BOOL", null);
-                    return null;
+                if (leftType != Type.BOOL) {
+                    error("Invalid operation. Both operands must be BOOL", condition.getPosition());
                 }
 
-                boolean boolResult;
-                if (operatorType == Type.AND) {
-                    boolResult = Boolean.parseBoolean(leftResult.getValue())
-                            && Boolean.parseBoolean(rightResult.getValue());
-                } else { // operatorType == Type.OR
-                    boolResult = Boolean.parseBoolean(leftResult.getValue())
-                            || Boolean.parseBoolean(rightResult.getValue());
-                }
-
-                result = boolResult ? "TRUE" : "FALSE";
-
-                return new EvaluationResult(Type.BOOL, result);
+                type = Type.BOOL;
 
             } else if (operatorType == Type.EQUAL || operatorType == Type.NOT_EQUAL) {
-
-                boolean boolResult;
-                if (operatorType == Type.EQUAL) {
-
-                    if (leftResult.getValue() != null && rightResult.getValue() != null) {
-                        boolResult = leftResult.getValue().equals(rightResult.getValue());
-                    } else {
-                        boolResult = false;
-                    }
-                } else { // operatorType == Type.NOT_EQUAL
-                    if (leftResult.getValue() != null && rightResult.getValue() != null) {
-                        boolResult = leftResult.getValue().equals(rightResult.getValue());
-                    } else {
-                        boolResult = false;
-                    }
-                }
-
-                result = boolResult ? "TRUE" : "FALSE";
-
-                return new EvaluationResult(Type.BOOL, result);
+                type = Type.BOOL;
 
             } else if (operatorType == Type.GREATER || operatorType == Type.LESS || operatorType == Type.GREATER_EQUAL
                     || operatorType == Type.LESS_EQUAL) {
 
-                if (leftResult.getType() != Type.INT && leftResult.getType() != Type.FLOAT) {
-                    error("Invalid operation. Left operand must be a number", null);
-                }
-
-                if (rightResult.getType() != Type.INT && rightResult.getType() != Type.FLOAT) {
-                    error("Invalid operation. Right operand must be a number", null);
-                }
-
-                double right = Double.parseDouble(rightResult.getValue());
-                double left = Double.parseDouble(leftResult.getValue());
-
-                boolean boolResult = false;
-                if (operatorType == Type.GREATER) {
-                    boolResult = left > right;
-                } else if (operatorType == Type.LESS) {
-                    boolResult = left < right;
-                } else if (operatorType == Type.GREATER_EQUAL) {
-                    boolResult = left >= right;
-                } else { // operatorType == Type.LESS_EQUAL
-                    boolResult = left <= right;
-                }
-
-                result = boolResult ? "TRUE" : "FALSE";
-
-                return new EvaluationResult(Type.BOOL, result);
+                checkNumeric(leftType, rightType, condition.getPosition());
+                type = Type.BOOL;
 
             } else if (operatorType == Type.ADD || operatorType == Type.SUBTRACT || operatorType == Type.MULTIPLY
                     || operatorType == Type.DIVIDE || operatorType == Type.MODULO) {
 
-                if (leftResult.getType() != Type.INT && leftResult.getType() != Type.FLOAT) {
-                    error("Invalid operation. Left operand must be a number", null);
-                }
-
-                if (rightResult.getType() != Type.INT && rightResult.getType() != Type.FLOAT) {
-                    error("Invalid operation. Right operand must be a number", null);
-                }
-
-                double left = Double.parseDouble(leftResult.getValue());
-                double right = Double.parseDouble(rightResult.getValue());
-
-                double operationResult;
-                if (operatorType == Type.ADD) {
-                    operationResult = left + right;
-                } else if (operatorType == Type.SUBTRACT) {
-                    operationResult = left - right;
-                } else if (operatorType == Type.MULTIPLY) {
-                    operationResult = left * right;
-                } else if (operatorType == Type.DIVIDE) {
-                    operationResult = left / right;
-                } else { // operatorType == Type.MODULO
-                    operationResult = left % right;
-                }
-
-                result = String.valueOf(operationResult);
+                checkNumeric(leftType, rightType, condition.getPosition());
+                type = leftType;
 
-                if (leftResult.getType() == Type.INT && rightResult.getType() == Type.INT) {
-                    return new EvaluationResult(Type.INT, result);
-                } else {
-                    return new EvaluationResult(Type.FLOAT, result);
-                }
+            } else {
+                error("Invalid operator " + binaryNode.getOperator().getLexeme(), condition.getPosition());
             }
 
         } else if (condition instanceof VariableNode) {
             VariableNode variableNode = (VariableNode) condition;
 
-            Symbol symbol = symbolTable.lookup(variableNode.getName());
-
-            visitVariableNode(variableNode, symbol.getType(), true);
+            visitVariableNode(variableNode, null, true);
 
-            return new EvaluationResult(symbol.getType(), symbol.getValue());
+            type = symbolTable.get(variableNode.getSlot()).getType();
 
         } else if (condition instanceof LiteralNode) {
 
@@ -347,72 +396,57 @@ public class SemanticAnalyzer {
             checkValidDataType(literalNode.getDataType(), literalNode.getValue().getLexeme(),
                     literalNode.getPosition());
 
-            return new EvaluationResult(literalNode.getDataType(), literalNode.getValue().getLexeme());
+            type = literalNode.getDataType();
 
         } else if (condition instanceof UnaryNode) {
             UnaryNode unaryNode = (UnaryNode) condition;
-            EvaluationResult operandResult = evaluateExpression(unaryNode.getOperand());
+            Type operandType = checkExpression(unaryNode.getOperand());
 
             if (unaryNode.getOperator().getType() == Type.NOT) {
-                if (operandResult.getType() == Type.BOOL) {
-
-                    Boolean resultValue = Boolean.parseBoolean(operandResult.getValue());
-
-                    String result = resultValue ? "FALSE" : "TRUE";
-
-                    return new EvaluationResult(Type.BOOL, result);
-                } else {
-                    error("Invalid operand type for 'NOT': expected 'BOOL', but got '" + operandResult.getType()
-                            + "'", condition.getPosition());
+                if (operandType != Type.BOOL) {
+                    error("Invalid operand type for 'NOT': expected 'BOOL', but got '" + operandType + "'",
+                            condition.getPosition());
                 }
             } else if (unaryNode.getOperator().getType() == Type.NEGATIVE) {
-                if (operandResult.getType() == Type.INT) {
-
-                    int resultValue = Integer.parseInt(operandResult.getValue()) * -1;
-
-                    return new EvaluationResult(Type.INT, String.valueOf(resultValue));
-
-                } else if (operandResult.getType() == Type.FLOAT) {
-
-                    double resultValue = Double.parseDouble(operandResult.getValue()) * -1;
-
-                    return new EvaluationResult(Type.FLOAT, String.valueOf(resultValue));
-                } else {
-                    error("Invalid operand type for NEGATIVE '-'. Expected INT or FLOAT but got "
-                            + operandResult.getType(),
+                if (operandType != Type.INT && operandType != Type.FLOAT) {
+                    error("Invalid operand type for NEGATIVE '-'. Expected INT or FLOAT but got " + operandType,
                             condition.getPosition());
                 }
             } else if (unaryNode.getOperator().getType() == Type.POSITIVE) {
-                if (operandResult.getType() == Type.INT) {
-
-                    int resultValue = Integer.parseInt(operandResult.getValue());
-
-                    return new EvaluationResult(Type.INT, String.valueOf(resultValue));
-
-                } else if (operandResult.getType() == Type.FLOAT) {
-
-                    double resultValue = Double.parseDouble(operandResult.getValue());
-
-                    return new EvaluationResult(Type.FLOAT, String.valueOf(resultValue));
-                } else {
-                    error("Invalid operand type for POSITIVE '+'. Expected INT or FLOAT but got "
-                            + operandResult.getType(),
+                if (operandType != Type.INT && operandType != Type.FLOAT) {
+                    error("Invalid operand type for POSITIVE '+'. Expected INT or FLOAT but got " + operandType,
                             condition.getPosition());
                 }
             } else {
                 error("Invalid unary operator", condition.getPosition());
             }
+
+            type = operandType;
+
         } else {
             error("Invalid condition", condition.getPosition());
         }
 
-        return null;
+        condition.setType(type);
+        return type;
+    }
+
+    private void checkNumeric(Type leftType, Type rightType, Position position) {
+        if (leftType != Type.INT && leftType != Type.FLOAT) {
+            error("Invalid operation. Left operand must be a number", position);
+        }
+
+        if (rightType != Type.INT && rightType != Type.FLOAT) {
+            error("Invalid operation. Right operand must be a number", position);
+        }
     }
 
     // Visit a while node
     private void visitWhileNode(WhileNode node) {
-        if (evaluateExpression(node.getCondition()).getType() != Type.BOOL) {
-            error("Invalid type in condition. Expected BOOL but got " + evaluateExpression(node.getCondition()),
+        Type conditionType = checkExpression(node.getCondition());
+
+        if (conditionType != Type.BOOL) {
+            error("Invalid type in condition. Expected BOOL but got " + conditionType,
                     node.getCondition().getPosition());
         }
 
@@ -428,8 +462,10 @@ public class SemanticAnalyzer {
             visitAssignmentNode(node.getInitialization());
         }
 
-        if (evaluateExpression(node.getCondition()).getType() != Type.BOOL) {
-            error("Invalid type in condition. Expected BOOL but got " + evaluateExpression(node.getCondition()),
+        Type conditionType = checkExpression(node.getCondition());
+
+        if (conditionType != Type.BOOL) {
+            error("Invalid type in condition. Expected BOOL but got " + conditionType,
                     node.getCondition().getPosition());
         }
 
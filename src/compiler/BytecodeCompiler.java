@@ -0,0 +1,870 @@
+package src.compiler;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+
+import src.nodes.*;
+import src.runtime.DisplayOutput;
+import src.runtime.ProgramRuntime;
+import src.utils.Position;
+import src.utils.Symbol;
+import src.utils.SymbolTable;
+import src.utils.Token;
+import src.utils.Type;
+
+// Translates the analyzed program into the bytecode of one static method and
+// loads it as a hidden class, so the JIT compiles the CODE program like any
+// other Java method. INT and FLOAT variables live in long and double locals,
+// BOOL and CHAR in int locals, and loops and IFs become real branches.
+// DISPLAY, SCAN and runtime errors call into ProgramRuntime.
+// A variable declared without a value starts at zero, one that DISPLAY can
+// show without a value also keeps a flag in an int local so it prints null
+public class BytecodeCompiler {
+    private static final String CLASS_NAME = "src/compiler/CodeProgram";
+    private static final String RUNTIME = "src/runtime/ProgramRuntime";
+
+    private static final int ICONST_0 = 3;
+    private static final int ICONST_1 = 4;
+    private static final int LCONST_0 = 9;
+    private static final int LCONST_1 = 10;
+    private static final int DCONST_0 = 14;
+    private static final int DCONST_1 = 15;
+    private static final int BIPUSH = 16;
+    private static final int SIPUSH = 17;
+    private static final int LDC_W = 19;
+    private static final int LDC2_W = 20;
+    private static final int ILOAD = 21;
+    private static final int LLOAD = 22;
+    private static final int DLOAD = 24;
+    private static final int ALOAD = 25;
+    private static final int ISTORE = 54;
+    private static final int LSTORE = 55;
+    private static final int DSTORE = 57;
+    private static final int POP = 87;
+    private static final int DUP = 89;
+    private static final int DUP2 = 92;
+    private static final int LADD = 97;
+    private static final int DADD = 99;
+    private static final int LSUB = 101;
+    private static final int DSUB = 103;
+    private static final int LMUL = 105;
+    private static final int DMUL = 107;
+    private static final int LDIV = 109;
+    private static final int DDIV = 111;
+    private static final int LREM = 113;
+    private static final int DREM = 115;
+    private static final int LNEG = 117;
+    private static final int DNEG = 119;
+    private static final int IXOR = 130;
+    private static final int I2L = 133;
+    private static final int L2I = 136;
+    private static final int L2D = 138;
+    private static final int D2L = 143;
+    private static final int I2C = 146;
+    private static final int LCMP = 148;
+    private static final int DCMPL = 151;
+    private static final int DCMPG = 152;
+    private static final int IFEQ = 153;
+    private static final int IFNE = 154;
+    private static final int IFLT = 155;
+    private static final int IFGE = 156;
+    private static final int IFGT = 157;
+    private static final int IFLE = 158;
+    private static final int GOTO = 167;
+    private static final int RETURN = 177;
+    private static final int INVOKEVIRTUAL = 182;
+    private static final int WIDE = 196;
+
+    // A position in the code. Jumps emitted before the label is placed are patched later
+    private static class Label {
+        int position = -1;
+        List<Integer> jumps = new ArrayList<>();
+    }
+
+    // Where BREAK and CONTINUE jump to inside the loop being compiled
+    private static class Loop {
+        final Label breakLabel;
+        final Label continueLabel;
+
+        Loop(Label breakLabel, Label continueLabel) {
+            this.breakLabel = breakLabel;
+            this.continueLabel = continueLabel;
+        }
+    }
+
+    private final Symbol[] frame;
+    private final DisplayOutput output;
+    private final ClassFile classFile = new ClassFile();
+    private final int[] locals;
+
+    // Numbers the int locals of the flags of the variables that can be shown without a value
+    private UnsetVariables unset;
+    private final List<Loop> loops = new ArrayList<>();
+
+    private byte[] code = new byte[256];
+    private int codeSize;
+    private int stack;
+    private int maxStack;
+    private int maxLocals = 1;
+
+    // Set when a jump cannot reach its target, its offset is only 16 bits
+    private boolean tooFar;
+
+    public BytecodeCompiler(SymbolTable symbolTable, DisplayOutput output) {
+        this.frame = symbolTable.getFrame();
+        this.output = output;
+        this.locals = new int[frame.length];
+
+        // Local 0 holds the runtime, long and double variables take two locals each
+        for (int i = 0; i < frame.length; i++) {
+            locals[i] = maxLocals;
+            maxLocals += isWide(frame[i].getType()) ? 2 : 1;
+        }
+    }
+
+    // Returns null when the program does not fit in one JVM method, which
+    // holds less than 64KB of code
+    public Runnable compile(ProgramNode program) {
+        unset = new UnsetVariables(frame, program, maxLocals);
+        maxLocals += unset.count();
+
+        for (Symbol symbol : frame) {
+            initialize(symbol);
+        }
+
+        compileBlock(program.getStatements());
+
+        loadRuntime();
+        invoke("finish", "()V", 0);
+        op(RETURN, 0);
+
+        if (tooFar || codeSize > 65535) {
+            return null;
+        }
+
+        byte[] method = new byte[codeSize];
+        System.arraycopy(code, 0, method, 0, codeSize);
+
+        byte[] bytes = classFile.toBytes(CLASS_NAME, "run", "(L" + RUNTIME + ";)V", method, maxStack, maxLocals);
+        ProgramRuntime runtime = new ProgramRuntime(frame, output);
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            MethodHandle run = lookup.findStatic(lookup.lookupClass(), "run",
+                    MethodType.methodType(void.class, ProgramRuntime.class));
+
+            return () -> {
+                try {
+                    run.invokeExact(runtime);
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new IllegalStateException(e);
+                }
+            };
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not load the compiled program", e);
+        }
+    }
+
+    // Declared values are stored in the locals before the first statement runs
+    private void initialize(Symbol symbol) {
+        int local = locals[symbol.getSlot()];
+        int flag = unset.flag(symbol.getSlot());
+        boolean hasValue = symbol.hasValue();
+
+        if (flag >= 0) {
+            pushInt(hasValue ? 1 : 0);
+            varOp(ISTORE, flag, -1);
+        }
+
+        switch (symbol.getType()) {
+            case INT:
+                pushLong(hasValue ? symbol.getIntValue() : 0);
+                varOp(LSTORE, local, -2);
+                break;
+            case FLOAT:
+                pushDouble(hasValue ? symbol.getFloatValue() : 0);
+                varOp(DSTORE, local, -2);
+                break;
+            case BOOL:
+                pushInt(hasValue && symbol.getBoolValue() ? 1 : 0);
+                varOp(ISTORE, local, -1);
+                break;
+            default:
+                pushInt(hasValue ? symbol.getCharValue() : 0);
+                varOp(ISTORE, local, -1);
+                break;
+        }
+    }
+
+    private void compileBlock(List<StatementNode> statements) {
+        for (StatementNode statement : statements) {
+            if (statement instanceof IfStatementNode) {
+                compileIf((IfStatementNode) statement);
+            } else if (statement instanceof BreakNode) {
+                if (!loops.isEmpty()) {
+                    jump(GOTO, loops.get(loops.size() - 1).breakLabel);
+                }
+            } else if (statement instanceof ContinueNode) {
+                if (!loops.isEmpty()) {
+                    jump(GOTO, loops.get(loops.size() - 1).continueLabel);
+                }
+            } else if (statement instanceof AssignmentNode) {
+                compileAssignment((AssignmentNode) statement);
+            } else if (statement instanceof DisplayNode) {
+                compileDisplay((DisplayNode) statement);
+            } else if (statement instanceof ScanNode) {
+                compileScan((ScanNode) statement);
+            } else if (statement instanceof WhileNode) {
+                compileWhile((WhileNode) statement);
+            } else if (statement instanceof ForNode) {
+                compileFor((ForNode) statement);
+            }
+        }
+    }
+
+    private void compileAssignment(AssignmentNode assignment) {
+        Symbol symbol = frame[assignment.getVariable().getSlot()];
+        int local = locals[symbol.getSlot()];
+        ExpressionNode expression = assignment.getExpression();
+        Type type = expression.getType();
+
+        if (symbol.getType() == Type.INT && type == Type.INT) {
+            emitLong(expression);
+            varOp(LSTORE, local, -2);
+        } else if (symbol.getType() == Type.INT) {
+            emitDouble(expression);
+            op(D2L, 0);
+            varOp(LSTORE, local, -2);
+        } else if (symbol.getType() == Type.FLOAT) {
+            emitDouble(expression);
+            varOp(DSTORE, local, -2);
+        } else if (symbol.getType() == Type.BOOL) {
+            emitBool(expression);
+            varOp(ISTORE, local, -1);
+        } else {
+            emitLong(expression);
+            op(L2I, -1);
+            op(I2C, 0);
+            varOp(ISTORE, local, -1);
+        }
+
+        markSet(unset.flag(symbol.getSlot()), unset.copiedFlag(expression));
+    }
+
+    private void markSet(int flag, int copied) {
+        if (flag < 0) {
+            return;
+        }
+
+        if (copied >= 0) {
+            varOp(ILOAD, copied, 1);
+        } else {
+            pushInt(1);
+        }
+
+        varOp(ISTORE, flag, -1);
+    }
+
+    private void compileDisplay(DisplayNode display) {
+        List<ExpressionNode> expressions = display.getExpressions();
+        StringBuilder constant = new StringBuilder();
+        int currentIndexExpression = 0;
+
+        loadRuntime();
+        invoke("beginDisplay", "()V", -1);
+
+        for (Token token : display.getArguments()) {
+
+            if (token.getType() == Type.STRING_LITERAL || token.getType() == Type.SPECIAL_CHARACTER
+                    || token.getType() == Type.LITERAL) {
+                constant.append(token.getLexeme());
+                continue;
+            }
+
+            if (token.getType() == Type.NEXT_LINE) {
+                constant.append(System.lineSeparator());
+                continue;
+            }
+
+            if (token.getType() != Type.IDENTIFIER && token.getType() != Type.EXPRESSION) {
+                continue;
+            }
+
+            // Neighbouring constant text is passed to the runtime as one string
+            appendText(constant);
+
+            if (token.getType() == Type.IDENTIFIER) {
+                appendVariable(token);
+            } else {
+                appendValue(expressions.get(currentIndexExpression));
+                currentIndexExpression++;
+            }
+        }
+
+        appendText(constant);
+
+        loadRuntime();
+        invoke("endDisplay", "()V", -1);
+    }
+
+    // A variable without a value is shown as null
+    private void appendVariable(Token token) {
+        VariableNode variable = new VariableNode(token, frame[token.getSlot()].getType());
+        int flag = unset.flag(token.getSlot());
+
+        if (flag < 0) {
+            appendValue(variable);
+            return;
+        }
+
+        Label unset = new Label();
+        Label end = new Label();
+
+        varOp(ILOAD, flag, 1);
+        jump(IFEQ, unset);
+        appendValue(variable);
+        jump(GOTO, end);
+
+        place(unset);
+        loadRuntime();
+        pushString("null");
+        invoke("text", "(Ljava/lang/String;)V", -2);
+        place(end);
+    }
+
+    private void appendText(StringBuilder constant) {
+        if (constant.length() > 0) {
+            loadRuntime();
+            pushString(constant.toString());
+            invoke("text", "(Ljava/lang/String;)V", -2);
+            constant.setLength(0);
+        }
+    }
+
+    private void appendValue(ExpressionNode expression) {
+        loadRuntime();
+
+        switch (expression.getType()) {
+            case INT:
+                emitLong(expression);
+                invoke("appendInt", "(J)V", -3);
+                break;
+            case FLOAT:
+                emitDouble(expression);
+                invoke("appendFloat", "(D)V", -3);
+                break;
+            case BOOL:
+                emitBool(expression);
+                invoke("appendBool", "(Z)V", -2);
+                break;
+            default:
+                emitLong(expression);
+                op(L2I, -1);
+                op(I2C, 0);
+                invoke("appendChar", "(C)V", -2);
+                break;
+        }
+    }
+
+    private void compileScan(ScanNode scan) {
+        Position position = scan.getPosition();
+
+        for (Token identifier : scan.getIdentifiers()) {
+            Symbol symbol = frame[identifier.getSlot()];
+            int local = locals[symbol.getSlot()];
+
+            loadRuntime();
+            pushInt(symbol.getSlot());
+            pushInt(position.getLine());
+            pushInt(position.getColumn());
+
+            switch (symbol.getType()) {
+                case INT:
+                    invoke("scanInt", "(III)J", -2);
+                    varOp(LSTORE, local, -2);
+                    break;
+                case FLOAT:
+                    invoke("scanFloat", "(III)D", -2);
+                    varOp(DSTORE, local, -2);
+                    break;
+                case BOOL:
+                    invoke("scanBool", "(III)Z", -3);
+                    varOp(ISTORE, local, -1);
+                    break;
+                default:
+                    invoke("scanChar", "(III)C", -3);
+                    varOp(ISTORE, local, -1);
+                    break;
+            }
+
+            markSet(unset.flag(symbol.getSlot()), -1);
+        }
+    }
+
+    private void compileIf(IfStatementNode ifStatement) {
+        Label end = new Label();
+
+        for (IfNode branch : ifStatement.getBranches()) {
+            Label next = new Label();
+
+            jumpIfFalse(branch.getCondition(), next);
+            compileBlock(branch.getStatements());
+            jump(GOTO, end);
+            place(next);
+        }
+
+        if (ifStatement.getElseBranch() != null) {
+            compileBlock(ifStatement.getElseBranch().getStatements());
+        }
+
+        place(end);
+    }
+
+    private void compileWhile(WhileNode whileStatement) {
+        Label condition = new Label();
+        Label end = new Label();
+
+        place(condition);
+        jumpIfFalse(whileStatement.getCondition(), end);
+
+        loops.add(new Loop(end, condition));
+        compileBlock(whileStatement.getStatements());
+        loops.remove(loops.size() - 1);
+
+        jump(GOTO, condition);
+        place(end);
+    }
+
+    private void compileFor(ForNode forStatement) {
+        Label condition = new Label();
+        Label update = new Label();
+        Label end = new Label();
+
+        if (forStatement.getInitialization() != null) {
+            compileAssignment(forStatement.getInitialization());
+        }
+
+        place(condition);
+        jumpIfFalse(forStatement.getCondition(), end);
+
+        loops.add(new Loop(end, update));
+        compileBlock(forStatement.getStatements());
+        loops.remove(loops.size() - 1);
+
+        place(update);
+        compileAssignment(forStatement.getUpdate());
+        jump(GOTO, condition);
+        place(end);
+    }
+
+    // Comparisons of numbers jump straight on the compare result instead of making
+    // a BOOL first, and AND and OR skip their right operand when the left one decides
+    private void jumpIfFalse(ExpressionNode condition, Label target) {
+        Type operator = logicalOperator(condition);
+
+        if (operator == Type.AND) {
+            jumpIfFalse(((BinaryNode) condition).getLeft(), target);
+            jumpIfFalse(((BinaryNode) condition).getRight(), target);
+            return;
+        }
+
+        if (operator == Type.OR) {
+            Label isTrue = new Label();
+            jumpIfTrue(((BinaryNode) condition).getLeft(), isTrue);
+            jumpIfFalse(((BinaryNode) condition).getRight(), target);
+            place(isTrue);
+            return;
+        }
+
+        int jump = compare(condition);
+
+        if (jump < 0) {
+            emitBool(condition);
+            jump(IFEQ, target);
+        } else {
+            jump(negate(jump), target);
+        }
+    }
+
+    private void jumpIfTrue(ExpressionNode condition, Label target) {
+        Type operator = logicalOperator(condition);
+
+        if (operator == Type.AND) {
+            Label isFalse = new Label();
+            jumpIfFalse(((BinaryNode) condition).getLeft(), isFalse);
+            jumpIfTrue(((BinaryNode) condition).getRight(), target);
+            place(isFalse);
+            return;
+        }
+
+        if (operator == Type.OR) {
+            jumpIfTrue(((BinaryNode) condition).getLeft(), target);
+            jumpIfTrue(((BinaryNode) condition).getRight(), target);
+            return;
+        }
+
+        int jump = compare(condition);
+
+        if (jump < 0) {
+            emitBool(condition);
+            jump(IFNE, target);
+        } else {
+            jump(jump, target);
+        }
+    }
+
+    private static Type logicalOperator(ExpressionNode node) {
+        if (node instanceof BinaryNode) {
+            Type operator = ((BinaryNode) node).getOperator().getType();
+
+            if (operator == Type.AND || operator == Type.OR) {
+                return operator;
+            }
+        }
+
+        return null;
+    }
+
+    // INT and CHAR expressions, left on the stack as a long
+    private void emitLong(ExpressionNode node) {
+
+        if (node instanceof LiteralNode) {
+            LiteralNode literal = (LiteralNode) node;
+            pushLong(node.getType() == Type.CHAR ? literal.getCharValue() : literal.getIntValue());
+
+        } else if (node instanceof VariableNode) {
+            int slot = ((VariableNode) node).getSlot();
+
+            if (frame[slot].getType() == Type.CHAR) {
+                varOp(ILOAD, locals[slot], 1);
+                op(I2L, 1);
+            } else {
+                varOp(LLOAD, locals[slot], 2);
+            }
+
+        } else if (node instanceof UnaryNode) {
+            UnaryNode unary = (UnaryNode) node;
+            emitLong(unary.getOperand());
+
+            if (unary.getOperator().getType() == Type.NEGATIVE) {
+                op(LNEG, 0);
+            }
+
+        } else {
+            BinaryNode binary = (BinaryNode) node;
+            emitLong(binary.getLeft());
+            emitLong(binary.getRight());
+            arithmetic(binary, LADD, LSUB, LMUL, LDIV, LREM, false);
+        }
+    }
+
+    // FLOAT expressions, left on the stack as a double. An INT expression is widened after it is evaluated
+    private void emitDouble(ExpressionNode node) {
+
+        if (node.getType() == Type.INT) {
+            emitLong(node);
+            op(L2D, 0);
+
+        } else if (node instanceof LiteralNode) {
+            pushDouble(((LiteralNode) node).getFloatValue());
+
+        } else if (node instanceof VariableNode) {
+            varOp(DLOAD, locals[((VariableNode) node).getSlot()], 2);
+
+        } else if (node instanceof UnaryNode) {
+            UnaryNode unary = (UnaryNode) node;
+            emitDouble(unary.getOperand());
+
+            if (unary.getOperator().getType() == Type.NEGATIVE) {
+                op(DNEG, 0);
+            }
+
+        } else {
+            BinaryNode binary = (BinaryNode) node;
+            emitDouble(binary.getLeft());
+            emitDouble(binary.getRight());
+            arithmetic(binary, DADD, DSUB, DMUL, DDIV, DREM, true);
+        }
+    }
+
+    // Both operands are on the stack. Division checks the divisor first so the
+    // error has the position of the operator
+    private void arithmetic(BinaryNode binary, int add, int subtract, int multiply, int divide, int modulo,
+            boolean floating) {
+        Token operator = binary.getOperator();
+
+        switch (operator.getType()) {
+            case ADD:
+                op(add, -2);
+                break;
+            case SUBTRACT:
+                op(subtract, -2);
+                break;
+            case MULTIPLY:
+                op(multiply, -2);
+                break;
+            case DIVIDE:
+            case MODULO:
+                Label nonZero = new Label();
+
+                op(DUP2, 2);
+                if (floating) {
+                    op(DCONST_0, 2);
+                    op(DCMPL, -3);
+                } else {
+                    op(LCONST_0, 2);
+                    op(LCMP, -3);
+                }
+                jump(IFNE, nonZero);
+
+                loadRuntime();
+                pushString("Cannot divide by zero");
+                pushInt(operator.getPosition().getLine());
+                pushInt(operator.getPosition().getColumn());
+                invoke("error", "(Ljava/lang/String;II)V", -4);
+
+                place(nonZero);
+                op(operator.getType() == Type.DIVIDE ? divide : modulo, -2);
+                break;
+            default:
+                error("Unknown operator: " + operator.getLexeme(), operator.getPosition());
+        }
+    }
+
+    // BOOL expressions, left on the stack as an int
+    private void emitBool(ExpressionNode node) {
+        int jump = compare(node);
+
+        if (jump >= 0) {
+            Label isTrue = new Label();
+            Label end = new Label();
+
+            jump(jump, isTrue);
+            op(ICONST_0, 1);
+            jump(GOTO, end);
+            stack--;
+            place(isTrue);
+            op(ICONST_1, 1);
+            place(end);
+
+        } else if (node instanceof LiteralNode) {
+            pushInt(((LiteralNode) node).getBoolValue() ? 1 : 0);
+
+        } else if (node instanceof VariableNode) {
+            varOp(ILOAD, locals[((VariableNode) node).getSlot()], 1);
+
+        } else if (node instanceof UnaryNode) {
+            UnaryNode unary = (UnaryNode) node;
+            emitBool(unary.getOperand());
+
+            if (unary.getOperator().getType() == Type.NOT) {
+                op(ICONST_1, 1);
+                op(IXOR, -1);
+            }
+
+        } else if (logicalOperator(node) != null) {
+            // The left value stays as the result when it decides it
+            BinaryNode binary = (BinaryNode) node;
+            Label end = new Label();
+
+            emitBool(binary.getLeft());
+            op(DUP, 1);
+            jump(logicalOperator(node) == Type.AND ? IFEQ : IFNE, end);
+            op(POP, -1);
+            emitBool(binary.getRight());
+            place(end);
+
+        } else {
+            BinaryNode binary = (BinaryNode) node;
+            emitBool(binary.getLeft());
+            emitBool(binary.getRight());
+
+            switch (binary.getOperator().getType()) {
+                case EQUAL:
+                    op(IXOR, -1);
+                    op(ICONST_1, 1);
+                    op(IXOR, -1);
+                    break;
+                default:
+                    op(IXOR, -1);
+                    break;
+            }
+        }
+    }
+
+    // Emits the compare of a comparison between numbers and returns the jump
+    // taken when it is true, or -1 when the node is not such a comparison
+    private int compare(ExpressionNode node) {
+        if (!(node instanceof BinaryNode)) {
+            return -1;
+        }
+
+        BinaryNode binary = (BinaryNode) node;
+        Type operator = binary.getOperator().getType();
+        Type leftType = binary.getLeft().getType();
+        Type rightType = binary.getRight().getType();
+
+        if (leftType == Type.BOOL || operator == Type.AND || operator == Type.OR) {
+            return -1;
+        }
+
+        boolean floating = leftType == Type.FLOAT || rightType == Type.FLOAT;
+
+        if (floating) {
+            emitDouble(binary.getLeft());
+            emitDouble(binary.getRight());
+
+            // NaN has to make every comparison except <> false
+            op(operator == Type.LESS || operator == Type.LESS_EQUAL ? DCMPG : DCMPL, -3);
+        } else {
+            emitLong(binary.getLeft());
+            emitLong(binary.getRight());
+            op(LCMP, -3);
+        }
+
+        switch (operator) {
+            case LESS:
+                return IFLT;
+            case GREATER:
+                return IFGT;
+            case LESS_EQUAL:
+                return IFLE;
+            case GREATER_EQUAL:
+                return IFGE;
+            case EQUAL:
+                return IFEQ;
+            default:
+                return IFNE;
+        }
+    }
+
+    private static int negate(int jump) {
+        return ((jump - IFEQ) ^ 1) + IFEQ;
+    }
+
+    private static boolean isWide(Type type) {
+        return type == Type.INT || type == Type.FLOAT;
+    }
+
+    private void loadRuntime() {
+        varOp(ALOAD, 0, 1);
+    }
+
+    private void invoke(String name, String descriptor, int stackChange) {
+        op(INVOKEVIRTUAL, stackChange);
+        u2(classFile.methodRef(RUNTIME, name, descriptor));
+    }
+
+    private void pushInt(int value) {
+        if (value >= -1 && value <= 5) {
+            op(ICONST_0 + value, 1);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            op(BIPUSH, 1);
+            u1(value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            op(SIPUSH, 1);
+            u2(value);
+        } else {
+            op(LDC_W, 1);
+            u2(classFile.intConstant(value));
+        }
+    }
+
+    private void pushLong(long value) {
+        if (value == 0 || value == 1) {
+            op(value == 0 ? LCONST_0 : LCONST_1, 2);
+        } else {
+            op(LDC2_W, 2);
+            u2(classFile.longConstant(value));
+        }
+    }
+
+    private void pushDouble(double value) {
+        if (Double.doubleToRawLongBits(value) == 0L || value == 1.0) {
+            op(value == 1.0 ? DCONST_1 : DCONST_0, 2);
+        } else {
+            op(LDC2_W, 2);
+            u2(classFile.doubleConstant(value));
+        }
+    }
+
+    private void pushString(String value) {
+        op(LDC_W, 1);
+        u2(classFile.string(value));
+    }
+
+    private void varOp(int opcode, int local, int stackChange) {
+        if (local > 255) {
+            op(WIDE, 0);
+            op(opcode, stackChange);
+            u2(local);
+        } else {
+            op(opcode, stackChange);
+            u1(local);
+        }
+    }
+
+    private void jump(int opcode, Label label) {
+        int at = codeSize;
+        op(opcode, opcode == GOTO ? 0 : -1);
+
+        if (label.position >= 0) {
+            if (label.position - at < Short.MIN_VALUE) {
+                tooFar = true;
+            }
+            u2(label.position - at);
+        } else {
+            label.jumps.add(at);
+            u2(0);
+        }
+    }
+
+    private void place(Label label) {
+        label.position = codeSize;
+
+        for (int at : label.jumps) {
+            int offset = codeSize - at;
+
+            if (offset > Short.MAX_VALUE) {
+                tooFar = true;
+            }
+
+            code[at + 1] = (byte) (offset >> 8);
+            code[at + 2] = (byte) offset;
+        }
+    }
+
+    // Every instruction records how it changes the operand stack so max_stack can be written
+    private void op(int opcode, int stackChange) {
+        u1(opcode);
+        stack += stackChange;
+        maxStack = Math.max(maxStack, stack);
+    }
+
+    private void u1(int value) {
+        if (codeSize == code.length) {
+            byte[] grown = new byte[code.length * 2];
+            System.arraycopy(code, 0, grown, 0, codeSize);
+            code = grown;
+        }
+
+        code[codeSize++] = (byte) value;
+    }
+
+    private void u2(int value) {
+        u1(value >> 8);
+        u1(value);
+    }
+
+    private void error(String message, Position position) {
+        System.err.println("Compile Error: " + message + " at Line " +
+                position.getLine() + " and Column " + position.getColumn() + "\n");
+
+        System.exit(1);
+    }
+}
@@ -0,0 +1,173 @@
+package src.compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+// Writes a class file with a single public static method. Version 49 is used
+// so the method does not need a StackMapTable and the old verifier infers the
+// types at every branch target instead
+public class ClassFile {
+    private static final int VERSION = 49;
+
+    private static final int UTF8 = 1;
+    private static final int INTEGER = 3;
+    private static final int LONG = 5;
+    private static final int DOUBLE = 6;
+    private static final int CLASS = 7;
+    private static final int STRING = 8;
+    private static final int METHOD_REF = 10;
+    private static final int NAME_AND_TYPE = 12;
+
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final DataOutputStream poolOut = new DataOutputStream(pool);
+    private final Map<String, Integer> entries = new HashMap<>();
+    private int poolCount = 1;
+
+    public int utf8(String value) {
+        Integer index = entries.get("utf8:" + value);
+
+        if (index == null) {
+            index = add(1, out -> {
+                out.writeByte(UTF8);
+                out.writeUTF(value);
+            });
+            entries.put("utf8:" + value, index);
+        }
+
+        return index;
+    }
+
+    public int classRef(String internalName) {
+        int name = utf8(internalName);
+        return reference("class:" + internalName, CLASS, name, -1);
+    }
+
+    public int string(String value) {
+        int text = utf8(value);
+        return reference("string:" + value, STRING, text, -1);
+    }
+
+    public int intConstant(int value) {
+        return constant("int:" + value, INTEGER, value, 1);
+    }
+
+    public int longConstant(long value) {
+        return constant("long:" + value, LONG, value, 2);
+    }
+
+    public int doubleConstant(double value) {
+        return constant("double:" + Double.doubleToRawLongBits(value), DOUBLE, Double.doubleToRawLongBits(value), 2);
+    }
+
+    public int methodRef(String owner, String name, String descriptor) {
+        int ownerIndex = classRef(owner);
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        int nameAndType = reference("nat:" + name + descriptor, NAME_AND_TYPE, nameIndex, descriptorIndex);
+
+        return reference("method:" + owner + "." + name + descriptor, METHOD_REF, ownerIndex, nameAndType);
+    }
+
+    public byte[] toBytes(String className, String methodName, String descriptor, byte[] code, int maxStack,
+            int maxLocals) {
+        int thisClass = classRef(className);
+        int superClass = classRef("java/lang/Object");
+        int name = utf8(methodName);
+        int type = utf8(descriptor);
+        int codeAttribute = utf8("Code");
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+            out.writeShort(poolCount);
+            pool.writeTo(out);
+
+            out.writeShort(0x0031); // public final super
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0); // interfaces
+            out.writeShort(0); // fields
+
+            out.writeShort(1); // methods
+            out.writeShort(0x0009); // public static
+            out.writeShort(name);
+            out.writeShort(type);
+            out.writeShort(1);
+
+            out.writeShort(codeAttribute);
+            out.writeInt(12 + code.length);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(code.length);
+            out.write(code);
+            out.writeShort(0); // exception table
+            out.writeShort(0); // code attributes
+
+            out.writeShort(0); // class attributes
+            out.flush();
+
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private int reference(String key, int tag, int first, int second) {
+        Integer index = entries.get(key);
+
+        if (index == null) {
+            index = add(1, out -> {
+                out.writeByte(tag);
+                out.writeShort(first);
+                if (second >= 0) {
+                    out.writeShort(second);
+                }
+            });
+            entries.put(key, index);
+        }
+
+        return index;
+    }
+
+    private int constant(String key, int tag, long value, int size) {
+        Integer index = entries.get(key);
+
+        if (index == null) {
+            index = add(size, out -> {
+                out.writeByte(tag);
+                if (size == 2) {
+                    out.writeLong(value);
+                } else {
+                    out.writeInt((int) value);
+                }
+            });
+            entries.put(key, index);
+        }
+
+        return index;
+    }
+
+    private interface Entry {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    // LONG and DOUBLE constants take up two entries of the pool
+    private int add(int size, Entry entry) {
+        try {
+            entry.write(poolOut);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        int index = poolCount;
+        poolCount += size;
+        return index;
+    }
+}
@@ -0,0 +1,585 @@
+package src.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import src.nodes.*;
+import src.runtime.DisplayOutput;
+import src.runtime.ScanInput;
+import src.utils.Position;
+import src.utils.Symbol;
+import src.utils.SymbolTable;
+import src.utils.Token;
+import src.utils.Type;
+
+// Compiles the analyzed program once into a tree of closures, one per node.
+// Every closure already knows the types it works on and holds the symbols it
+// reads and writes, so running the program does no instanceof dispatch and
+// no lookups
+public class ClosureCompiler {
+
+    // What a statement tells the block it is in
+    public static final int NORMAL = 0;
+    public static final int BREAK = 1;
+    public static final int CONTINUE = 2;
+
+    public interface StatementCode {
+        int run();
+    }
+
+    public interface IntCode {
+        long run();
+    }
+
+    public interface FloatCode {
+        double run();
+    }
+
+    public interface BoolCode {
+        boolean run();
+    }
+
+    private interface TextCode {
+        void write(DisplayOutput output);
+    }
+
+    private final Symbol[] frame;
+    private final DisplayOutput output;
+    private final ScanInput scanInput;
+    private boolean displayError = true;
+
+    public ClosureCompiler(SymbolTable symbolTable, DisplayOutput output) {
+        this.frame = symbolTable.getFrame();
+        this.output = output;
+        this.scanInput = new ScanInput(output);
+    }
+
+    public Runnable compile(ProgramNode program) {
+        StatementCode body = compileBlock(program.getStatements(), false);
+
+        return () -> {
+            body.run();
+
+            if (displayError) {
+                output.write("No Error");
+                output.newLine();
+            }
+        };
+    }
+
+    // A BREAK or CONTINUE outside of a loop does nothing, the same as in the interpreter
+    private StatementCode compileBlock(List<StatementNode> statements, boolean inLoop) {
+        List<StatementCode> codes = new ArrayList<>();
+
+        for (StatementNode statement : statements) {
+            if (statement instanceof IfStatementNode) {
+                codes.add(compileIf((IfStatementNode) statement, inLoop));
+            } else if (statement instanceof BreakNode) {
+                if (inLoop) {
+                    codes.add(() -> BREAK);
+                }
+            } else if (statement instanceof ContinueNode) {
+                if (inLoop) {
+                    codes.add(() -> CONTINUE);
+                }
+            } else {
+                StatementCode code = compileStatement(statement);
+
+                if (code != null) {
+                    codes.add(code);
+                }
+            }
+        }
+
+        if (codes.isEmpty()) {
+            return () -> NORMAL;
+        }
+
+        if (codes.size() == 1) {
+            return codes.get(0);
+        }
+
+        StatementCode[] array = codes.toArray(new StatementCode[0]);
+
+        return () -> {
+            for (StatementCode code : array) {
+                int status = code.run();
+
+                if (status != NORMAL) {
+                    return status;
+                }
+            }
+            return NORMAL;
+        };
+    }
+
+    private StatementCode compileStatement(StatementNode statement) {
+
+        if (statement instanceof AssignmentNode) {
+            return compileAssignment((AssignmentNode) statement);
+        } else if (statement instanceof DisplayNode) {
+            return compileDisplay((DisplayNode) statement);
+        } else if (statement instanceof ScanNode) {
+            return compileScan((ScanNode) statement);
+        } else if (statement instanceof WhileNode) {
+            return compileWhile((WhileNode) statement);
+        } else if (statement instanceof ForNode) {
+            return compileFor((ForNode) statement);
+        }
+
+        return null;
+    }
+
+    private StatementCode compileAssignment(AssignmentNode assignment) {
+        Symbol symbol = frame[assignment.getVariable().getSlot()];
+        ExpressionNode expression = assignment.getExpression();
+
+        // A variable, or a plus sign over one, is copied as it is, the same as
+        // in the interpreter, so one without a value stays without
+        int source = UnsetVariables.copiedSlot(expression);
+
+        if (source >= 0) {
+            Symbol copied = frame[source];
+
+            return () -> {
+                symbol.copyValue(copied);
+                return NORMAL;
+            };
+        }
+
+        Type type = expression.getType();
+
+        if (symbol.getType() == Type.INT && type == Type.INT) {
+            IntCode value = compileInt(expression);
+            return () -> {
+                symbol.setIntValue(value.run());
+                return NORMAL;
+            };
+        } else if (symbol.getType() == Type.INT) {
+            FloatCode value = compileFloat(expression);
+            return () -> {
+                symbol.setIntValue((long) value.run());
+                return NORMAL;
+            };
+        } else if (symbol.getType() == Type.FLOAT) {
+            FloatCode value = compileFloat(expression);
+            return () -> {
+                symbol.setFloatValue(value.run());
+                return NORMAL;
+            };
+        } else if (symbol.getType() == Type.BOOL) {
+            BoolCode value = compileBool(expression);
+            return () -> {
+                symbol.setBoolValue(value.run());
+                return NORMAL;
+            };
+        }
+
+        IntCode value = compileInt(expression);
+        return () -> {
+            symbol.setCharValue((char) value.run());
+            return NORMAL;
+        };
+    }
+
+    private StatementCode compileDisplay(DisplayNode display) {
+        List<TextCode> parts = new ArrayList<>();
+        List<ExpressionNode> expressions = display.getExpressions();
+        String newLine = System.lineSeparator();
+        StringBuilder constant = new StringBuilder();
+        int currentIndexExpression = 0;
+
+        for (Token token : display.getArguments()) {
+            TextCode part = null;
+
+            if (token.getType() == Type.STRING_LITERAL || token.getType() == Type.SPECIAL_CHARACTER
+                    || token.getType() == Type.LITERAL) {
+                constant.append(token.getLexeme());
+            } else if (token.getType() == Type.NEXT_LINE) {
+                constant.append(newLine);
+            } else if (token.getType() == Type.IDENTIFIER) {
+                Symbol symbol = frame[token.getSlot()];
+                part = output -> output.write(symbol);
+            } else if (token.getType() == Type.EXPRESSION) {
+                part = compileText(expressions.get(currentIndexExpression));
+                currentIndexExpression++;
+            }
+
+            // Neighbouring constant text is joined into one append
+            if (part != null) {
+                if (constant.length() > 0) {
+                    String text = constant.toString();
+                    parts.add(output -> output.write(text));
+                    constant.setLength(0);
+                }
+                parts.add(part);
+            }
+        }
+
+        if (constant.length() > 0) {
+            String text = constant.toString();
+            parts.add(output -> output.write(text));
+        }
+
+        TextCode[] array = parts.toArray(new TextCode[0]);
+
+        return () -> {
+            displayError = false;
+
+            for (TextCode part : array) {
+                part.write(output);
+            }
+
+            output.endLine();
+            return NORMAL;
+        };
+    }
+
+    private TextCode compileText(ExpressionNode expression) {
+        switch (expression.getType()) {
+            case INT: {
+                IntCode value = compileInt(expression);
+                return output -> output.write(value.run());
+            }
+            case FLOAT: {
+                FloatCode value = compileFloat(expression);
+                return output -> output.write(value.run());
+            }
+            case BOOL: {
+                BoolCode value = compileBool(expression);
+                return output -> output.write(value.run());
+            }
+            default: {
+                IntCode value = compileInt(expression);
+                return output -> output.writeChar((char) value.run());
+            }
+        }
+    }
+
+    private StatementCode compileScan(ScanNode scan) {
+        List<Token> identifiers = scan.getIdentifiers();
+        Symbol[] symbols = new Symbol[identifiers.size()];
+        Position position = scan.getPosition();
+
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = frame[identifiers.get(i).getSlot()];
+        }
+
+        return () -> {
+            displayError = false;
+
+            for (Symbol symbol : symbols) {
+                scanInput.read(symbol, position);
+            }
+            return NORMAL;
+        };
+    }
+
+    private StatementCode compileIf(IfStatementNode ifStatement, boolean inLoop) {
+        IfNode[] branches = ifStatement.getBranches();
+        StatementCode elseBranch = null;
+
+        if (ifStatement.getElseBranch() != null) {
+            elseBranch = compileBlock(ifStatement.getElseBranch().getStatements(), inLoop);
+        }
+
+        if (branches.length == 1) {
+            BoolCode condition = compileBool(branches[0].getCondition());
+            StatementCode branch = compileBlock(branches[0].getStatements(), inLoop);
+
+            if (elseBranch == null) {
+                return () -> condition.run() ? branch.run() : NORMAL;
+            }
+
+            StatementCode otherwise = elseBranch;
+            return () -> condition.run() ? branch.run() : otherwise.run();
+        }
+
+        BoolCode[] conditionArray = new BoolCode[branches.length];
+        StatementCode[] branchArray = new StatementCode[branches.length];
+        StatementCode otherwise = elseBranch;
+
+        for (int i = 0; i < branches.length; i++) {
+            conditionArray[i] = compileBool(branches[i].getCondition());
+            branchArray[i] = compileBlock(branches[i].getStatements(), inLoop);
+        }
+
+        return () -> {
+            for (int i = 0; i < conditionArray.length; i++) {
+                if (conditionArray[i].run()) {
+                    return branchArray[i].run();
+                }
+            }
+            return otherwise != null ? otherwise.run() : NORMAL;
+        };
+    }
+
+    private StatementCode compileWhile(WhileNode whileStatement) {
+        BoolCode condition = compileBool(whileStatement.getCondition());
+        StatementCode body = compileBlock(whileStatement.getStatements(), true);
+
+        return () -> {
+            while (condition.run()) {
+                if (body.run() == BREAK) {
+                    break;
+                }
+            }
+            return NORMAL;
+        };
+    }
+
+    private StatementCode compileFor(ForNode forStatement) {
+        StatementCode initialization = forStatement.getInitialization() != null
+                ? compileAssignment(forStatement.getInitialization())
+                : () -> NORMAL;
+        BoolCode condition = compileBool(forStatement.getCondition());
+        StatementCode update = compileAssignment(forStatement.getUpdate());
+        StatementCode body = compileBlock(forStatement.getStatements(), true);
+
+        return () -> {
+            initialization.run();
+
+            while (condition.run()) {
+                if (body.run() == BREAK) {
+                    break;
+                }
+                update.run();
+            }
+            return NORMAL;
+        };
+    }
+
+    // INT and CHAR expressions
+    private IntCode compileInt(ExpressionNode node) {
+
+        if (node instanceof LiteralNode) {
+            LiteralNode literal = (LiteralNode) node;
+            long value = node.getType() == Type.CHAR ? literal.getCharValue() : literal.getIntValue();
+            return () -> value;
+
+        } else if (node instanceof VariableNode) {
+            Symbol symbol = frame[((VariableNode) node).getSlot()];
+
+            if (symbol.getType() == Type.CHAR) {
+                return () -> symbol.getCharValue();
+            }
+            return () -> symbol.getIntValue();
+
+        } else if (node instanceof UnaryNode) {
+            UnaryNode unary = (UnaryNode) node;
+            IntCode operand = compileInt(unary.getOperand());
+
+            if (unary.getOperator().getType() == Type.NEGATIVE) {
+                return () -> -operand.run();
+            }
+            return operand;
+        }
+
+        BinaryNode binary = (BinaryNode) node;
+        IntCode left = compileInt(binary.getLeft());
+        IntCode right = compileInt(binary.getRight());
+        Position position = binary.getOperator().getPosition();
+
+        switch (binary.getOperator().getType()) {
+            case ADD:
+                return () -> left.run() + right.run();
+            case SUBTRACT:
+                return () -> left.run() - right.run();
+            case MULTIPLY:
+                return () -> left.run() * right.run();
+            case DIVIDE:
+                return () -> {
+                    long dividend = left.run();
+                    long divisor = right.run();
+
+                    if (divisor == 0) {
+                        error("Cannot divide by zero", position);
+                    }
+                    return dividend / divisor;
+                };
+            case MODULO:
+                return () -> {
+                    long dividend = left.run();
+                    long divisor = right.run();
+
+                    if (divisor == 0) {
+                        error("Cannot divide by zero", position);
+                    }
+                    return dividend % divisor;
+                };
+            default:
+                compileError("Unknown operator: " + binary.getOperator().getLexeme(), position);
+                return null;
+        }
+    }
+
+    // FLOAT expressions. An INT expression is widened after it is evaluated
+    private FloatCode compileFloat(ExpressionNode node) {
+
+        if (node.getType() == Type.INT) {
+            IntCode value = compileInt(node);
+            return () -> value.run();
+        }
+
+        if (node instanceof LiteralNode) {
+            double value = ((LiteralNode) node).getFloatValue();
+            return () -> value;
+
+        } else if (node instanceof VariableNode) {
+            Symbol symbol = frame[((VariableNode) node).getSlot()];
+            return () -> symbol.getFloatValue();
+
+        } else if (node instanceof UnaryNode) {
+            UnaryNode unary = (UnaryNode) node;
+            FloatCode operand = compileFloat(unary.getOperand());
+
+            if (unary.getOperator().getType() == Type.NEGATIVE) {
+                return () -> -operand.run();
+            }
+            return operand;
+        }
+
+        BinaryNode binary = (BinaryNode) node;
+        FloatCode left = compileFloat(binary.getLeft());
+        FloatCode right = compileFloat(binary.getRight());
+        Position position = binary.getOperator().getPosition();
+
+        switch (binary.getOperator().getType()) {
+            case ADD:
+                return () -> left.run() + right.run();
+            case SUBTRACT:
+                return () -> left.run() - right.run();
+            case MULTIPLY:
+                return () -> left.run() * right.run();
+            case DIVIDE:
+                return () -> {
+                    double dividend = left.run();
+                    double divisor = right.run();
+
+                    if (divisor == 0) {
+                        error("Cannot divide by zero", position);
+                    }
+                    return dividend / divisor;
+                };
+            case MODULO:
+                return () -> {
+                    double dividend = left.run();
+                    double divisor = right.run();
+
+                    if (divisor == 0) {
+                        error("Cannot divide by zero", position);
+                    }
+                    return dividend % divisor;
+                };
+            default:
+                compileError("Unknown operator: " + binary.getOperator().getLexeme(), position);
+                return null;
+        }
+    }
+
+    private BoolCode compileBool(ExpressionNode node) {
+        Type type = node.getType();
+
+        if (type != Type.BOOL) {
+            compileError("Invalid expression. Expected a BOOL but got a " + type, node.getPosition());
+        }
+
+        if (node instanceof LiteralNode) {
+            boolean value = ((LiteralNode) node).getBoolValue();
+            return () -> value;
+
+        } else if (node instanceof VariableNode) {
+            Symbol symbol = frame[((VariableNode) node).getSlot()];
+            return () -> symbol.getBoolValue();
+
+        } else if (node instanceof UnaryNode) {
+            UnaryNode unary = (UnaryNode) node;
+            BoolCode operand = compileBool(unary.getOperand());
+
+            if (unary.getOperator().getType() == Type.NOT) {
+                return () -> !operand.run();
+            }
+            return operand;
+        }
+
+        BinaryNode binary = (BinaryNode) node;
+        Type operator = binary.getOperator().getType();
+
+        if (operator == Type.AND || operator == Type.OR) {
+            BoolCode left = compileBool(binary.getLeft());
+            BoolCode right = compileBool(binary.getRight());
+
+            if (operator == Type.AND) {
+                return () -> left.run() && right.run();
+            }
+            return () -> left.run() || right.run();
+        }
+
+        Type leftType = binary.getLeft().getType();
+        Type rightType = binary.getRight().getType();
+
+        if (leftType == Type.BOOL) {
+            BoolCode left = compileBool(binary.getLeft());
+            BoolCode right = compileBool(binary.getRight());
+
+            if (operator == Type.EQUAL) {
+                return () -> left.run() == right.run();
+            }
+            return () -> left.run() != right.run();
+        }
+
+        if (leftType == Type.FLOAT || rightType == Type.FLOAT) {
+            FloatCode left = compileFloat(binary.getLeft());
+            FloatCode right = compileFloat(binary.getRight());
+
+            switch (operator) {
+                case LESS:
+                    return () -> left.run() < right.run();
+                case GREATER:
+                    return () -> left.run() > right.run();
+                case LESS_EQUAL:
+                    return () -> left.run() <= right.run();
+                case GREATER_EQUAL:
+                    return () -> left.run() >= right.run();
+                case EQUAL:
+                    return () -> left.run() == right.run();
+                default:
+                    return () -> left.run() != right.run();
+            }
+        }
+
+        IntCode left = compileInt(binary.getLeft());
+        IntCode right = compileInt(binary.getRight());
+
+        switch (operator) {
+            case LESS:
+                return () -> left.run() < right.run();
+            case GREATER:
+                return () -> left.run() > right.run();
+            case LESS_EQUAL:
+                return () -> left.run() <= right.run();
+            case GREATER_EQUAL:
+                return () -> left.run() >= right.run();
+            case EQUAL:
+                return () -> left.run() == right.run();
+            default:
+                return () -> left.run() != right.run();
+        }
+    }
+
+    private void error(String message, Position position) {
+        output.flush();
+        System.err.println("Runtime Error: " + message + " at Line " +
+                position.getLine() + " and Column " + position.getColumn() + "\n");
+
+        System.exit(1);
+    }
+
+    // For a problem found while compiling, before any statement ran
+    private void compileError(String message, Position position) {
+        System.err.println("Compile Error: " + message + " at Line " +
+                position.getLine() + " and Column " + position.getColumn() + "\n");
+
+        System.exit(1);
+    }
+}
@@ -0,0 +1,117 @@
+package src.compiler;
+
+import src.utils.Token;
+import src.utils.Type;
+
+// An expression lowered to typed stack instructions. Every instruction is an
+// opcode followed by one operand (a slot, a constant index or a token index).
+// INT and CHAR values live on the long lane, FLOAT on the double lane and BOOL
+// on the boolean lane, so evaluating it never boxes a value
+public class CompiledExpression {
+
+    public static final int PUSH_INT = 0;
+    public static final int PUSH_FLOAT = 1;
+    public static final int PUSH_BOOL = 2;
+    public static final int LOAD_INT = 3;
+    public static final int LOAD_FLOAT = 4;
+    public static final int LOAD_BOOL = 5;
+    public static final int LOAD_CHAR = 6;
+    public static final int INT_TO_FLOAT = 7;
+
+    public static final int IADD = 10;
+    public static final int ISUB = 11;
+    public static final int IMUL = 12;
+    public static final int IDIV = 13;
+    public static final int IMOD = 14;
+    public static final int INEG = 15;
+
+    public static final int FADD = 20;
+    public static final int FSUB = 21;
+    public static final int FMUL = 22;
+    public static final int FDIV = 23;
+    public static final int FMOD = 24;
+    public static final int FNEG = 25;
+
+    public static final int ILT = 30;
+    public static final int IGT = 31;
+    public static final int ILE = 32;
+    public static final int IGE = 33;
+    public static final int IEQ = 34;
+    public static final int INE = 35;
+
+    public static final int FLT = 40;
+    public static final int FGT = 41;
+    public static final int FLE = 42;
+    public static final int FGE = 43;
+    public static final int FEQ = 44;
+    public static final int FNE = 45;
+
+    public static final int BEQ = 50;
+    public static final int BNE = 51;
+    public static final int NOT = 54;
+
+    // AND and OR jump over their right operand when the left one decides the
+    // result. The operand is the code index to jump to and the left value stays
+    // on the lane as the result, otherwise it is popped
+    public static final int JUMP_IF_FALSE = 60;
+    public static final int JUMP_IF_TRUE = 61;
+
+    private final int[] code;
+    private final long[] intConstants;
+    private final double[] floatConstants;
+    private final Token[] tokens;
+    private final Type type;
+    private final int maxIntDepth;
+    private final int maxFloatDepth;
+    private final int maxBoolDepth;
+
+    public CompiledExpression(int[] code, long[] intConstants, double[] floatConstants, Token[] tokens, Type type,
+            int maxIntDepth, int maxFloatDepth, int maxBoolDepth) {
+        this.code = code;
+        this.intConstants = intConstants;
+        this.floatConstants = floatConstants;
+        this.tokens = tokens;
+        this.type = type;
+        this.maxIntDepth = maxIntDepth;
+        this.maxFloatDepth = maxFloatDepth;
+        this.maxBoolDepth = maxBoolDepth;
+    }
+
+    public int[] getCode() {
+        return code;
+    }
+
+    public long[] getIntConstants() {
+        return intConstants;
+    }
+
+    public double[] getFloatConstants() {
+        return floatConstants;
+    }
+
+    // Operator tokens referenced by instructions that can fail, used for error positions
+    public Token[] getTokens() {
+        return tokens;
+    }
+
+    // The type of the value the expression leaves on its lane
+    public Type getType() {
+        return type;
+    }
+
+    public int getMaxIntDepth() {
+        return maxIntDepth;
+    }
+
+    public int getMaxFloatDepth() {
+        return maxFloatDepth;
+    }
+
+    public int getMaxBoolDepth() {
+        return maxBoolDepth;
+    }
+
+    public int size() {
+        return code.length / 2;
+    }
+}
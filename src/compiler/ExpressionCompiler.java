@@ -0,0 +1,292 @@
+package src.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import src.nodes.*;
+import src.utils.Position;
+import src.utils.Token;
+import src.utils.Type;
+
+public class ExpressionCompiler {
+    // State of the expression currently being compiled
+    private int[] code;
+    private int codeSize;
+    private List<Long> intConstants;
+    private List<Double> floatConstants;
+    private List<Token> tokens;
+    private int intDepth, floatDepth, boolDepth;
+    private int maxIntDepth, maxFloatDepth, maxBoolDepth;
+
+    // Compile every expression in the program once so the interpreter can reuse
+    // the typed instructions instead of converting the same tokens on every evaluation
+    public void compile(ProgramNode program) {
+        compileStatements(program.getStatements());
+    }
+
+    public CompiledExpression compile(ExpressionNode expression) {
+
+        if (expression.getCompiled() == null) {
+            code = new int[16];
+            codeSize = 0;
+            intConstants = new ArrayList<>();
+            floatConstants = new ArrayList<>();
+            tokens = new ArrayList<>();
+            intDepth = floatDepth = boolDepth = 0;
+            maxIntDepth = maxFloatDepth = maxBoolDepth = 0;
+
+            Type type = emit(expression);
+
+            long[] ints = new long[intConstants.size()];
+            for (int i = 0; i < ints.length; i++) {
+                ints[i] = intConstants.get(i);
+            }
+
+            double[] floats = new double[floatConstants.size()];
+            for (int i = 0; i < floats.length; i++) {
+                floats[i] = floatConstants.get(i);
+            }
+
+            int[] finalCode = new int[codeSize];
+            System.arraycopy(code, 0, finalCode, 0, codeSize);
+
+            expression.setCompiled(new CompiledExpression(finalCode, ints, floats, tokens.toArray(new Token[0]),
+                    type, maxIntDepth, maxFloatDepth, maxBoolDepth));
+        }
+
+        return expression.getCompiled();
+    }
+
+    private void compileStatements(List<StatementNode> statements) {
+        for (StatementNode statement : statements) {
+            compileStatement(statement);
+        }
+    }
+
+    private void compileStatement(StatementNode statement) {
+
+        if (statement instanceof AssignmentNode) {
+            compile(((AssignmentNode) statement).getExpression());
+        } else if (statement instanceof DisplayNode) {
+            for (ExpressionNode expression : ((DisplayNode) statement).getExpressions()) {
+                compile(expression);
+            }
+        } else if (statement instanceof IfStatementNode) {
+            IfStatementNode ifStatement = (IfStatementNode) statement;
+
+            for (IfNode branch : ifStatement.getBranches()) {
+                compile(branch.getCondition());
+                compileStatements(branch.getStatements());
+            }
+
+            if (ifStatement.getElseBranch() != null) {
+                compileStatements(ifStatement.getElseBranch().getStatements());
+            }
+        } else if (statement instanceof WhileNode) {
+            WhileNode whileNode = (WhileNode) statement;
+            compile(whileNode.getCondition());
+            compileStatements(whileNode.getStatements());
+        } else if (statement instanceof ForNode) {
+            ForNode forNode = (ForNode) statement;
+
+            if (forNode.getInitialization() != null) {
+                compile(forNode.getInitialization().getExpression());
+            }
+
+            compile(forNode.getCondition());
+            compile(forNode.getUpdate().getExpression());
+            compileStatements(forNode.getStatements());
+        }
+    }
+
+    // Emit the instructions of a node in post-order, which is the postfix order
+    // of the expression, and return the type of the value it leaves behind
+    private Type emit(ExpressionNode node) {
+        Type type = node.getType();
+
+        if (node instanceof LiteralNode) {
+            emitLiteral((LiteralNode) node, type);
+
+        } else if (node instanceof VariableNode) {
+            int slot = ((VariableNode) node).getSlot();
+
+            if (type == Type.INT) {
+                add(CompiledExpression.LOAD_INT, slot);
+            } else if (type == Type.FLOAT) {
+                add(CompiledExpression.LOAD_FLOAT, slot);
+            } else if (type == Type.BOOL) {
+                add(CompiledExpression.LOAD_BOOL, slot);
+            } else {
+                add(CompiledExpression.LOAD_CHAR, slot);
+            }
+            push(type);
+
+        } else if (node instanceof UnaryNode) {
+            UnaryNode unary = (UnaryNode) node;
+            emit(unary.getOperand());
+
+            if (unary.getOperator().getType() == Type.NOT) {
+                add(CompiledExpression.NOT, 0);
+            } else if (unary.getOperator().getType() == Type.NEGATIVE) {
+                add(type == Type.INT ? CompiledExpression.INEG : CompiledExpression.FNEG, 0);
+            }
+
+        } else if (node instanceof BinaryNode) {
+            emitBinary((BinaryNode) node, type);
+        }
+
+        return type;
+    }
+
+    private void emitLiteral(LiteralNode literal, Type type) {
+        if (type == Type.INT) {
+            intConstants.add(literal.getIntValue());
+            add(CompiledExpression.PUSH_INT, intConstants.size() - 1);
+        } else if (type == Type.FLOAT) {
+            floatConstants.add(literal.getFloatValue());
+            add(CompiledExpression.PUSH_FLOAT, floatConstants.size() - 1);
+        } else if (type == Type.BOOL) {
+            add(CompiledExpression.PUSH_BOOL, literal.getBoolValue() ? 1 : 0);
+        } else {
+            intConstants.add((long) literal.getCharValue());
+            add(CompiledExpression.PUSH_INT, intConstants.size() - 1);
+        }
+
+        push(type);
+    }
+
+    private void emitBinary(BinaryNode binary, Type type) {
+        Type operatorType = binary.getOperator().getType();
+
+        if (operatorType == Type.AND || operatorType == Type.OR) {
+            emitShortCircuit(binary);
+            return;
+        }
+
+        Type leftType = binary.getLeft().getType();
+        Type rightType = binary.getRight().getType();
+
+        // INT operands are widened right after they are pushed when the other side is a FLOAT
+        boolean widen = leftType == Type.FLOAT || rightType == Type.FLOAT;
+
+        emit(binary.getLeft());
+        if (widen && leftType == Type.INT) {
+            add(CompiledExpression.INT_TO_FLOAT, 0);
+            pop(Type.INT);
+            push(Type.FLOAT);
+        }
+
+        emit(binary.getRight());
+        if (widen && rightType == Type.INT) {
+            add(CompiledExpression.INT_TO_FLOAT, 0);
+            pop(Type.INT);
+            push(Type.FLOAT);
+        }
+
+        Type operandType = widen ? Type.FLOAT : leftType;
+        int tokenIndex = tokens.size();
+        tokens.add(binary.getOperator());
+
+        switch (operatorType) {
+            case ADD:
+                add(widen ? CompiledExpression.FADD : CompiledExpression.IADD, tokenIndex);
+                break;
+            case SUBTRACT:
+                add(widen ? CompiledExpression.FSUB : CompiledExpression.ISUB, tokenIndex);
+                break;
+            case MULTIPLY:
+                add(widen ? CompiledExpression.FMUL : CompiledExpression.IMUL, tokenIndex);
+                break;
+            case DIVIDE:
+                add(widen ? CompiledExpression.FDIV : CompiledExpression.IDIV, tokenIndex);
+                break;
+            case MODULO:
+                add(widen ? CompiledExpression.FMOD : CompiledExpression.IMOD, tokenIndex);
+                break;
+            case LESS:
+                add(widen ? CompiledExpression.FLT : CompiledExpression.ILT, tokenIndex);
+                break;
+            case GREATER:
+                add(widen ? CompiledExpression.FGT : CompiledExpression.IGT, tokenIndex);
+                break;
+            case LESS_EQUAL:
+                add(widen ? CompiledExpression.FLE : CompiledExpression.ILE, tokenIndex);
+                break;
+            case GREATER_EQUAL:
+                add(widen ? CompiledExpression.FGE : CompiledExpression.IGE, tokenIndex);
+                break;
+            case EQUAL:
+                if (operandType == Type.BOOL) {
+                    add(CompiledExpression.BEQ, tokenIndex);
+                } else {
+                    add(widen ? CompiledExpression.FEQ : CompiledExpression.IEQ, tokenIndex);
+                }
+                break;
+            case NOT_EQUAL:
+                if (operandType == Type.BOOL) {
+                    add(CompiledExpression.BNE, tokenIndex);
+                } else {
+                    add(widen ? CompiledExpression.FNE : CompiledExpression.INE, tokenIndex);
+                }
+                break;
+            default:
+                error("Unknown operator: " + binary.getOperator().getLexeme(), binary.getOperator().getPosition());
+        }
+
+        pop(operandType);
+        pop(operandType);
+        push(type);
+    }
+
+    // The right operand is only evaluated when the left one does not decide the result
+    private void emitShortCircuit(BinaryNode binary) {
+        emit(binary.getLeft());
+
+        add(binary.getOperator().getType() == Type.AND ? CompiledExpression.JUMP_IF_FALSE
+                : CompiledExpression.JUMP_IF_TRUE, 0);
+        int jump = codeSize - 1;
+        pop(Type.BOOL);
+
+        emit(binary.getRight());
+        code[jump] = codeSize;
+    }
+
+    private void add(int opcode, int operand) {
+        if (codeSize + 2 > code.length) {
+            int[] grown = new int[code.length * 2];
+            System.arraycopy(code, 0, grown, 0, codeSize);
+            code = grown;
+        }
+
+        code[codeSize++] = opcode;
+        code[codeSize++] = operand;
+    }
+
+    // Track the depth of every lane so the evaluator can preallocate its stacks
+    private void push(Type type) {
+        if (type == Type.FLOAT) {
+            maxFloatDepth = Math.max(maxFloatDepth, ++floatDepth);
+        } else if (type == Type.BOOL) {
+            maxBoolDepth = Math.max(maxBoolDepth, ++boolDepth);
+        } else {
+            maxIntDepth = Math.max(maxIntDepth, ++intDepth);
+        }
+    }
+
+    private void pop(Type type) {
+        if (type == Type.FLOAT) {
+            floatDepth--;
+        } else if (type == Type.BOOL) {
+            boolDepth--;
+        } else {
+            intDepth--;
+        }
+    }
+
+    private void error(String message, Position position) {
+        System.err.println("Compile Error: " + message + " at Line " +
+                position.getLine() + " and Column " + position.getColumn() + "\n");
+
+        System.exit(1);
+    }
+}
@@ -0,0 +1,654 @@
+package src.compiler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import src.nodes.*;
+import src.utils.Position;
+import src.utils.Symbol;
+import src.utils.SymbolTable;
+import src.utils.Token;
+import src.utils.Type;
+
+// Lowers the analyzed program to the instruction stream of the register machine.
+// Variables keep a fixed register and every expression writes its operands to
+// temporaries above them, so an assignment like sum = sum + i needs no moves.
+// A variable that DISPLAY can show without a value also keeps a flag register
+// next to the variables, 0 until it has one
+public class RegisterCompiler {
+
+    // Jumps of the loop being compiled that still need their target
+    private static class Loop {
+        final List<Integer> breaks = new ArrayList<>();
+        final List<Integer> continues = new ArrayList<>();
+    }
+
+    private final Symbol[] frame;
+    private final int[] intRegisters;
+    private final int[] floatRegisters;
+    private final List<Loop> loops = new ArrayList<>();
+
+    // Numbers the flag registers of the variables that can be shown without a value
+    private UnsetVariables unset;
+
+    private int[] code = new int[64];
+    private int codeSize;
+    private final List<Long> intConstants = new ArrayList<>();
+    private final List<Double> floatConstants = new ArrayList<>();
+
+    // The index of every value in its pool, so a value used again is found at once
+    private final Map<Long, Integer> intConstantIndex = new HashMap<>();
+    private final Map<Double, Integer> floatConstantIndex = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private final List<Position> positions = new ArrayList<>();
+
+    // The variables of each bank, the first free temporary and the most registers ever needed
+    private int intVariables, floatVariables;
+    private int nextInt, nextFloat;
+    private int maxInt, maxFloat;
+
+    public RegisterCompiler(SymbolTable symbolTable) {
+        this.frame = symbolTable.getFrame();
+        this.intRegisters = new int[frame.length];
+        this.floatRegisters = new int[frame.length];
+
+        for (int i = 0; i < frame.length; i++) {
+            if (frame[i].getType() == Type.FLOAT) {
+                intRegisters[i] = -1;
+                floatRegisters[i] = nextFloat++;
+            } else {
+                intRegisters[i] = nextInt++;
+                floatRegisters[i] = -1;
+            }
+        }
+
+        intVariables = maxInt = nextInt;
+        floatVariables = maxFloat = nextFloat;
+    }
+
+    public RegisterProgram compile(ProgramNode program) {
+        unset = new UnsetVariables(frame, program, nextInt);
+        nextInt += unset.count();
+
+        for (int i = 0; i < frame.length; i++) {
+            // Flags start at 0, a declared value sets it before the first statement
+            if (unset.flag(i) >= 0 && frame[i].hasValue()) {
+                add(RegisterProgram.ICONST, unset.flag(i), intConstant(1));
+            }
+        }
+
+        intVariables = maxInt = nextInt;
+
+        compileBlock(program.getStatements());
+        add(RegisterProgram.HALT);
+
+        int[] finalCode = new int[codeSize];
+        System.arraycopy(code, 0, finalCode, 0, codeSize);
+
+        long[] ints = new long[intConstants.size()];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = intConstants.get(i);
+        }
+
+        double[] floats = new double[floatConstants.size()];
+        for (int i = 0; i < floats.length; i++) {
+            floats[i] = floatConstants.get(i);
+        }
+
+        return new RegisterProgram(finalCode, ints, floats, strings.toArray(new String[0]),
+                positions.toArray(new Position[0]), intRegisters, floatRegisters, maxInt, maxFloat);
+    }
+
+    private void compileBlock(List<StatementNode> statements) {
+        for (StatementNode statement : statements) {
+            if (statement instanceof IfStatementNode) {
+                compileIf((IfStatementNode) statement);
+            } else if (statement instanceof BreakNode) {
+                if (!loops.isEmpty()) {
+                    loops.get(loops.size() - 1).breaks.add(jump());
+                }
+            } else if (statement instanceof ContinueNode) {
+                if (!loops.isEmpty()) {
+                    loops.get(loops.size() - 1).continues.add(jump());
+                }
+            } else if (statement instanceof AssignmentNode) {
+                compileAssignment((AssignmentNode) statement);
+            } else if (statement instanceof DisplayNode) {
+                compileDisplay((DisplayNode) statement);
+            } else if (statement instanceof ScanNode) {
+                compileScan((ScanNode) statement);
+            } else if (statement instanceof WhileNode) {
+                compileWhile((WhileNode) statement);
+            } else if (statement instanceof ForNode) {
+                compileFor((ForNode) statement);
+            }
+        }
+    }
+
+    private void compileAssignment(AssignmentNode assignment) {
+        Symbol symbol = frame[assignment.getVariable().getSlot()];
+        ExpressionNode expression = assignment.getExpression();
+        Type type = expression.getType();
+        int slot = symbol.getSlot();
+
+        if (symbol.getType() == Type.INT && type == Type.INT) {
+            lowerInt(expression, intRegisters[slot]);
+        } else if (symbol.getType() == Type.INT) {
+            int value = lowerFloat(expression, -1);
+            add(RegisterProgram.D2I, intRegisters[slot], value);
+        } else if (symbol.getType() == Type.FLOAT) {
+            lowerFloat(expression, floatRegisters[slot]);
+        } else if (symbol.getType() == Type.BOOL) {
+            lowerInt(expression, intRegisters[slot]);
+        } else {
+            int value = lowerInt(expression, -1);
+            add(RegisterProgram.I2C, intRegisters[slot], value);
+        }
+
+        markSet(unset.flag(slot), unset.copiedFlag(expression));
+        releaseTemporaries();
+    }
+
+    // A copy keeps the flag of its source, anything else gives the variable a value
+    private void markSet(int flag, int copied) {
+        if (flag < 0) {
+            return;
+        }
+
+        if (copied >= 0) {
+            add(RegisterProgram.IMOV, flag, copied);
+        } else {
+            add(RegisterProgram.ICONST, flag, intConstant(1));
+        }
+    }
+
+    private void compileDisplay(DisplayNode display) {
+        List<ExpressionNode> expressions = display.getExpressions();
+        StringBuilder constant = new StringBuilder();
+        int currentIndexExpression = 0;
+
+        add(RegisterProgram.DISPLAY_BEGIN);
+
+        for (Token token : display.getArguments()) {
+
+            if (token.getType() == Type.STRING_LITERAL || token.getType() == Type.SPECIAL_CHARACTER
+                    || token.getType() == Type.LITERAL) {
+                constant.append(token.getLexeme());
+                continue;
+            }
+
+            if (token.getType() == Type.NEXT_LINE) {
+                constant.append(System.lineSeparator());
+                continue;
+            }
+
+            if (token.getType() != Type.IDENTIFIER && token.getType() != Type.EXPRESSION) {
+                continue;
+            }
+
+            // Neighbouring constant text becomes one segment
+            displaySegment(constant);
+
+            if (token.getType() == Type.IDENTIFIER) {
+                displayVariable(token);
+            } else {
+                displayValue(expressions.get(currentIndexExpression));
+                currentIndexExpression++;
+            }
+        }
+
+        displaySegment(constant);
+        add(RegisterProgram.DISPLAY_END);
+    }
+
+    // A variable without a value is shown as null
+    private void displayVariable(Token token) {
+        VariableNode variable = new VariableNode(token, frame[token.getSlot()].getType());
+        int flag = unset.flag(token.getSlot());
+
+        if (flag < 0) {
+            displayValue(variable);
+            return;
+        }
+
+        add(RegisterProgram.JMP_IF_FALSE, flag, -1);
+        int unset = codeSize - 1;
+
+        displayValue(variable);
+        int end = jump();
+
+        patch(unset, codeSize);
+        add(RegisterProgram.DISPLAY_SEGMENT, string("null"));
+        patch(end, codeSize);
+    }
+
+    private void displaySegment(StringBuilder constant) {
+        if (constant.length() > 0) {
+            add(RegisterProgram.DISPLAY_SEGMENT, string(constant.toString()));
+            constant.setLength(0);
+        }
+    }
+
+    private void displayValue(ExpressionNode expression) {
+        switch (expression.getType()) {
+            case INT:
+                add(RegisterProgram.DISPLAY_INT, lowerInt(expression, -1));
+                break;
+            case FLOAT:
+                add(RegisterProgram.DISPLAY_FLOAT, lowerFloat(expression, -1));
+                break;
+            case BOOL:
+                add(RegisterProgram.DISPLAY_BOOL, lowerInt(expression, -1));
+                break;
+            default:
+                add(RegisterProgram.DISPLAY_CHAR, lowerInt(expression, -1));
+                break;
+        }
+
+        releaseTemporaries();
+    }
+
+    private void compileScan(ScanNode scan) {
+        int position = position(scan.getPosition());
+
+        for (Token identifier : scan.getIdentifiers()) {
+            int slot = identifier.getSlot();
+            int register = frame[slot].getType() == Type.FLOAT ? floatRegisters[slot] : intRegisters[slot];
+
+            add(RegisterProgram.SCAN, register, slot, position);
+            markSet(unset.flag(slot), -1);
+        }
+    }
+
+    private void compileIf(IfStatementNode ifStatement) {
+        List<Integer> ends = new ArrayList<>();
+
+        for (IfNode branch : ifStatement.getBranches()) {
+            int next = jumpIfFalse(branch.getCondition());
+            compileBlock(branch.getStatements());
+            ends.add(jump());
+            patch(next, codeSize);
+        }
+
+        if (ifStatement.getElseBranch() != null) {
+            compileBlock(ifStatement.getElseBranch().getStatements());
+        }
+
+        for (int end : ends) {
+            patch(end, codeSize);
+        }
+    }
+
+    private void compileWhile(WhileNode whileStatement) {
+        int condition = codeSize;
+        int exit = jumpIfFalse(whileStatement.getCondition());
+
+        Loop loop = new Loop();
+        loops.add(loop);
+        compileBlock(whileStatement.getStatements());
+        loops.remove(loops.size() - 1);
+
+        patch(jump(), condition);
+        patch(exit, codeSize);
+        closeLoop(loop, condition);
+    }
+
+    private void compileFor(ForNode forStatement) {
+        if (forStatement.getInitialization() != null) {
+            compileAssignment(forStatement.getInitialization());
+        }
+
+        int condition = codeSize;
+        int exit = jumpIfFalse(forStatement.getCondition());
+
+        Loop loop = new Loop();
+        loops.add(loop);
+        compileBlock(forStatement.getStatements());
+        loops.remove(loops.size() - 1);
+
+        int update = codeSize;
+        compileAssignment(forStatement.getUpdate());
+        patch(jump(), condition);
+        patch(exit, codeSize);
+        closeLoop(loop, update);
+    }
+
+    private void closeLoop(Loop loop, int continueTarget) {
+        for (int jump : loop.breaks) {
+            patch(jump, codeSize);
+        }
+
+        for (int jump : loop.continues) {
+            patch(jump, continueTarget);
+        }
+    }
+
+    // Returns where the target of the jump has to be patched
+    private int jumpIfFalse(ExpressionNode condition) {
+        int value = lowerInt(condition, -1);
+        releaseTemporaries();
+
+        add(RegisterProgram.JMP_IF_FALSE, value, -1);
+        return codeSize - 1;
+    }
+
+    private int jump() {
+        add(RegisterProgram.JMP, -1);
+        return codeSize - 1;
+    }
+
+    private void patch(int operand, int target) {
+        code[operand] = target;
+    }
+
+    // Lowers an INT, CHAR or BOOL expression and returns the long register holding
+    // its value. A variable is used in place, anything else is written to the
+    // target register or to a new temporary when there is no target
+    private int lowerInt(ExpressionNode node, int target) {
+
+        if (node instanceof VariableNode) {
+            int register = intRegisters[((VariableNode) node).getSlot()];
+
+            if (target >= 0 && target != register) {
+                add(RegisterProgram.IMOV, target, register);
+                return target;
+            }
+            return register;
+        }
+
+        if (node instanceof LiteralNode) {
+            LiteralNode literal = (LiteralNode) node;
+            long value;
+
+            switch (node.getType()) {
+                case CHAR:
+                    value = literal.getCharValue();
+                    break;
+                case BOOL:
+                    value = literal.getBoolValue() ? 1 : 0;
+                    break;
+                default:
+                    value = literal.getIntValue();
+                    break;
+            }
+
+            int dst = target >= 0 ? target : tempInt();
+            add(RegisterProgram.ICONST, dst, intConstant(value));
+            return dst;
+        }
+
+        int mark = nextInt;
+
+        if (node instanceof UnaryNode) {
+            UnaryNode unary = (UnaryNode) node;
+            int operand = lowerInt(unary.getOperand(), -1);
+            nextInt = mark;
+
+            if (unary.getOperator().getType() != Type.NOT && unary.getOperator().getType() != Type.NEGATIVE) {
+                if (target >= 0 && target != operand) {
+                    add(RegisterProgram.IMOV, target, operand);
+                    return target;
+                }
+                return operand;
+            }
+
+            int dst = target >= 0 ? target : tempInt();
+            add(unary.getOperator().getType() == Type.NOT ? RegisterProgram.NOT : RegisterProgram.INEG, dst, operand);
+            return dst;
+        }
+
+        BinaryNode binary = (BinaryNode) node;
+        Token operator = binary.getOperator();
+
+        // The right operand is skipped when the left one decides the result. The
+        // value is built in a temporary so the target is not written before the
+        // right operand has read it
+        if (operator.getType() == Type.AND || operator.getType() == Type.OR) {
+            int value = tempInt();
+            lowerInt(binary.getLeft(), value);
+
+            add(operator.getType() == Type.AND ? RegisterProgram.JMP_IF_FALSE : RegisterProgram.JMP_IF_TRUE, value, -1);
+            int end = codeSize - 1;
+
+            lowerInt(binary.getRight(), value);
+            patch(end, codeSize);
+
+            if (target >= 0) {
+                nextInt = mark;
+                add(RegisterProgram.IMOV, target, value);
+                return target;
+            }
+
+            nextInt = value + 1;
+            return value;
+        }
+
+        Type leftType = binary.getLeft().getType();
+        Type rightType = binary.getRight().getType();
+
+        // Comparisons of FLOAT operands read double registers and write a long one
+        if (node.getType() == Type.BOOL && (leftType == Type.FLOAT || rightType == Type.FLOAT)) {
+            int floatMark = nextFloat;
+            int left = lowerFloat(binary.getLeft(), -1);
+            int right = lowerFloat(binary.getRight(), -1);
+            nextFloat = floatMark;
+
+            int dst = target >= 0 ? target : tempInt();
+            add(floatComparison(operator), dst, left, right);
+            return dst;
+        }
+
+        int left = lowerInt(binary.getLeft(), -1);
+        int right = lowerInt(binary.getRight(), -1);
+        nextInt = mark;
+        int dst = target >= 0 ? target : tempInt();
+
+        switch (operator.getType()) {
+            case ADD:
+                add(RegisterProgram.IADD, dst, left, right);
+                break;
+            case SUBTRACT:
+                add(RegisterProgram.ISUB, dst, left, right);
+                break;
+            case MULTIPLY:
+                add(RegisterProgram.IMUL, dst, left, right);
+                break;
+            case DIVIDE:
+                add(RegisterProgram.IDIV, dst, left, right, position(operator.getPosition()));
+                break;
+            case MODULO:
+                add(RegisterProgram.IMOD, dst, left, right, position(operator.getPosition()));
+                break;
+            case LESS:
+                add(RegisterProgram.ICMP_LT, dst, left, right);
+                break;
+            case GREATER:
+                add(RegisterProgram.ICMP_GT, dst, left, right);
+                break;
+            case LESS_EQUAL:
+                add(RegisterProgram.ICMP_LE, dst, left, right);
+                break;
+            case GREATER_EQUAL:
+                add(RegisterProgram.ICMP_GE, dst, left, right);
+                break;
+            case EQUAL:
+                add(RegisterProgram.ICMP_EQ, dst, left, right);
+                break;
+            case NOT_EQUAL:
+                add(RegisterProgram.ICMP_NE, dst, left, right);
+                break;
+            default:
+                error("Unknown operator: " + operator.getLexeme(), operator.getPosition());
+        }
+
+        return dst;
+    }
+
+    private int floatComparison(Token operator) {
+        switch (operator.getType()) {
+            case LESS:
+                return RegisterProgram.DCMP_LT;
+            case GREATER:
+                return RegisterProgram.DCMP_GT;
+            case LESS_EQUAL:
+                return RegisterProgram.DCMP_LE;
+            case GREATER_EQUAL:
+                return RegisterProgram.DCMP_GE;
+            case EQUAL:
+                return RegisterProgram.DCMP_EQ;
+            case NOT_EQUAL:
+                return RegisterProgram.DCMP_NE;
+            default:
+                error("Unknown operator: " + operator.getLexeme(), operator.getPosition());
+                return -1;
+        }
+    }
+
+    // Lowers a FLOAT expression into a double register. An INT expression is widened after it is evaluated
+    private int lowerFloat(ExpressionNode node, int target) {
+
+        if (node.getType() == Type.INT) {
+            int mark = nextInt;
+            int value = lowerInt(node, -1);
+            nextInt = mark;
+
+            int dst = target >= 0 ? target : tempFloat();
+            add(RegisterProgram.I2D, dst, value);
+            return dst;
+        }
+
+        if (node instanceof VariableNode) {
+            int register = floatRegisters[((VariableNode) node).getSlot()];
+
+            if (target >= 0 && target != register) {
+                add(RegisterProgram.DMOV, target, register);
+                return target;
+            }
+            return register;
+        }
+
+        if (node instanceof LiteralNode) {
+            int dst = target >= 0 ? target : tempFloat();
+            add(RegisterProgram.DCONST, dst,
+                    floatConstant(((LiteralNode) node).getFloatValue()));
+            return dst;
+        }
+
+        int mark = nextFloat;
+
+        if (node instanceof UnaryNode) {
+            UnaryNode unary = (UnaryNode) node;
+            int operand = lowerFloat(unary.getOperand(), -1);
+            nextFloat = mark;
+
+            if (unary.getOperator().getType() != Type.NEGATIVE) {
+                if (target >= 0 && target != operand) {
+                    add(RegisterProgram.DMOV, target, operand);
+                    return target;
+                }
+                return operand;
+            }
+
+            int dst = target >= 0 ? target : tempFloat();
+            add(RegisterProgram.DNEG, dst, operand);
+            return dst;
+        }
+
+        BinaryNode binary = (BinaryNode) node;
+        Token operator = binary.getOperator();
+        int left = lowerFloat(binary.getLeft(), -1);
+        int right = lowerFloat(binary.getRight(), -1);
+        nextFloat = mark;
+        int dst = target >= 0 ? target : tempFloat();
+
+        switch (operator.getType()) {
+            case ADD:
+                add(RegisterProgram.DADD, dst, left, right);
+                break;
+            case SUBTRACT:
+                add(RegisterProgram.DSUB, dst, left, right);
+                break;
+            case MULTIPLY:
+                add(RegisterProgram.DMUL, dst, left, right);
+                break;
+            case DIVIDE:
+                add(RegisterProgram.DDIV, dst, left, right, position(operator.getPosition()));
+                break;
+            case MODULO:
+                add(RegisterProgram.DMOD, dst, left, right, position(operator.getPosition()));
+                break;
+            default:
+                error("Unknown operator: " + operator.getLexeme(), operator.getPosition());
+        }
+
+        return dst;
+    }
+
+    private int tempInt() {
+        maxInt = Math.max(maxInt, nextInt + 1);
+        return nextInt++;
+    }
+
+    private int tempFloat() {
+        maxFloat = Math.max(maxFloat, nextFloat + 1);
+        return nextFloat++;
+    }
+
+    // Temporaries only live for one statement
+    private void releaseTemporaries() {
+        nextInt = intVariables;
+        nextFloat = floatVariables;
+    }
+
+    private int intConstant(long value) {
+        Integer index = intConstantIndex.get(value);
+
+        if (index == null) {
+            index = intConstants.size();
+            intConstants.add(value);
+            intConstantIndex.put(value, index);
+        }
+        return index;
+    }
+
+    private int floatConstant(double value) {
+        Integer index = floatConstantIndex.get(value);
+
+        if (index == null) {
+            index = floatConstants.size();
+            floatConstants.add(value);
+            floatConstantIndex.put(value, index);
+        }
+        return index;
+    }
+
+    private int string(String value) {
+        strings.add(value);
+        return strings.size() - 1;
+    }
+
+    private int position(Position position) {
+        positions.add(position);
+        return positions.size() - 1;
+    }
+
+    private void add(int... instruction) {
+        if (codeSize + instruction.length > code.length) {
+            int[] grown = new int[Math.max(code.length * 2, codeSize + instruction.length)];
+            System.arraycopy(code, 0, grown, 0, codeSize);
+            code = grown;
+        }
+
+        System.arraycopy(instruction, 0, code, codeSize, instruction.length);
+        codeSize += instruction.length;
+    }
+
+    private void error(String message, Position position) {
+        System.err.println("Compile Error: " + message + " at Line " +
+                position.getLine() + " and Column " + position.getColumn() + "\n");
+
+        System.exit(1);
+    }
+}
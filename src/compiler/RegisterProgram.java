@@ -0,0 +1,142 @@
+package src.compiler;
+
+import src.utils.Position;
+
+// A whole program lowered to a flat instruction stream for the register
+// machine. Every instruction is an opcode followed by its operands. INT, CHAR
+// and BOOL values use the long registers, FLOAT values the double registers.
+// The first registers of each bank are the variables, followed in the long
+// bank by the has-value flags RegisterCompiler keeps, the rest are temporaries
+public class RegisterProgram {
+
+    // dst, constant
+    public static final int ICONST = 0;
+    public static final int DCONST = 1;
+    // dst, src
+    public static final int IMOV = 2;
+    public static final int DMOV = 3;
+    public static final int I2D = 4;
+    public static final int D2I = 5;
+    // Keeps the low 16 bits of an INT register as a CHAR
+    public static final int I2C = 6;
+
+    // dst, left, right
+    public static final int IADD = 10;
+    public static final int ISUB = 11;
+    public static final int IMUL = 12;
+    // dst, left, right, position
+    public static final int IDIV = 13;
+    public static final int IMOD = 14;
+    // dst, src
+    public static final int INEG = 15;
+
+    public static final int DADD = 20;
+    public static final int DSUB = 21;
+    public static final int DMUL = 22;
+    public static final int DDIV = 23;
+    public static final int DMOD = 24;
+    public static final int DNEG = 25;
+
+    // dst, left, right. The result goes to a long register as 0 or 1
+    public static final int ICMP_LT = 30;
+    public static final int ICMP_GT = 31;
+    public static final int ICMP_LE = 32;
+    public static final int ICMP_GE = 33;
+    public static final int ICMP_EQ = 34;
+    public static final int ICMP_NE = 35;
+
+    public static final int DCMP_LT = 40;
+    public static final int DCMP_GT = 41;
+    public static final int DCMP_LE = 42;
+    public static final int DCMP_GE = 43;
+    public static final int DCMP_EQ = 44;
+    public static final int DCMP_NE = 45;
+
+    // dst, src
+    public static final int NOT = 52;
+
+    // target
+    public static final int JMP = 60;
+    // condition, target
+    public static final int JMP_IF_FALSE = 61;
+    public static final int JMP_IF_TRUE = 62;
+
+    // no operands
+    public static final int DISPLAY_BEGIN = 70;
+    // string
+    public static final int DISPLAY_SEGMENT = 71;
+    // src
+    public static final int DISPLAY_INT = 72;
+    public static final int DISPLAY_FLOAT = 73;
+    public static final int DISPLAY_BOOL = 74;
+    public static final int DISPLAY_CHAR = 75;
+    // no operands
+    public static final int DISPLAY_END = 76;
+
+    // dst, slot, position. The register bank follows the type of the variable
+    public static final int SCAN = 80;
+    // no operands
+    public static final int HALT = 82;
+
+    private final int[] code;
+    private final long[] intConstants;
+    private final double[] floatConstants;
+    private final String[] strings;
+    private final Position[] positions;
+    private final int[] intRegisters;
+    private final int[] floatRegisters;
+    private final int intRegisterCount;
+    private final int floatRegisterCount;
+
+    public RegisterProgram(int[] code, long[] intConstants, double[] floatConstants, String[] strings,
+            Position[] positions, int[] intRegisters, int[] floatRegisters, int intRegisterCount,
+            int floatRegisterCount) {
+        this.code = code;
+        this.intConstants = intConstants;
+        this.floatConstants = floatConstants;
+        this.strings = strings;
+        this.positions = positions;
+        this.intRegisters = intRegisters;
+        this.floatRegisters = floatRegisters;
+        this.intRegisterCount = intRegisterCount;
+        this.floatRegisterCount = floatRegisterCount;
+    }
+
+    public int[] getCode() {
+        return code;
+    }
+
+    public long[] getIntConstants() {
+        return intConstants;
+    }
+
+    public double[] getFloatConstants() {
+        return floatConstants;
+    }
+
+    public String[] getStrings() {
+        return strings;
+    }
+
+    public Position[] getPositions() {
+        return positions;
+    }
+
+    // The long register of every variable by slot, or -1 for a FLOAT variable
+    public int[] getIntRegisters() {
+        return intRegisters;
+    }
+
+    // The double register of every variable by slot, or -1 for the other types
+    public int[] getFloatRegisters() {
+        return floatRegisters;
+    }
+
+    public int getIntRegisterCount() {
+        return intRegisterCount;
+    }
+
+    public int getFloatRegisterCount() {
+        return floatRegisterCount;
+    }
+}
@@ -0,0 +1,133 @@
+package src.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import src.nodes.*;
+import src.utils.Symbol;
+import src.utils.Token;
+import src.utils.Type;
+
+// The variables a compiled program keeps a has-value flag for, so DISPLAY
+// prints one that has no value as null the way the interpreter does. A
+// variable is tracked when it can be without a value, because it is declared
+// without one or copied from one that can be, and DISPLAY shows it or it is
+// copied into a variable that is shown. Copying is x = y or x = +y, which
+// keep whether y has a value, every other assignment and SCAN give one.
+// The flags are numbered from the first register or local the engine has
+// free, a copy between two tracked variables copies the flag
+class UnsetVariables {
+    private final int[] flags;
+    private int count;
+
+    UnsetVariables(Symbol[] frame, ProgramNode program, int first) {
+        boolean[] unset = new boolean[frame.length];
+        boolean[] shown = new boolean[frame.length];
+        List<int[]> copies = new ArrayList<>();
+
+        for (int i = 0; i < frame.length; i++) {
+            unset[i] = !frame[i].hasValue();
+        }
+
+        collect(program.getStatements(), shown, copies);
+
+        boolean changed = true;
+
+        while (changed) {
+            changed = false;
+
+            for (int[] copy : copies) {
+                if (unset[copy[1]] && !unset[copy[0]]) {
+                    unset[copy[0]] = true;
+                    changed = true;
+                }
+
+                if (shown[copy[0]] && !shown[copy[1]]) {
+                    shown[copy[1]] = true;
+                    changed = true;
+                }
+            }
+        }
+
+        flags = new int[frame.length];
+
+        for (int i = 0; i < frame.length; i++) {
+            flags[i] = unset[i] && shown[i] ? first + count++ : -1;
+        }
+    }
+
+    // The flag of a variable, or -1 when it is not tracked
+    int flag(int slot) {
+        return flags[slot];
+    }
+
+    int count() {
+        return count;
+    }
+
+    // The flag an assignment copies, or -1 when it gives the variable a value
+    int copiedFlag(ExpressionNode expression) {
+        int source = copiedSlot(expression);
+        return source >= 0 ? flags[source] : -1;
+    }
+
+    // The slot an assignment copies from, or -1 when it always gives a value
+    static int copiedSlot(ExpressionNode expression) {
+        if (expression instanceof UnaryNode) {
+            UnaryNode unary = (UnaryNode) expression;
+            Type operator = unary.getOperator().getType();
+
+            if (operator == Type.NOT || operator == Type.NEGATIVE) {
+                return -1;
+            }
+
+            expression = unary.getOperand();
+        }
+
+        return expression instanceof VariableNode ? ((VariableNode) expression).getSlot() : -1;
+    }
+
+    // The shown variables and every copy as its target and source slot
+    private static void collect(List<StatementNode> statements, boolean[] shown, List<int[]> copies) {
+        for (StatementNode statement : statements) {
+            if (statement instanceof AssignmentNode) {
+                collect((AssignmentNode) statement, copies);
+            } else if (statement instanceof DisplayNode) {
+                for (Token token : ((DisplayNode) statement).getArguments()) {
+                    if (token.getType() == Type.IDENTIFIER) {
+                        shown[token.getSlot()] = true;
+                    }
+                }
+            } else if (statement instanceof IfStatementNode) {
+                IfStatementNode chain = (IfStatementNode) statement;
+
+                for (IfNode branch : chain.getBranches()) {
+                    collect(branch.getStatements(), shown, copies);
+                }
+
+                if (chain.getElseBranch() != null) {
+                    collect(chain.getElseBranch().getStatements(), shown, copies);
+                }
+            } else if (statement instanceof WhileNode) {
+                collect(((WhileNode) statement).getStatements(), shown, copies);
+            } else if (statement instanceof ForNode) {
+                ForNode loop = (ForNode) statement;
+
+                if (loop.getInitialization() != null) {
+                    collect(loop.getInitialization(), copies);
+                }
+
+                collect(loop.getUpdate(), copies);
+                collect(loop.getStatements(), shown, copies);
+            }
+        }
+    }
+
+    private static void collect(AssignmentNode assignment, List<int[]> copies) {
+        int source = copiedSlot(assignment.getExpression());
+
+        if (source >= 0) {
+            copies.add(new int[] { assignment.getVariable().getSlot(), source });
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package src.lexer;
+
+import src.utils.Type;
+
+// The keywords and operators the lexer recognizes by their text, stored in a
+// trie over ASCII characters. A lookup walks the input once from the current
+// position and returns the longest entry it passes, so each character is
+// looked at a single time no matter how many keywords there are
+public class KeywordTrie {
+
+    public static class Keyword {
+        private final String text;
+        private final Type type;
+
+        Keyword(String text, Type type) {
+            this.text = text;
+            this.type = type;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public Type getType() {
+            return type;
+        }
+    }
+
+    private static class Node {
+        final Node[] children = new Node[128];
+        Keyword keyword;
+    }
+
+    private final Node root = new Node();
+
+    public void add(String text, Type type) {
+        Node node = root;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+
+            if (node.children[c] == null) {
+                node.children[c] = new Node();
+            }
+            node = node.children[c];
+        }
+
+        node.keyword = new Keyword(text, type);
+    }
+
+    // Like trying startsWith for every entry, longest first. There is no word
+    // boundary check, an identifier that starts with a keyword is split the same way
+    public Keyword match(CharSequence input, int start) {
+        Node node = root;
+        Keyword longest = null;
+
+        for (int i = start; i < input.length(); i++) {
+            char c = input.charAt(i);
+
+            if (c >= 128 || node.children[c] == null) {
+                break;
+            }
+
+            node = node.children[c];
+
+            if (node.keyword != null) {
+                longest = node.keyword;
+            }
+        }
+
+        return longest;
+    }
+}
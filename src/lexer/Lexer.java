@@ -1,393 +1,492 @@
 package src.lexer;
 
-import java.util.List;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
 import src.utils.Position;
-import src.utils.Token;
+import src.utils.TokenStream;
 import src.utils.Type;
 
-public class Lexer {
-    private final String input;
-    private Position position;
+public final class Lexer implements TokenStream.Filler {
+
+    // Everything recognized by its text alone. Looked up once per token
+    // instead of trying every keyword with startsWith
+    private static final KeywordTrie KEYWORDS = new KeywordTrie();
+
+    // Inside DISPLAY only the logical operators are keywords
+    private static final KeywordTrie DISPLAY_KEYWORDS = new KeywordTrie();
+
+    static {
+        KEYWORDS.add("BEGIN CODE", Type.BEGIN_CODE);
+        KEYWORDS.add("END CODE", Type.END_CODE);
+        KEYWORDS.add("DISPLAY", Type.DISPLAY);
+        KEYWORDS.add("SCAN", Type.SCAN);
+        KEYWORDS.add("AND", Type.AND);
+        KEYWORDS.add("OR", Type.OR);
+        KEYWORDS.add("NOT", Type.NOT);
+        KEYWORDS.add("IF", Type.IF);
+        KEYWORDS.add("ELSE IF", Type.ELSE_IF);
+        KEYWORDS.add("ELSE", Type.ELSE);
+        KEYWORDS.add("BEGIN IF", Type.BEGIN_IF);
+        KEYWORDS.add("END IF", Type.END_IF);
+        KEYWORDS.add("WHILE", Type.WHILE);
+        KEYWORDS.add("BEGIN WHILE", Type.BEGIN_WHILE);
+        KEYWORDS.add("END WHILE", Type.END_WHILE);
+        KEYWORDS.add("FOR", Type.FOR);
+        KEYWORDS.add("BEGIN FOR", Type.BEGIN_FOR);
+        KEYWORDS.add("END FOR", Type.END_FOR);
+        KEYWORDS.add("CONTINUE", Type.CONTINUE);
+        KEYWORDS.add("BREAK", Type.BREAK);
+
+        KEYWORDS.add("==", Type.EQUAL);
+        KEYWORDS.add("=", Type.ASSIGNMENT);
+        KEYWORDS.add(">=", Type.GREATER_EQUAL);
+        KEYWORDS.add(">", Type.GREATER);
+        KEYWORDS.add("<=", Type.LESS_EQUAL);
+        KEYWORDS.add("<>", Type.NOT_EQUAL);
+        KEYWORDS.add("<", Type.LESS);
+        KEYWORDS.add("*", Type.MULTIPLY);
+        KEYWORDS.add("/", Type.DIVIDE);
+        KEYWORDS.add("%", Type.MODULO);
+        KEYWORDS.add(":", Type.COLON);
+        KEYWORDS.add(",", Type.COMMA);
+        KEYWORDS.add(";", Type.DELIMITER);
+        KEYWORDS.add("$", Type.NEXT_LINE);
+        KEYWORDS.add("(", Type.LEFT_PARENTHESIS);
+        KEYWORDS.add(")", Type.RIGHT_PARENTHESIS);
+        KEYWORDS.add("[", Type.ESCAPE_CODE_OPEN);
+        KEYWORDS.add("]", Type.ESCAPE_CODE_CLOSE);
+
+        DISPLAY_KEYWORDS.add("AND", Type.AND);
+        DISPLAY_KEYWORDS.add("OR", Type.OR);
+        DISPLAY_KEYWORDS.add("NOT", Type.NOT);
+    }
+
+    // How much of a streamed source is read at a time
+    private static final int CHUNK = 8192;
+
+    // Sources at least this large are lexed in chunks on the common pool
+    private static final int PARALLEL_THRESHOLD = 1 << 20;
+    private static final int MIN_PARALLEL_CHUNK = 1 << 18;
+
+    private CharSequence input;
     private int counter;
+    private int end;
     private int indentLevel;
-    private List<Token> tokens = new ArrayList<>();
+    private final TokenStream tokens;
+
+    // Only for a streamed source. The input is then a window of whole lines
+    // that starts at offset base of the source
+    private final BufferedReader reader;
+    private int base;
+    private int lastLineStart;
+    private boolean endOfInput;
+    private boolean finished;
+
+    // The line and where it starts, counted up to the offset scanned
+    private int line = 1;
+    private int lineStart;
+    private int scanned;
+
+    // Only for one chunk of a source lexed in parallel, or lines lexed on
+    // their own. The indentation of the first line, and how many characters
+    // each level of it takes
+    private boolean chunk;
+    private boolean excerpt;
+    private int startIndent;
+    private int indentWidth;
+
+    public Lexer(CharSequence input) {
+        this.input = input;
+        this.tokens = new TokenStream(input);
+        this.reader = null;
+        this.chunk = false;
+        this.counter = 0;
+        this.end = input.length();
+        this.indentLevel = 0;
+    }
 
-    public Lexer(String input) {
+    private Lexer(CharSequence input, int start, int end) {
         this.input = input;
-        this.position = new Position(1, 1);
+        this.tokens = new TokenStream(input);
+        this.reader = null;
+        this.chunk = true;
+        this.counter = start;
+        this.end = end;
+        this.indentLevel = 0;
+    }
+
+    public Lexer(Reader reader) {
+        this.input = "";
+        this.tokens = new TokenStream(this);
+        this.reader = new BufferedReader(reader, CHUNK);
+        this.chunk = false;
         this.counter = 0;
         this.indentLevel = 0;
     }
 
-    public List<Token> tokenize() {
+    public TokenStream tokenize() {
+
+        if (input.length() >= PARALLEL_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1
+                && tokenizeParallel()) {
+            counter = input.length();
+        }
 
         while (counter < input.length()) {
-            char currentChar = input.charAt(counter);
-            if (input.startsWith("BEGIN CODE", counter)) {
-                tokens.add(new Token(Type.BEGIN_CODE, "BEGIN CODE",
-                        new Position(position.getLine(), position.getColumn())));
-                position.add("BEGIN CODE".length());
-                counter += "BEGIN CODE".length();
-            }
-            else if (input.startsWith("END CODE", counter)) {
-                tokens.add(
-                        new Token(Type.END_CODE, "END CODE", new Position(position.getLine(), position.getColumn())));
-                position.add("END CODE".length());
-                counter += "END CODE".length();
-            }
-            else if (input.startsWith("DISPLAY", counter)) {
-                tokens.add(new Token(Type.DISPLAY, "DISPLAY", new Position(position.getLine(), position.getColumn())));
-                position.add("DISPLAY".length());
-                counter += "DISPLAY".length();
-                tokens = tokenizeDisplay(tokens);
-            }
-            else if (input.startsWith("SCAN", counter)) {
-                tokens.add(new Token(Type.SCAN, "SCAN", new Position(position.getLine(), position.getColumn())));
-                position.add("SCAN".length());
-                counter += "SCAN".length();
-            }
-            else if (input.startsWith("AND", counter)) {
-                tokens.add(new Token(Type.AND, "AND", new Position(position.getLine(), position.getColumn())));
-                position.add("AND".length());
-                counter += "AND".length();
-            }
-            else if (input.startsWith("OR", counter)) {
-                tokens.add(new Token(Type.OR, "OR", new Position(position.getLine(), position.getColumn())));
-                position.add("OR".length());
-                counter += "OR".length();
-            }
-            else if (input.startsWith("NOT", counter)) {
-                tokens.add(new Token(Type.NOT, "NOT", new Position(position.getLine(), position.getColumn())));
-                position.add("NOT".length());
-                counter += "NOT".length();
-            }
-            else if (input.startsWith("IF", counter)) {
-                tokens.add(new Token(Type.IF, "IF", new Position(position.getLine(), position.getColumn())));
-                position.add("IF".length());
-                counter += "IF".length();
-            }
-            else if (input.startsWith("ELSE IF", counter)) {
-                tokens.add(new Token(Type.ELSE_IF, "ELSE IF", new Position(position.getLine(), position.getColumn())));
-                position.add("ELSE IF".length());
-                counter += "ELSE IF".length();
-            }
-            else if (input.startsWith("ELSE", counter)) {
-                tokens.add(new Token(Type.ELSE, "ELSE", new Position(position.getLine(), position.getColumn())));
-                position.add("ELSE".length());
-                counter += "ELSE".length();
-            }
-            else if (input.startsWith("BEGIN IF", counter)) {
-                tokens.add(
-                        new Token(Type.BEGIN_IF, "BEGIN IF", new Position(position.getLine(), position.getColumn())));
-                position.add("BEGIN IF".length());
-                counter += "BEGIN IF".length();
-            }
-            else if (input.startsWith("END IF", counter)) {
-                tokens.add(new Token(Type.END_IF, "END IF", new Position(position.getLine(), position.getColumn())));
-                position.add("END IF".length());
-                counter += "END IF".length();
-            }
-            else if (input.startsWith("WHILE", counter)) {
-                tokens.add(new Token(Type.WHILE, "WHILE", new Position(position.getLine(), position.getColumn())));
-                position.add("WHILE".length());
-                counter += "WHILE".length();
-            }
-            else if (input.startsWith("BEGIN WHILE", counter)) {
-                tokens.add(new Token(Type.BEGIN_WHILE, "BEGIN WHILE",
-                        new Position(position.getLine(), position.getColumn())));
-                position.add("BEGIN WHILE".length());
-                counter += "BEGIN WHILE".length();
-            }
-            else if (input.startsWith("END WHILE", counter)) {
-                tokens.add(
-                        new Token(Type.END_WHILE, "END WHILE", new Position(position.getLine(), position.getColumn())));
-                position.add("END WHILE".length());
-                counter += "END WHILE".length();
-            }
-            else if (input.startsWith("FOR", counter)) {
-                tokens.add(new Token(Type.FOR, "FOR", new Position(position.getLine(), position.getColumn())));
-                position.add("FOR".length());
-                counter += "FOR".length();
-            }
-            else if (input.startsWith("BEGIN FOR", counter)) {
-                tokens.add(new Token(Type.BEGIN_FOR, "BEGIN FOR",
-                        new Position(position.getLine(), position.getColumn())));
-                position.add("BEGIN FOR".length());
-                counter += "BEGIN FOR".length();
-            }
-            else if (input.startsWith("END FOR", counter)) {
-                tokens.add(
-                        new Token(Type.END_FOR, "END FOR", new Position(position.getLine(), position.getColumn())));
-                position.add("END FOR".length());
-                counter += "END FOR".length();
-            }
-            else if (input.startsWith("CONTINUE", counter)) {
-                tokens.add(
-                        new Token(Type.CONTINUE, "CONTINUE", new Position(position.getLine(), position.getColumn())));
-                position.add("CONTINUE".length());
-                counter += "CONTINUE".length();
-            }
-            else if (input.startsWith("BREAK", counter)) {
-                tokens.add(new Token(Type.BREAK, "BREAK", new Position(position.getLine(), position.getColumn())));
-                position.add("BREAK".length());
-                counter += "BREAK".length();
-            }
-            else if (currentChar == '=') {
-                if (input.charAt(counter + 1) == '=') {
-                    tokens.add(new Token(Type.EQUAL, "==", new Position(position.getLine(), position.getColumn())));
-                    position.add("==".length());
-                    counter += 2;
-                } else {
-                    tokens.add(new Token(Type.ASSIGNMENT, "=", new Position(position.getLine(), position.getColumn())));
-                    position.add(1);
-                    counter++;
-                }
-            }
-            else if (currentChar == ':') {
-                tokens.add(new Token(Type.COLON, ":", new Position(position.getLine(), position.getColumn())));
-                position.add(1);
-                counter++;
-            }
-            else if (currentChar == ',') {
-                tokens.add(new Token(Type.COMMA, ",", new Position(position.getLine(), position.getColumn())));
-                position.add(1);
-                counter++;
-            }
-            else if (currentChar == '\'') {
-                tokens.add(tokenizeLiteral());
-            }
-            else if (currentChar == '\"') {
-                tokens.add(tokenizeLiteral());
-            }
-            else if (currentChar == '&') {
-                tokens.add(new Token(Type.CONCATENATION, "$", new Position(position.getLine(), position.getColumn())));
-                position.add(1);
-                counter++;
-            }
-            else if (currentChar == '$') {
-                tokens.add(new Token(Type.NEXT_LINE, "$", new Position(position.getLine(), position.getColumn())));
-                position.add(1);
-                counter++;
-            }
-            else if (currentChar == '(') {
-                tokens.add(
-                        new Token(Type.LEFT_PARENTHESIS, "(", new Position(position.getLine(), position.getColumn())));
-                position.add(1);
-                counter++;
+            tokenizeNext();
+        }
+
+        addToken(Type.EOF, "");
+        tokens.trimToSize();
+        return tokens;
+    }
+
+    // Splits the input at newlines where the state of the lexer is known
+    // without lexing what comes before, lexes the chunks on the common pool
+    // and joins their tokens. Returns false, with nothing added, when a chunk
+    // did not end where the next one starts or ran into an error, so the
+    // input is lexed in order instead and the first error is the one reported
+    private boolean tokenizeParallel() {
+        int length = input.length();
+        int size = Math.max(length / (ForkJoinPool.getCommonPoolParallelism() * 4), MIN_PARALLEL_CHUNK);
+        List<Lexer> chunks = new ArrayList<>();
+        int start = 0;
+
+        for (int split = size; split < length; split = Math.max(split, start) + size) {
+            while (split < length && !isChunkStart(split)) {
+                split++;
             }
-            else if (currentChar == ')') {
-                tokens.add(
-                        new Token(Type.RIGHT_PARENTHESIS, ")", new Position(position.getLine(), position.getColumn())));
-                position.add(1);
-                counter++;
+
+            if (split < length) {
+                chunks.add(new Lexer(input, start, split));
+                start = split;
             }
-            else if (currentChar == '[') {
-                tokens.add(
-                        new Token(Type.ESCAPE_CODE_OPEN, "[", new Position(position.getLine(), position.getColumn())));
-                position.add(1);
-                counter++;
+        }
+        chunks.add(new Lexer(input, start, length));
+
+        List<ForkJoinTask<Boolean>> tasks = new ArrayList<>();
+        for (Lexer lexer : chunks) {
+            tasks.add(ForkJoinPool.commonPool().submit(lexer::tokenizeChunk));
+        }
+
+        boolean complete = true;
+        for (ForkJoinTask<Boolean> task : tasks) {
+            complete &= task.join();
+        }
+
+        if (!complete) {
+            return false;
+        }
+
+        tokens.append(chunks.get(0).tokens, 0);
+        indentLevel = chunks.get(0).indentLevel;
+
+        for (int i = 1; i < chunks.size(); i++) {
+            Lexer next = chunks.get(i);
+            int newline = next.tokens.getOffset(0);
+
+            // The newline the chunk starts with is only a token when the one before it was not
+            if (tokens.getLastType() != Type.NEWLINE) {
+                tokens.append(next.tokens, 0, 1);
             }
-            else if (currentChar == ']') {
-                tokens.add(
-                        new Token(Type.ESCAPE_CODE_CLOSE, "]", new Position(position.getLine(), position.getColumn())));
-                position.add(1);
-                counter++;
+
+            // Now that the indentation before the chunk is known, the INDENT
+            // and DEDENT tokens its first line starts with can be added
+            int position = newline + 1;
+
+            for (int level = indentLevel; level < next.startIndent; level++) {
+                tokens.add(Type.INDENT, position, 0, position);
+                position += next.indentWidth;
             }
-            else if (currentChar == '+') {
-                Token latest_token = tokens.get(tokens.size() - 1);
-                if (latest_token.getType() == Type.ADD ||
-                        latest_token.getType() == Type.SUBTRACT ||
-                        latest_token.getType() == Type.MULTIPLY ||
-                        latest_token.getType() == Type.DIVIDE ||
-                        latest_token.getType() == Type.MODULO ||
-                        latest_token.getType() == Type.GREATER ||
-                        latest_token.getType() == Type.LESS ||
-                        latest_token.getType() == Type.ASSIGNMENT ||
-                        latest_token.getType() == Type.EQUAL ||
-                        latest_token.getType() == Type.GREATER_EQUAL ||
-                        latest_token.getType() == Type.LESS_EQUAL ||
-                        latest_token.getType() == Type.NOT_EQUAL ||
-                        latest_token.getType() == Type.AND ||
-                        latest_token.getType() == Type.OR ||
-                        latest_token.getType() == Type.NOT ||
-                        latest_token.getType() == Type.NEGATIVE ||
-                        latest_token.getType() == Type.POSITIVE ||
-                        latest_token.getType() == Type.LEFT_PARENTHESIS) {
-                    tokens.add(new Token(Type.POSITIVE, "+", new Position(position.getLine(), position.getColumn())));
-                    position.add(1);
-                    counter++;
-                } else {
-                    tokens.add(new Token(Type.ADD, "+", new Position(position.getLine(), position.getColumn())));
-                    position.add(1);
-                    counter++;
-                }
+            for (int level = indentLevel; level > next.startIndent; level--) {
+                tokens.add(Type.DEDENT, position, 0, position);
             }
-            else if (currentChar == '-') {
-                Token latest_token = tokens.get(tokens.size() - 1);
-                if (latest_token.getType() == Type.ADD ||
-                        latest_token.getType() == Type.SUBTRACT ||
-                        latest_token.getType() == Type.MULTIPLY ||
-                        latest_token.getType() == Type.DIVIDE ||
-                        latest_token.getType() == Type.GREATER ||
-                        latest_token.getType() == Type.LESS ||
-                        latest_token.getType() == Type.ASSIGNMENT ||
-                        latest_token.getType() == Type.EQUAL ||
-                        latest_token.getType() == Type.GREATER_EQUAL ||
-                        latest_token.getType() == Type.LESS_EQUAL ||
-                        latest_token.getType() == Type.NOT_EQUAL ||
-                        latest_token.getType() == Type.AND ||
-                        latest_token.getType() == Type.OR ||
-                        latest_token.getType() == Type.NOT ||
-                        latest_token.getType() == Type.NEGATIVE ||
-                        latest_token.getType() == Type.POSITIVE ||
-                        latest_token.getType() == Type.LEFT_PARENTHESIS) {
-                    tokens.add(new Token(Type.NEGATIVE, "-", new Position(position.getLine(), position.getColumn())));
-                    position.add(1);
-                    counter++;
-                } else {
-                    tokens.add(new Token(Type.SUBTRACT, "-", new Position(position.getLine(), position.getColumn())));
-                    position.add(1);
-                    counter++;
-                }
+
+            tokens.append(next.tokens, 1);
+            indentLevel = next.indentLevel;
+        }
+
+        return true;
+    }
+
+    // A chunk starts at a newline when the lexer is certain to stop there and
+    // its state there does not depend on what came before: the line before
+    // ends in a token and has no comment, the line after starts with a token
+    private boolean isChunkStart(int offset) {
+        if (input.charAt(offset) != '\n' || offset == 0 || offset + 2 >= input.length()
+                || Character.isWhitespace(input.charAt(offset - 1))) {
+            return false;
+        }
+
+        for (int i = offset - 1; i >= 0 && input.charAt(i) != '\n'; i--) {
+            if (input.charAt(i) == '#') {
+                return false;
             }
-            else if (currentChar == '*') {
-                tokens.add(new Token(Type.MULTIPLY, "*", new Position(position.getLine(), position.getColumn())));
-                position.add(1);
+        }
+
+        int first = offset + 1;
+        while (first < input.length() && (input.charAt(first) == ' ' || input.charAt(first) == '\t')) {
+            first++;
+        }
+
+        return first < input.length() && input.charAt(first) != '#'
+                && !Character.isWhitespace(input.charAt(first));
+    }
+
+    // Lexes the input from counter to end. A chunk after the first one starts
+    // with its newline and leaves the indentation of the next line for the join
+    private boolean tokenizeChunk() {
+        try {
+            if (counter > 0) {
+                addToken(Type.NEWLINE, "\n");
                 counter++;
+
+                startIndent = indentOf(counter);
+                indentLevel = startIndent;
             }
-            else if (currentChar == '/') {
-                tokens.add(new Token(Type.DIVIDE, "/", new Position(position.getLine(), position.getColumn())));
-                position.add(1);
-                counter++;
+
+            while (counter < end) {
+                tokenizeNext();
             }
-            else if (currentChar == '%') {
-                tokens.add(new Token(Type.MODULO, "%", new Position(position.getLine(), position.getColumn())));
-                position.add(1);
-                counter++;
+        } catch (ChunkFailure e) {
+            return false;
+        }
+
+        return counter == end;
+    }
+
+    // The indentation level of the line starting at offset, the same way checkIndentLevel counts it
+    private int indentOf(int offset) {
+        int spaces = 0, tabs = 0;
+
+        while (offset < input.length() && (input.charAt(offset) == ' ' || input.charAt(offset) == '\t')) {
+            if (input.charAt(offset) == ' ') {
+                spaces++;
+            } else {
+                tabs++;
             }
-            else if (currentChar == '>') {
-                if (input.charAt(counter + 1) == '=') {
-                    tokens.add(new Token(Type.GREATER_EQUAL, ">=",
-                            new Position(position.getLine(), position.getColumn())));
-                    position.add(2);
-                    counter += 2;
-                } else {
-                    tokens.add(new Token(Type.GREATER, ">", new Position(position.getLine(), position.getColumn())));
-                    position.add(1);
-                    counter++;
-                }
+            offset++;
+        }
+
+        if ((spaces > 0 && tabs > 0) || spaces % 4 != 0) {
+            throw new ChunkFailure();
+        }
+
+        indentWidth = spaces > 0 ? 4 : 1;
+        return spaces > 0 ? spaces / 4 : tabs;
+    }
+
+    // Lexes whole lines cut out of a program, as they would be lexed in place
+    // when the line before them is at the given indentation level. Returns
+    // null when that is not certain: the first line is at another level, the
+    // last line leaves another level behind, or there is an error, which is
+    // then left for lexing the whole program to report
+    public TokenStream tokenizeLines(int level) {
+        chunk = true;
+        excerpt = true;
+
+        // Blank lines make no tokens, in place they are skipped the same way
+        while (counter < input.length() && input.charAt(counter) == '\n') {
+            counter++;
+        }
+
+        try {
+            if (counter < input.length() && indentOf(counter) != level) {
+                return null;
             }
-            else if (currentChar == '<') {
-                if (input.charAt(counter + 1) == '=') {
-                    tokens.add(
-                            new Token(Type.LESS_EQUAL, "<=", new Position(position.getLine(), position.getColumn())));
-                    position.add(2);
-                    counter += 2;
-                } else if (input.charAt(counter + 1) == '>') {
-                    tokens.add(new Token(Type.NOT_EQUAL, "<>", new Position(position.getLine(), position.getColumn())));
-                    position.add(2);
-                    counter += 2;
-                } else {
-                    tokens.add(new Token(Type.LESS, "<", new Position(position.getLine(), position.getColumn())));
-                    position.add(1);
-                    counter++;
-                }
 
+            indentLevel = level;
+
+            while (counter < input.length()) {
+                tokenizeNext();
             }
-            else if (currentChar == '#') {
+        } catch (ChunkFailure e) {
+            return null;
+        }
 
-                // Skip comments
+        if (indentLevel != level) {
+            return null;
+        }
 
-                while (counter < input.length() && input.charAt(counter) != '\n') {
-                    counter++;
-                    position.add(1);
-                }
+        addToken(Type.EOF, "");
+        tokens.trimToSize();
+        return tokens;
+    }
 
-                counter++;
-                position.newLine();
+    // Pull mode over a Reader: the parser asks the stream for tokens and the
+    // stream lexes just enough to hand out one more
+    public TokenStream stream() {
+        return tokens;
+    }
 
-                List<Token> indents = checkIndentLevel(position);
+    @Override
+    public boolean fill() {
+        int size = tokens.size();
 
-                if (indents != null) {
-                    tokens.addAll(indents);
-                }
-            }
-            else if (currentChar == ';') {
-                tokens.add(new Token(Type.DELIMITER, ";", new Position(position.getLine(), position.getColumn())));
-                position.add(1);
-                counter++;
+        while (tokens.size() == size) {
+            refill();
+
+            if (counter < input.length()) {
+                tokenizeNext();
+            } else if (!finished) {
+                addToken(Type.EOF, "");
+                finished = true;
+            } else {
+                return false;
             }
-            else if (currentChar == '\n') {
+        }
 
-                if (input.charAt(counter - 1) == '\n' || tokens.get(tokens.size() - 1).getType() == Type.NEWLINE) {
-                    counter++;
-                    position.newLine();
-                } else {
-                    tokens.add(new Token(Type.NEWLINE, "\n", new Position(position.getLine(), position.getColumn())));
-                    counter++;
-                    position.newLine();
-                }
+        return true;
+    }
 
-                if (counter + 1 < input.length() && (input.charAt(counter) != '\n')) {
-                    List<Token> indents = checkIndentLevel(position);
+    private void tokenizeNext() {
+        char currentChar = input.charAt(counter);
+        KeywordTrie.Keyword keyword = KEYWORDS.match(input, counter);
 
-                    if (indents != null) {
-                        tokens.addAll(indents);
-                    }
-                }
+        if (keyword != null) {
+            addToken(keyword.getType(), keyword.getText());
+            counter += keyword.getText().length();
 
+            if (keyword.getType() == Type.DISPLAY) {
+                tokenizeDisplay();
             }
-            else if (Character.isLetter(currentChar) || currentChar == '_') {
-                tokens.add(tokenizeIdentifier());
+        }
+        else if (currentChar == '\'') {
+            tokenizeLiteral();
+        }
+        else if (currentChar == '\"') {
+            tokenizeLiteral();
+        }
+        else if (currentChar == '&') {
+            addToken(Type.CONCATENATION, "$");
+            counter++;
+        }
+        else if (currentChar == '+') {
+            Type latest = tokens.getLastType();
+            if (latest == Type.ADD ||
+                    latest == Type.SUBTRACT ||
+                    latest == Type.MULTIPLY ||
+                    latest == Type.DIVIDE ||
+                    latest == Type.MODULO ||
+                    latest == Type.GREATER ||
+                    latest == Type.LESS ||
+                    latest == Type.ASSIGNMENT ||
+                    latest == Type.EQUAL ||
+                    latest == Type.GREATER_EQUAL ||
+                    latest == Type.LESS_EQUAL ||
+                    latest == Type.NOT_EQUAL ||
+                    latest == Type.AND ||
+                    latest == Type.OR ||
+                    latest == Type.NOT ||
+                    latest == Type.NEGATIVE ||
+                    latest == Type.POSITIVE ||
+                    latest == Type.LEFT_PARENTHESIS) {
+                addToken(Type.POSITIVE, "+");
+                counter++;
+            } else {
+                addToken(Type.ADD, "+");
+                counter++;
             }
-            else if (Character.isDigit(currentChar)) {
-                tokens.add(tokenizeLiteral());
+        }
+        else if (currentChar == '-') {
+            Type latest = tokens.getLastType();
+            if (latest == Type.ADD ||
+                    latest == Type.SUBTRACT ||
+                    latest == Type.MULTIPLY ||
+                    latest == Type.DIVIDE ||
+                    latest == Type.GREATER ||
+                    latest == Type.LESS ||
+                    latest == Type.ASSIGNMENT ||
+                    latest == Type.EQUAL ||
+                    latest == Type.GREATER_EQUAL ||
+                    latest == Type.LESS_EQUAL ||
+                    latest == Type.NOT_EQUAL ||
+                    latest == Type.AND ||
+                    latest == Type.OR ||
+                    latest == Type.NOT ||
+                    latest == Type.NEGATIVE ||
+                    latest == Type.POSITIVE ||
+                    latest == Type.LEFT_PARENTHESIS) {
+                addToken(Type.NEGATIVE, "-");
+                counter++;
+            } else {
+                addToken(Type.SUBTRACT, "-");
+                counter++;
             }
-            else if (Character.isWhitespace(currentChar)) {
-                position.add(1);
+        }
+        else if (currentChar == '#') {
+
+            // Skip comments
+
+            while (counter < input.length() && input.charAt(counter) != '\n') {
                 counter++;
             }
-            else {
-                System.err.println("Lexer Error: Invalid character found: " + currentChar
-                        + new Position(position.getLine(), position.getColumn()));
-                System.exit(1);
+
+            counter++;
+
+            // Lines cut out of a program leave the line after them to set the indentation
+            if (!excerpt || counter < input.length()) {
+                checkIndentLevel();
             }
         }
+        else if (currentChar == '\n') {
 
-        tokens.add(new Token(Type.EOF, "", new Position(position.getLine(), position.getColumn())));
-        return tokens;
+            if (input.charAt(counter - 1) == '\n' || tokens.getLastType() == Type.NEWLINE) {
+                counter++;
+            } else {
+                addToken(Type.NEWLINE, "\n");
+                counter++;
+            }
+
+            if (counter + 1 < input.length() && (input.charAt(counter) != '\n')) {
+                checkIndentLevel();
+            }
+
+        }
+        else if (Character.isLetter(currentChar) || currentChar == '_') {
+            tokenizeIdentifier();
+        }
+        else if (Character.isDigit(currentChar)) {
+            tokenizeLiteral();
+        }
+        else if (Character.isWhitespace(currentChar)) {
+            counter++;
+        }
+        else {
+            error("Invalid character found: " + currentChar);
+        }
     }
 
-    private Token tokenizeIdentifier() {
+    private void tokenizeIdentifier() {
 
-        StringBuilder identifier = new StringBuilder();
+        int start = counter;
 
         while (counter < input.length()
                 && (Character.isLetterOrDigit(input.charAt(counter)) || input.charAt(counter) == '_')) {
-            identifier.append(input.charAt(counter));
-            position.add(1);
             counter++;
         }
 
-        String identifierStr = identifier.toString();
-
-        if (identifierStr.equals("INT")) {
-            return new Token(Type.INT, "INT", new Position(position.getLine(), position.getColumn()));
-        } else if (identifierStr.equals("CHAR")) {
-            return new Token(Type.CHAR, "CHAR", new Position(position.getLine(), position.getColumn()));
-        } else if (identifierStr.equals("FLOAT")) {
-            return new Token(Type.FLOAT, "FLOAT", new Position(position.getLine(), position.getColumn()));
-        } else if (identifierStr.equals("BOOL")) {
-            return new Token(Type.BOOL, "BOOL", new Position(position.getLine(), position.getColumn()));
+        if (spells(start, "INT")) {
+            addToken(Type.INT, start, counter - start);
+        } else if (spells(start, "CHAR")) {
+            addToken(Type.CHAR, start, counter - start);
+        } else if (spells(start, "FLOAT")) {
+            addToken(Type.FLOAT, start, counter - start);
+        } else if (spells(start, "BOOL")) {
+            addToken(Type.BOOL, start, counter - start);
         } else {
-            return new Token(Type.IDENTIFIER, identifierStr, new Position(position.getLine(), position.getColumn()));
+            addToken(Type.IDENTIFIER, start, counter - start);
         }
     }
 
-    private Token tokenizeLiteral() {
+    private void tokenizeLiteral() {
 
-        StringBuilder literal = new StringBuilder();
+        int start = counter;
 
         while (counter < input.length() && input.charAt(counter) != '\n' && input.charAt(counter) != ' '
                 && input.charAt(counter) != ',' && input.charAt(counter) != ')' && input.charAt(counter) != '('
@@ -395,283 +494,300 @@ public class Lexer {
                 && input.charAt(counter) != '*' && input.charAt(counter) != '+' && input.charAt(counter) != '-'
                 && input.charAt(counter) != '%' && input.charAt(counter) != '<' && input.charAt(counter) != '>'
                 && input.charAt(counter) != '&' && input.charAt(counter) != '|' && input.charAt(counter) != '!') {
-            literal.append(input.charAt(counter));
             counter++;
-            position.add(1);
         }
 
-        if (tokens.getLast().getType() == Type.COMMA || tokens.getLast().getType() == Type.CHAR
-                || tokens.getLast().getType() == Type.INT || tokens.getLast().getType() == Type.FLOAT
-                || tokens.getLast().getType() == Type.BOOL) {
+        int length = counter - start;
+        Type last = tokens.getLastType();
 
-            return new Token(Type.IDENTIFIER, literal.toString(),
-                    new Position(position.getLine(), position.getColumn()));
+        if (last == Type.COMMA || last == Type.CHAR || last == Type.INT || last == Type.FLOAT
+                || last == Type.BOOL) {
+
+            addToken(Type.IDENTIFIER, start, length);
+            return;
+        }
+
+        // The lexeme of a BOOL literal is the word without its quotes
+        if (spells(start, "\"TRUE\"") || spells(start, "\"FALSE\"")) {
+            addToken(Type.LITERAL, start + 1, length - 2);
+            return;
         }
 
-        if (literal.toString().equals("\"TRUE\"")) {
-            return new Token(Type.LITERAL, "TRUE",
-                    new Position(position.getLine(), position.getColumn()));
+        if (length > 0 && input.charAt(start) == '"' && input.charAt(counter - 1) == '"') {
+            addToken(Type.STRING_LITERAL, start, length);
+            return;
         }
 
-        if ((literal.toString().equals("\"FALSE\""))) {
-            return new Token(Type.LITERAL, "FALSE",
-                    new Position(position.getLine(), position.getColumn()));
+        addToken(Type.LITERAL, start, length);
+    }
+
+    // Whether the word that was just read from start up to counter is exactly this text
+    private boolean spells(int start, String text) {
+        return counter - start == text.length() && startsWith(text, start);
+    }
+
+    private boolean startsWith(String text, int start) {
+        if (start + text.length() > input.length()) {
+            return false;
         }
 
-        if (literal.toString().startsWith("\"") && literal.toString().endsWith("\"")) {
-            return new Token(Type.STRING_LITERAL, literal.toString(),
-                    new Position(position.getLine(), position.getColumn()));
+        for (int i = 0; i < text.length(); i++) {
+            if (input.charAt(start + i) != text.charAt(i)) {
+                return false;
+            }
         }
 
-        return new Token(Type.LITERAL, literal.toString(), new Position(position.getLine(), position.getColumn()));
+        return true;
     }
 
-    private List<Token> tokenizeDisplay(List<Token> tokens) {
+    // Most lexemes are the source text at the current character. The few that
+    // are not are kept as text by the stream. A token's position is wherever
+    // the lexer is when it adds it, which for words is just after their end
+    private void addToken(Type type, String lexeme) {
+        if (reader != null) {
+            countLinesTo(counter);
+            tokens.add(type, lexeme, line, base + counter - lineStart + 1);
+        } else if (startsWith(lexeme, counter)) {
+            tokens.add(type, counter, lexeme.length(), counter);
+        } else {
+            tokens.add(type, lexeme, counter);
+        }
+    }
+
+    private void addToken(Type type, int offset, int length) {
+        if (reader != null) {
+            countLinesTo(counter);
+            tokens.add(type, input.subSequence(offset, offset + length).toString(), line, base + counter - lineStart + 1);
+        } else {
+            tokens.add(type, offset, length, counter);
+        }
+    }
+
+    private Position currentPosition() {
+        if (reader == null) {
+            return tokens.positionAt(counter);
+        }
+
+        countLinesTo(counter);
+        return new Position(line, base + counter - lineStart + 1);
+    }
+
+    // Keeps the line being lexed and the one after it whole in the window,
+    // handling a newline looks at the indentation of the next line. Whatever
+    // is before the current character, except the one just before it, is dropped
+    private void refill() {
+        if (reader == null || endOfInput || counter < lastLineStart) {
+            return;
+        }
+
+        int keep = Math.max(counter - 1, 0);
+        countLinesTo(keep);
+
+        StringBuilder window = new StringBuilder(input.length() - keep + CHUNK);
+        window.append(input, keep, input.length());
+        base += keep;
+        counter -= keep;
+        lastLineStart = 0;
+
+        try {
+            while (!endOfInput && (window.length() < CHUNK || counter >= lastLineStart)) {
+                String next = reader.readLine();
+
+                if (next == null) {
+                    endOfInput = true;
+                    reader.close();
+                } else {
+                    lastLineStart = window.length();
+                    window.append(next).append('\n');
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+            System.exit(1);
+        }
+
+        input = window.toString();
+    }
+
+    // Counts the newlines of the window up to end
+    private void countLinesTo(int end) {
+        int limit = Math.min(end, input.length());
+
+        for (int i = scanned - base; i < limit; i++) {
+            if (input.charAt(i) == '\n') {
+                line++;
+                lineStart = base + i + 1;
+            }
+        }
+
+        scanned = Math.max(scanned, base + limit);
+    }
+
+    private void tokenizeDisplay() {
 
         // Parse the display string
         if (input.charAt(counter) == ':') {
-            tokens.add(new Token(Type.COLON, ":", new Position(position.getLine(),
-                    position.getColumn())));
-            position.add(1);
+            addToken(Type.COLON, ":");
             counter++;
         }
 
         // Skip trailing whitespace
         while (counter < input.length() && input.charAt(counter) == ' ') {
-            position.add(1);
             counter++;
         }
 
         // Parse the concatenated string and variables
         while (counter < input.length() && input.charAt(counter) != '\n') {
+            KeywordTrie.Keyword keyword = DISPLAY_KEYWORDS.match(input, counter);
 
             // Tokenize the concatenation operator
             if (input.charAt(counter) == '&') {
-                tokens.add(new Token(Type.CONCATENATION, "&", new Position(position.getLine(), position.getColumn())));
-                position.add(1);
+                addToken(Type.CONCATENATION, "&");
                 counter++;
 
                 // Tokenize newline character
             } else if (input.charAt(counter) == '$') {
-                tokens.add(new Token(Type.NEXT_LINE, "$", new Position(position.getLine(),
-                        position.getColumn())));
-                position.add(1);
+                addToken(Type.NEXT_LINE, "$");
                 counter++;
 
             } else if (input.charAt(counter) == '[') {
 
-                tokens.add(
-                        new Token(Type.ESCAPE_CODE_OPEN, "[", new Position(position.getLine(),
-                                position.getColumn())));
-                position.add(1);
+                addToken(Type.ESCAPE_CODE_OPEN, "[");
                 counter++;
 
                 if (input.charAt(counter) == '[' && input.charAt(counter + 1) == ']') {
-                    tokens.add(new Token(Type.SPECIAL_CHARACTER,
-                            Character.toString(input.charAt(counter)),
-                            new Position(position.getLine(), position.getColumn())));
-                    position.add(1);
+                    addToken(Type.SPECIAL_CHARACTER, counter, 1);
                     counter++;
                 } else if (input.charAt(counter) == ']' && input.charAt(counter + 1) == ']') {
-                    tokens.add(new Token(Type.SPECIAL_CHARACTER,
-                            Character.toString(input.charAt(counter)),
-                            new Position(position.getLine(), position.getColumn())));
-                    position.add(1);
+                    addToken(Type.SPECIAL_CHARACTER, counter, 1);
                     counter++;
                 } else {
                     while (input.charAt(counter) != ']') {
 
                         // Skip trailing whitespace
                         while (counter < input.length() && input.charAt(counter) == ' ') {
-                            position.add(1);
                             counter++;
                         }
 
-                        tokens.add(new Token(Type.SPECIAL_CHARACTER,
-                                Character.toString(input.charAt(counter)),
-                                new Position(position.getLine(), position.getColumn())));
-                        position.add(1);
+                        addToken(Type.SPECIAL_CHARACTER, counter, 1);
                         counter++;
                     }
                 }
 
-                tokens.add(
-                        new Token(Type.ESCAPE_CODE_CLOSE, "]", new Position(position.getLine(),
-                                position.getColumn())));
-                position.add(1);
+                addToken(Type.ESCAPE_CODE_CLOSE, "]");
                 counter++;
             } else if (input.charAt(counter) == '\'') {
-                tokens.add(tokenizeLiteral());
+                tokenizeLiteral();
             }
 
             // Tokenize quotation marks and string literal
             else if (input.charAt(counter) == '"') {
-                tokens.add(new Token(Type.DELIMITER, Character.toString('"'),
-                        new Position(position.getLine(), position.getColumn())));
-                position.add(1);
+                addToken(Type.DELIMITER, "\"");
                 counter++;
 
                 // Parse and tokenize the string literal
-                StringBuilder stringLiteral = new StringBuilder();
+                int start = counter;
                 while (counter < input.length() && input.charAt(counter) != '\n' &&
                         input.charAt(counter) != '&') {
                     if (input.charAt(counter) == '"') {
-                        tokens.add(new Token(Type.STRING_LITERAL, stringLiteral.toString(),
-                                new Position(position.getLine(), position.getColumn())));
-                        tokens.add(new Token(Type.DELIMITER, Character.toString('"'),
-                                new Position(position.getLine(), position.getColumn())));
-                        position.add(1);
+                        addToken(Type.STRING_LITERAL, start, counter - start);
+                        addToken(Type.DELIMITER, "\"");
                         counter++;
                         break;
                     }
-                    stringLiteral.append(input.charAt(counter));
                     counter++;
-                    position.add(1);
                 }
             }
             // Tokenize Number Literals
             else if (Character.isDigit(input.charAt(counter))) {
 
-                StringBuilder number = new StringBuilder();
+                int start = counter;
 
                 while (counter < input.length() &&
                         (Character.isDigit(input.charAt(counter)) || input.charAt(counter) == '.')) {
-                    number.append(input.charAt(counter));
                     counter++;
-                    position.add(1);
                 }
 
-                tokens.add(new Token(Type.LITERAL, number.toString(),
-                        new Position(position.getLine(), position.getColumn())));
+                addToken(Type.LITERAL, start, counter - start);
                 continue;
             } else if (input.charAt(counter) == '+') {
-                tokens.add(new Token(Type.ADD, "+", new Position(position.getLine(),
-                        position.getColumn())));
+                addToken(Type.ADD, "+");
                 counter++;
                 continue;
             } else if (input.charAt(counter) == '-') {
 
-                Type last = tokens.get(tokens.size() - 1).getType();
+                Type last = tokens.getLastType();
 
                 if (last == Type.ADD || last == Type.SUBTRACT || last == Type.MULTIPLY || last == Type.DIVIDE
                         || last == Type.MODULO || last == Type.GREATER || last == Type.LESS || last == Type.ASSIGNMENT
                         || last == Type.EQUAL || last == Type.GREATER_EQUAL || last == Type.LESS_EQUAL
                         || last == Type.NOT_EQUAL || last == Type.AND || last == Type.OR || last == Type.NOT
                         || last == Type.NEGATIVE || last == Type.POSITIVE || last == Type.LEFT_PARENTHESIS) {
-                    tokens.add(new Token(Type.NEGATIVE, "-", new Position(position.getLine(),
-                            position.getColumn())));
+                    addToken(Type.NEGATIVE, "-");
                     counter++;
                 }
 
-                tokens.add(new Token(Type.SUBTRACT, "-", new Position(position.getLine(),
-                        position.getColumn())));
+                addToken(Type.SUBTRACT, "-");
                 counter++;
                 continue;
             } else if (input.charAt(counter) == '*') {
-                tokens.add(new Token(Type.MULTIPLY, "*", new Position(position.getLine(),
-                        position.getColumn())));
+                addToken(Type.MULTIPLY, "*");
                 counter++;
                 continue;
             } else if (input.charAt(counter) == '/') {
-                tokens.add(new Token(Type.DIVIDE, "/", new Position(position.getLine(),
-                        position.getColumn())));
+                addToken(Type.DIVIDE, "/");
                 counter++;
                 continue;
             } else if (input.charAt(counter) == '%') {
-                tokens.add(new Token(Type.MODULO, "%", new Position(position.getLine(),
-                        position.getColumn())));
+                addToken(Type.MODULO, "%");
                 counter++;
                 continue;
             } else if (input.charAt(counter) == '>') {
                 if (input.charAt(counter + 1) == '=') {
-                    tokens.add(new Token(Type.GREATER_EQUAL, ">=",
-                            new Position(position.getLine(), position.getColumn())));
-                    position.add(2);
+                    addToken(Type.GREATER_EQUAL, ">=");
                     counter += 2;
                 } else {
-                    tokens.add(new Token(Type.GREATER, ">", new Position(position.getLine(), position.getColumn())));
-                    position.add(1);
+                    addToken(Type.GREATER, ">");
                     counter++;
                 }
             } else if (input.charAt(counter) == '<') {
                 if (input.charAt(counter + 1) == '=') {
-                    tokens.add(new Token(Type.LESS_EQUAL, "<=",
-                            new Position(position.getLine(), position.getColumn())));
-                    position.add(2);
+                    addToken(Type.LESS_EQUAL, "<=");
                     counter += 2;
                 } else if (input.charAt(counter + 1) == '>') {
-                    tokens.add(new Token(Type.NOT_EQUAL, "<>",
-                            new Position(position.getLine(), position.getColumn())));
-                    position.add(2);
+                    addToken(Type.NOT_EQUAL, "<>");
                     counter += 2;
                 } else {
-                    tokens.add(new Token(Type.LESS, "<", new Position(position.getLine(), position.getColumn())));
-                    position.add(1);
+                    addToken(Type.LESS, "<");
                     counter++;
 
                 }
             } else if (input.charAt(counter) == '=') {
                 if (input.charAt(counter + 1) == '=') {
-                    tokens.add(new Token(Type.EQUAL, "==",
-                            new Position(position.getLine(), position.getColumn())));
-                    position.add(2);
+                    addToken(Type.EQUAL, "==");
                     counter += 2;
                 } else {
-                    tokens.add(new Token(Type.ASSIGNMENT, "=", new Position(position.getLine(), position.getColumn())));
-                    position.add(1);
+                    addToken(Type.ASSIGNMENT, "=");
                     counter++;
                 }
-            } else if (input.startsWith("AND", counter)) {
-                tokens.add(new Token(Type.AND, "AND", new Position(position.getLine(), position.getColumn())));
-                position.add("AND".length());
-                counter += "AND".length();
-            } else if (input.startsWith("OR", counter)) {
-                tokens.add(new Token(Type.OR, "OR", new Position(position.getLine(), position.getColumn())));
-                position.add("OR".length());
-                counter += "OR".length();
-            } else if (input.startsWith("NOT", counter)) {
-                tokens.add(new Token(Type.NOT, "NOT", new Position(position.getLine(), position.getColumn())));
-                position.add("NOT".length());
-                counter += "NOT".length();
+            } else if (keyword != null) {
+                addToken(keyword.getType(), keyword.getText());
+                counter += keyword.getText().length();
             } else if (input.charAt(counter) == '(') {
-                tokens.add(
-                        new Token(Type.LEFT_PARENTHESIS, "(", new Position(position.getLine(), position.getColumn())));
-                position.add(1);
+                addToken(Type.LEFT_PARENTHESIS, "(");
                 counter++;
             } else if (input.charAt(counter) == ')') {
-                tokens.add(
-                        new Token(Type.RIGHT_PARENTHESIS, ")", new Position(position.getLine(), position.getColumn())));
-                position.add(1);
+                addToken(Type.RIGHT_PARENTHESIS, ")");
                 counter++;
             } else {
                 if (Character.isWhitespace(input.charAt(counter))) {
                     counter++;
-                    position.add(1);
-                    continue;
-                }
-
-                if (input.substring(counter).startsWith("AND")) {
-                    tokens.add(new Token(Type.AND, "AND", new Position(position.getLine(), position.getColumn())));
-                    position.add("AND".length());
-                    counter += "AND".length();
-                    continue;
-
-                } else if (input.substring(counter).startsWith("OR")) {
-                    tokens.add(new Token(Type.OR, "OR", new Position(position.getLine(), position.getColumn())));
-                    position.add("OR".length());
-                    counter += "OR".length();
-                    continue;
-
-                } else if (input.substring(counter).startsWith("NOT")) {
-                    tokens.add(new Token(Type.NOT, "NOT", new Position(position.getLine(), position.getColumn())));
-                    position.add("NOT".length());
-                    counter += "NOT".length();
                     continue;
                 }
 
                 // Tokenize Identifiers
                 // Parse the variable name
-                StringBuilder variableName = new StringBuilder();
+                int start = counter;
                 while (counter < input.length() &&
                         !Character.isWhitespace(input.charAt(counter))
                         && input.charAt(counter) != '&' && input.charAt(counter) != '\n' &&
@@ -682,27 +798,40 @@ public class Lexer {
                         input.charAt(counter) != '>'
                         && input.charAt(counter) != '(' && input.charAt(counter) != ')'
                         && input.charAt(counter) != '=') {
-                    variableName.append(input.charAt(counter));
                     counter++;
-                    position.add(1);
                 }
-                tokens.add(new Token(Type.IDENTIFIER, variableName.toString(),
-                        new Position(position.getLine(), position.getColumn())));
+                addToken(Type.IDENTIFIER, start, counter - start);
             }
         }
+    }
 
-        return tokens;
+    private void error(String message) {
+
+        // A chunk cannot tell if this is the first error, the whole input is lexed again in order
+        if (chunk) {
+            throw new ChunkFailure();
+        }
+
+        System.err.println("Lexer Error: " + message + currentPosition());
+        System.exit(1);
     }
 
-    private List<Token> checkIndentLevel(Position position) {
+    private static class ChunkFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        ChunkFailure() {
+            super(null, null, false, false);
+        }
+    }
+
+    private void checkIndentLevel() {
 
         if (counter < input.length() && input.charAt(counter) == '#') {
-            return null;
+            return;
         }
 
         int spaces = 0, tabs = 0, newIndentLevel;
         int temp = counter;
-        List<Token> indentTokens = new ArrayList<>();
 
         while (temp < input.length() && (input.charAt(temp) == ' ' || input.charAt(temp) == '\t')) {
             if (input.charAt(temp) == ' ') {
@@ -714,31 +843,24 @@ public class Lexer {
         }
 
         if (spaces > 0 && tabs > 0) {
-            System.err.println("Lexer Error: Mixing spaces and tabs for indentation: "
-                    + new Position(position.getLine(), position.getColumn()));
-            System.exit(1);
+            error("Mixing spaces and tabs for indentation: ");
         } else if (spaces > 0) {
             if (spaces % 4 != 0) {
-                System.err.println("Lexer Error: Invalid indentation found: "
-                        + new Position(position.getLine(), position.getColumn()));
-                System.exit(1);
+                error("Invalid indentation found: ");
             }
 
             newIndentLevel = spaces / 4;
 
             if (newIndentLevel > indentLevel) {
                 for (int i = 0; i < newIndentLevel - indentLevel; i++) {
-                    indentTokens
-                            .add(new Token(Type.INDENT, "", new Position(position.getLine(), position.getColumn())));
-                    position.add(4);
+                    addToken(Type.INDENT, "");
                     counter += 4;
                 }
                 indentLevel = newIndentLevel;
 
             } else if (newIndentLevel < indentLevel) {
                 while (newIndentLevel < indentLevel) {
-                    indentTokens
-                            .add(new Token(Type.DEDENT, "", new Position(position.getLine(), position.getColumn())));
+                    addToken(Type.DEDENT, "");
                     indentLevel--;
                 }
             }
@@ -748,9 +870,7 @@ public class Lexer {
 
             if (newIndentLevel > indentLevel) {
                 for (int i = 0; i < newIndentLevel - indentLevel; i++) {
-                    indentTokens
-                            .add(new Token(Type.INDENT, "", new Position(position.getLine(), position.getColumn())));
-                    position.add(1);
+                    addToken(Type.INDENT, "");
                     counter += 1;
                 }
                 indentLevel = newIndentLevel;
@@ -758,8 +878,7 @@ public class Lexer {
             } else if (newIndentLevel < indentLevel) {
 
                 while (newIndentLevel < indentLevel) {
-                    indentTokens
-                            .add(new Token(Type.DEDENT, "", new Position(position.getLine(), position.getColumn())));
+                    addToken(Type.DEDENT, "");
                     indentLevel--;
                 }
             }
@@ -768,12 +887,10 @@ public class Lexer {
 
             if (newIndentLevel < indentLevel) {
                 while (newIndentLevel < indentLevel) {
-                    indentTokens
-                            .add(new Token(Type.DEDENT, "", new Position(position.getLine(), position.getColumn())));
+                    addToken(Type.DEDENT, "");
                     indentLevel--;
                 }
             }
         }
-        return indentTokens;
     }
 }
\ No newline at end of file
@@ -1,28 +1,23 @@
 package src.nodes;
 
-import java.util.ArrayList;
 import java.util.List;
 import src.utils.Position;
 import src.utils.Token;
 import src.utils.Type;
 
 public class BinaryNode extends ExpressionNode {
+    private static final Token OPEN = new Token(Type.RIGHT_PARENTHESIS, "(", Position.NONE);
+    private static final Token CLOSE = new Token(Type.LEFT_PARENTHESIS, ")", Position.NONE);
+
     private final Token operator;
     private final ExpressionNode left;
     private final ExpressionNode right;
-    private List<Token> tokens = new ArrayList<>();
 
     public BinaryNode(ExpressionNode left, Token operator, ExpressionNode right) {
         super(left.getPosition());
         this.operator = operator;
         this.left = left;
         this.right = right;
-
-        tokens.add(new Token(Type.RIGHT_PARENTHESIS, "(", new Position(0, 0)));
-        tokens.addAll(left.getTokens());
-        tokens.add(operator);
-        tokens.addAll(right.getTokens());
-        tokens.add(new Token(Type.LEFT_PARENTHESIS, ")", new Position(0, 0)));
     }
 
     public Token getOperator() {
@@ -48,13 +43,11 @@ public class BinaryNode extends ExpressionNode {
     }
 
     @Override
-    public Token getToken(int index) {
-        List<Token> tokens = getTokens();
-        return tokens.get(index);
-    }
-
-    @Override
-    public List<Token> getTokens() {
-        return tokens;
+    public void addTokens(List<Token> tokens) {
+        tokens.add(OPEN);
+        left.addTokens(tokens);
+        tokens.add(operator);
+        right.addTokens(tokens);
+        tokens.add(CLOSE);
     }
 }
\ No newline at end of file
@@ -1,18 +1,57 @@
 package src.nodes;
 
+import java.util.ArrayList;
 import java.util.List;
+import src.compiler.CompiledExpression;
 import src.utils.Position;
 import src.utils.Token;
+import src.utils.Type;
 
 public abstract class ExpressionNode extends ASTNode {
+    private CompiledExpression compiled;
+
+    // Resolved by the analyzer, so the engines pick typed operations up front
+    private Type type;
 
     public abstract int countTokens();
 
-    public abstract List<Token> getTokens();
+    // Adds the tokens of the expression in source order, with each binary
+    // expression between parentheses
+    public abstract void addTokens(List<Token> tokens);
+
+    // Built from the tree on every call, a node does not keep the tokens of its operands
+    public List<Token> getTokens() {
+        List<Token> tokens = new ArrayList<>();
+        addTokens(tokens);
+        return tokens;
+    }
 
-    public abstract Token getToken(int index);
+    public Token getToken(int index) {
+        return getTokens().get(index);
+    }
 
     public ExpressionNode(Position position) {
         super(position);
     }
-}
\ No newline at end of file
+
+    public ExpressionNode(Position position, Type type) {
+        super(position);
+        this.type = type;
+    }
+
+    public CompiledExpression getCompiled() {
+        return compiled;
+    }
+
+    public void setCompiled(CompiledExpression compiled) {
+        this.compiled = compiled;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+}
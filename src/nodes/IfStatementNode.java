@@ -0,0 +1,39 @@
+package src.nodes;
+
+import java.util.List;
+import src.utils.Position;
+
+// A whole IF / ELSE IF / ELSE chain. The branches are built once by the parser
+// and tried in order, the ELSE branch is null when there is none
+public class IfStatementNode extends StatementNode {
+    private final IfNode[] branches;
+    private final ElseNode elseBranch;
+
+    public IfStatementNode(List<IfNode> branches, ElseNode elseBranch, Position position) {
+        super(position);
+        this.branches = branches.toArray(new IfNode[0]);
+        this.elseBranch = elseBranch;
+    }
+
+    public IfNode[] getBranches() {
+        return branches;
+    }
+
+    public ElseNode getElseBranch() {
+        return elseBranch;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("If Statement Chain {\n");
+        for (IfNode branch : branches) {
+            sb.append("  ").append(branch).append(",\n");
+        }
+        if (elseBranch != null) {
+            sb.append("  ").append(elseBranch).append("\n");
+        }
+        sb.append("}");
+        return sb.toString();
+    }
+}
@@ -1,19 +1,85 @@
 package src.nodes;
 
-import java.util.ArrayList;
+import java.math.BigDecimal;
 import java.util.List;
+import src.utils.Position;
 import src.utils.Token;
 import src.utils.Type;
 
 public class LiteralNode extends ExpressionNode {
 
     private final Token value;
-    private List<Token> tokens = new ArrayList<>(1);
+
+    // The type and value are worked out once when the node is built, only the
+    // field for the type is set. An INT too large for a long is left as text
+    private final Type dataType;
+    private final boolean converted;
+    private final long intValue;
+    private final double floatValue;
 
     public LiteralNode(Token value) {
         super(value.getPosition());
         this.value = value;
-        tokens.add(value);
+
+        String lexeme = value.getLexeme();
+
+        dataType = classify(lexeme);
+
+        long intValue = 0;
+        double floatValue = 0;
+        boolean converted = true;
+
+        if (dataType == Type.INT) {
+            try {
+                intValue = Long.parseLong(lexeme);
+            } catch (NumberFormatException e) {
+                converted = false;
+            }
+        } else if (dataType == Type.FLOAT) {
+            floatValue = Double.parseDouble(lexeme);
+        } else if (dataType == Type.CHAR) {
+            intValue = lexeme.charAt(1);
+        } else if (dataType == Type.BOOL) {
+            intValue = lexeme.equals("TRUE") ? 1 : 0;
+        }
+
+        this.converted = converted;
+        this.intValue = intValue;
+        this.floatValue = floatValue;
+    }
+
+    // A literal for a value worked out before the program runs, written the
+    // way it would be in the source so it reads back as the same value
+    public static LiteralNode of(Type type, long intValue, double floatValue, Position position) {
+        String lexeme;
+
+        switch (type) {
+            case INT:
+                lexeme = Long.toString(intValue);
+                break;
+            case FLOAT:
+                lexeme = Double.toString(floatValue);
+
+                if (lexeme.indexOf('E') >= 0) {
+                    lexeme = BigDecimal.valueOf(floatValue).toPlainString();
+
+                    if (lexeme.indexOf('.') < 0) {
+                        lexeme += ".0";
+                    }
+                }
+                break;
+            case BOOL:
+                lexeme = intValue != 0 ? "TRUE" : "FALSE";
+                break;
+            default:
+                lexeme = "'" + (char) intValue + "'";
+                break;
+        }
+
+        LiteralNode literal = new LiteralNode(new Token(Type.LITERAL, lexeme, position));
+        literal.setType(type);
+
+        return literal;
     }
 
     public Token getValue() {
@@ -21,13 +87,63 @@ public class LiteralNode extends ExpressionNode {
     }
 
     public Type getDataType() {
-        String lexeme = value.getLexeme();
+        return dataType;
+    }
+
+    // A literal that did not fit fails here with the same error as parsing its text
+    public long getIntValue() {
+        if (!converted) {
+            return Long.parseLong(value.getLexeme());
+        }
+
+        return intValue;
+    }
 
-        if (lexeme.matches("[0-9]+")) {
+    // False for an INT too large for a long, which only fails once its value is used
+    public boolean isConverted() {
+        return converted;
+    }
+
+    public double getFloatValue() {
+        return floatValue;
+    }
+
+    public boolean getBoolValue() {
+        return intValue != 0;
+    }
+
+    public char getCharValue() {
+        return (char) intValue;
+    }
+
+    // Digits are an INT, digits with a fraction a FLOAT, TRUE and FALSE a BOOL
+    // and one character between single quotes a CHAR. The lexer never puts a
+    // sign in a number, only a folded constant can start with one
+    private static Type classify(String lexeme) {
+        int sign = lexeme.startsWith("-") ? 1 : 0;
+        int digits = sign;
+
+        while (digits < lexeme.length() && isDigit(lexeme.charAt(digits))) {
+            digits++;
+        }
+
+        if (digits > sign && digits == lexeme.length()) {
             return Type.INT;
-        } else if (lexeme.matches("[0-9]+\\.[0-9]+")) {
-            return Type.FLOAT;
-        } else if (lexeme.equals("TRUE") || lexeme.equals("FALSE")) {
+        }
+
+        if (digits > sign && digits < lexeme.length() - 1 && lexeme.charAt(digits) == '.') {
+            int fraction = digits + 1;
+
+            while (fraction < lexeme.length() && isDigit(lexeme.charAt(fraction))) {
+                fraction++;
+            }
+
+            if (fraction == lexeme.length()) {
+                return Type.FLOAT;
+            }
+        }
+
+        if (lexeme.equals("TRUE") || lexeme.equals("FALSE")) {
             return Type.BOOL;
         } else if (lexeme.length() == 3 && lexeme.charAt(0) == '\'' && lexeme.charAt(2) == '\'') {
             return Type.CHAR;
@@ -36,19 +152,18 @@ public class LiteralNode extends ExpressionNode {
         return null;
     }
 
-    @Override
-    public String toString() {
-        return value.getLexeme();
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
     }
 
     @Override
-    public List<Token> getTokens() {
-        return tokens;
+    public String toString() {
+        return value.getLexeme();
     }
 
     @Override
-    public Token getToken(int index) {
-        return tokens.get(index);
+    public void addTokens(List<Token> tokens) {
+        tokens.add(value);
     }
 
     @Override
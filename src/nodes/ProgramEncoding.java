@@ -0,0 +1,538 @@
+package src.nodes;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import src.utils.Position;
+import src.utils.Token;
+import src.utils.Type;
+
+// The form ProgramCache writes an analyzed program to disk in, a few flat
+// arrays instead of one object per node. Each node is NODE_SIZE ints in
+// nodes: its kind, line and column and up to four fields that are a node, a
+// token or a list. A list is its length followed by its items in lists, a
+// token is its type, lexeme, line, column and slot in tokens, and every
+// lexeme is stored once in strings. Index -1 is no node. An expression keeps
+// the ordinal of its resolved type in its last field. decode() builds the
+// node objects again with their slots and types
+public class ProgramEncoding {
+    private static final Type[] TYPES = Type.values();
+
+    private static final int PROGRAM = 0;
+    private static final int DECLARATION = 1;
+    private static final int ASSIGNMENT = 2;
+    private static final int DISPLAY = 3;
+    private static final int SCAN = 4;
+    private static final int IF_CHAIN = 5;
+    private static final int IF = 6;
+    private static final int ELSE = 7;
+    private static final int WHILE = 8;
+    private static final int FOR = 9;
+    private static final int BREAK = 10;
+    private static final int CONTINUE = 11;
+    private static final int BINARY = 12;
+    private static final int UNARY = 13;
+    private static final int LITERAL = 14;
+    private static final int VARIABLE = 15;
+
+    private static final int NODE_SIZE = 7;
+    private static final int TOKEN_SIZE = 5;
+
+    // A position of null, like the literal of a declaration has
+    private static final int NO_LINE = -1;
+
+    private int[] nodes = new int[NODE_SIZE * 64];
+    private int[] lists = new int[64];
+    private int[] tokens = new int[TOKEN_SIZE * 64];
+    private String[] strings = new String[64];
+
+    private int nodeCount;
+    private int listSize;
+    private int tokenCount;
+    private int stringCount;
+
+    // Only while encoding, so a token or lexeme used twice is stored once
+    private Map<Token, Integer> tokenIds;
+    private Map<String, Integer> stringIds;
+
+    // Only while decoding, so a token used twice is one object again
+    private Token[] decoded;
+
+    private ProgramEncoding() {
+    }
+
+    // The program is the last node, it is encoded after everything in it
+    public static ProgramEncoding encode(ProgramNode program) {
+        ProgramEncoding encoding = new ProgramEncoding();
+
+        encoding.tokenIds = new IdentityHashMap<>();
+        encoding.stringIds = new HashMap<>();
+
+        encoding.addNode(PROGRAM, null, encoding.addDeclarations(program.getDeclarations()),
+                encoding.addStatements(program.getStatements()), -1, -1);
+
+        encoding.tokenIds = null;
+        encoding.stringIds = null;
+        encoding.trimToSize();
+
+        return encoding;
+    }
+
+    public ProgramNode decode() {
+        int program = nodeCount - 1;
+        List<VariableDeclarationNode> declarations = new ArrayList<>();
+
+        decoded = new Token[tokenCount];
+
+        int list = field(program, 0);
+
+        for (int i = 1; i <= lists[list]; i++) {
+            int node = lists[list + i];
+            int literal = field(node, 2);
+
+            if (literal < 0) {
+                declarations.add(new VariableDeclarationNode(token(field(node, 0)), token(field(node, 1))));
+            } else {
+                declarations.add(new VariableDeclarationNode(token(field(node, 0)), token(field(node, 1)),
+                        token(literal)));
+            }
+        }
+
+        ProgramNode decodedProgram = new ProgramNode(declarations, statements(field(program, 1)));
+        decoded = null;
+
+        return decodedProgram;
+    }
+
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(nodeCount);
+        out.writeInt(listSize);
+        out.writeInt(tokenCount);
+        out.writeInt(stringCount);
+
+        writeInts(out, nodes, nodeCount * NODE_SIZE);
+        writeInts(out, lists, listSize);
+        writeInts(out, tokens, tokenCount * TOKEN_SIZE);
+
+        for (int i = 0; i < stringCount; i++) {
+            out.writeUTF(strings[i]);
+        }
+    }
+
+    public static ProgramEncoding read(DataInput in) throws IOException {
+        ProgramEncoding encoding = new ProgramEncoding();
+
+        encoding.nodeCount = in.readInt();
+        encoding.listSize = in.readInt();
+        encoding.tokenCount = in.readInt();
+        encoding.stringCount = in.readInt();
+
+        encoding.nodes = readInts(in, encoding.nodeCount * NODE_SIZE);
+        encoding.lists = readInts(in, encoding.listSize);
+        encoding.tokens = readInts(in, encoding.tokenCount * TOKEN_SIZE);
+        encoding.strings = new String[encoding.stringCount];
+
+        for (int i = 0; i < encoding.strings.length; i++) {
+            encoding.strings[i] = in.readUTF();
+        }
+
+        return encoding;
+    }
+
+    // The arrays go through a byte buffer in one piece instead of an int at a time
+    private static void writeInts(DataOutput out, int[] values, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length * 4);
+
+        buffer.asIntBuffer().put(values, 0, length);
+        out.write(buffer.array());
+    }
+
+    private static int[] readInts(DataInput in, int length) throws IOException {
+        byte[] bytes = new byte[length * 4];
+        int[] values = new int[length];
+
+        in.readFully(bytes);
+        ByteBuffer.wrap(bytes).asIntBuffer().get(values);
+
+        return values;
+    }
+
+    private int addDeclarations(List<VariableDeclarationNode> declarations) {
+        int[] items = new int[declarations.size()];
+
+        for (int i = 0; i < items.length; i++) {
+            VariableDeclarationNode declaration = declarations.get(i);
+
+            items[i] = addNode(DECLARATION, declaration.getPosition(), addToken(declaration.getDataType()),
+                    addToken(declaration.getIdentifier()), addToken(declaration.getLiteral()), -1);
+        }
+
+        return addList(items);
+    }
+
+    private int addStatements(List<StatementNode> statements) {
+        int[] items = new int[statements.size()];
+
+        for (int i = 0; i < items.length; i++) {
+            items[i] = addStatement(statements.get(i));
+        }
+
+        return addList(items);
+    }
+
+    private int addStatement(StatementNode statement) {
+        if (statement == null) {
+            return -1;
+        }
+
+        Position position = statement.getPosition();
+
+        if (statement instanceof AssignmentNode) {
+            AssignmentNode assignment = (AssignmentNode) statement;
+
+            return addNode(ASSIGNMENT, position, addExpression(assignment.getVariable()),
+                    addExpression(assignment.getExpression()), -1, -1);
+
+        } else if (statement instanceof DisplayNode) {
+            DisplayNode display = (DisplayNode) statement;
+            int[] arguments = new int[display.getArguments().size()];
+            int[] expressions = new int[display.getExpressions().size()];
+
+            for (int i = 0; i < arguments.length; i++) {
+                arguments[i] = addToken(display.getArguments().get(i));
+            }
+
+            for (int i = 0; i < expressions.length; i++) {
+                expressions[i] = addExpression(display.getExpression(i));
+            }
+
+            return addNode(DISPLAY, position, addList(arguments), addList(expressions), -1, -1);
+
+        } else if (statement instanceof ScanNode) {
+            List<Token> identifiers = ((ScanNode) statement).getIdentifiers();
+            int[] items = new int[identifiers.size()];
+
+            for (int i = 0; i < items.length; i++) {
+                items[i] = addToken(identifiers.get(i));
+            }
+
+            return addNode(SCAN, position, addList(items), -1, -1, -1);
+
+        } else if (statement instanceof IfStatementNode) {
+            IfStatementNode chain = (IfStatementNode) statement;
+            int[] branches = new int[chain.getBranches().length];
+
+            for (int i = 0; i < branches.length; i++) {
+                IfNode branch = chain.getBranches()[i];
+
+                branches[i] = addNode(IF, branch.getPosition(), addExpression(branch.getCondition()),
+                        addStatements(branch.getStatements()), -1, -1);
+            }
+
+            int elseBranch = -1;
+
+            if (chain.getElseBranch() != null) {
+                elseBranch = addNode(ELSE, chain.getElseBranch().getPosition(),
+                        addStatements(chain.getElseBranch().getStatements()), -1, -1, -1);
+            }
+
+            return addNode(IF_CHAIN, position, addList(branches), elseBranch, -1, -1);
+
+        } else if (statement instanceof WhileNode) {
+            WhileNode loop = (WhileNode) statement;
+
+            return addNode(WHILE, position, addExpression(loop.getCondition()), addStatements(loop.getStatements()),
+                    -1, -1);
+
+        } else if (statement instanceof ForNode) {
+            ForNode loop = (ForNode) statement;
+
+            return addNode(FOR, position, addStatement(loop.getInitialization()), addExpression(loop.getCondition()),
+                    addStatement(loop.getUpdate()), addStatements(loop.getStatements()));
+
+        } else if (statement instanceof BreakNode) {
+            return addNode(BREAK, position, -1, -1, -1, -1);
+        } else if (statement instanceof ContinueNode) {
+            return addNode(CONTINUE, position, -1, -1, -1, -1);
+        }
+
+        throw new IllegalArgumentException("Cannot encode " + statement.getClass().getSimpleName());
+    }
+
+    private int addExpression(ExpressionNode expression) {
+        Position position = expression.getPosition();
+
+        if (expression instanceof BinaryNode) {
+            BinaryNode binary = (BinaryNode) expression;
+            int left = addExpression(binary.getLeft());
+            int right = addExpression(binary.getRight());
+
+            return addNode(BINARY, position, left, addToken(binary.getOperator()), right, type(expression));
+
+        } else if (expression instanceof UnaryNode) {
+            UnaryNode unary = (UnaryNode) expression;
+
+            return addNode(UNARY, position, addToken(unary.getOperator()), addExpression(unary.getOperand()), -1,
+                    type(expression));
+
+        } else if (expression instanceof LiteralNode) {
+            return addNode(LITERAL, position, addToken(((LiteralNode) expression).getValue()), -1, -1,
+                    type(expression));
+        } else if (expression instanceof VariableNode) {
+            return addNode(VARIABLE, position, addToken(((VariableNode) expression).getToken()), -1, -1,
+                    type(expression));
+        }
+
+        throw new IllegalArgumentException("Cannot encode " + expression.getClass().getSimpleName());
+    }
+
+    private static int type(ExpressionNode expression) {
+        return expression.getType() != null ? expression.getType().ordinal() : -1;
+    }
+
+    private int addNode(int kind, Position position, int a, int b, int c, int d) {
+        if ((nodeCount + 1) * NODE_SIZE > nodes.length) {
+            nodes = Arrays.copyOf(nodes, nodes.length * 2);
+        }
+
+        int at = nodeCount * NODE_SIZE;
+
+        nodes[at] = kind;
+        nodes[at + 1] = position != null ? position.getLine() : NO_LINE;
+        nodes[at + 2] = position != null ? position.getColumn() : NO_LINE;
+        nodes[at + 3] = a;
+        nodes[at + 4] = b;
+        nodes[at + 5] = c;
+        nodes[at + 6] = d;
+
+        return nodeCount++;
+    }
+
+    private int addList(int[] items) {
+        if (listSize + items.length + 1 > lists.length) {
+            lists = Arrays.copyOf(lists, Math.max(listSize + items.length + 1, lists.length * 2));
+        }
+
+        int at = listSize;
+
+        lists[at] = items.length;
+        System.arraycopy(items, 0, lists, at + 1, items.length);
+        listSize += items.length + 1;
+
+        return at;
+    }
+
+    private int addToken(Token token) {
+        if (token == null) {
+            return -1;
+        }
+
+        Integer known = tokenIds.get(token);
+
+        if (known != null) {
+            return known;
+        }
+
+        if ((tokenCount + 1) * TOKEN_SIZE > tokens.length) {
+            tokens = Arrays.copyOf(tokens, tokens.length * 2);
+        }
+
+        int at = tokenCount * TOKEN_SIZE;
+        Position position = token.getPosition();
+
+        tokens[at] = token.getType().ordinal();
+        tokens[at + 1] = addString(token.getLexeme());
+        tokens[at + 2] = position != null ? position.getLine() : NO_LINE;
+        tokens[at + 3] = position != null ? position.getColumn() : NO_LINE;
+        tokens[at + 4] = token.getSlot();
+
+        tokenIds.put(token, tokenCount);
+        return tokenCount++;
+    }
+
+    private int addString(String text) {
+        Integer known = stringIds.get(text);
+
+        if (known != null) {
+            return known;
+        }
+
+        if (stringCount == strings.length) {
+            strings = Arrays.copyOf(strings, stringCount * 2);
+        }
+
+        strings[stringCount] = text;
+        stringIds.put(text, stringCount);
+
+        return stringCount++;
+    }
+
+    private void trimToSize() {
+        nodes = Arrays.copyOf(nodes, nodeCount * NODE_SIZE);
+        lists = Arrays.copyOf(lists, listSize);
+        tokens = Arrays.copyOf(tokens, tokenCount * TOKEN_SIZE);
+        strings = Arrays.copyOf(strings, stringCount);
+    }
+
+    private int kind(int node) {
+        return nodes[node * NODE_SIZE];
+    }
+
+    private Position position(int node) {
+        return position(nodes[node * NODE_SIZE + 1], nodes[node * NODE_SIZE + 2]);
+    }
+
+    private int field(int node, int index) {
+        return nodes[node * NODE_SIZE + 3 + index];
+    }
+
+    private List<StatementNode> statements(int list) {
+        List<StatementNode> statements = new ArrayList<>(lists[list]);
+
+        for (int i = 1; i <= lists[list]; i++) {
+            statements.add(statement(lists[list + i]));
+        }
+
+        return statements;
+    }
+
+    private StatementNode statement(int node) {
+        switch (kind(node)) {
+            case ASSIGNMENT:
+                return new AssignmentNode((VariableNode) expression(field(node, 0)), expression(field(node, 1)));
+
+            case DISPLAY: {
+                int arguments = field(node, 0);
+                int expressions = field(node, 1);
+                List<Token> argumentTokens = new ArrayList<>(lists[arguments]);
+                List<ExpressionNode> expressionNodes = new ArrayList<>(lists[expressions]);
+
+                for (int i = 1; i <= lists[arguments]; i++) {
+                    argumentTokens.add(token(lists[arguments + i]));
+                }
+
+                for (int i = 1; i <= lists[expressions]; i++) {
+                    expressionNodes.add(expression(lists[expressions + i]));
+                }
+
+                return new DisplayNode(argumentTokens, expressionNodes);
+            }
+
+            case SCAN: {
+                int identifiers = field(node, 0);
+                List<Token> identifierTokens = new ArrayList<>(lists[identifiers]);
+
+                for (int i = 1; i <= lists[identifiers]; i++) {
+                    identifierTokens.add(token(lists[identifiers + i]));
+                }
+
+                return new ScanNode(identifierTokens, position(node));
+            }
+
+            case IF_CHAIN: {
+                int list = field(node, 0);
+                int elseBranch = field(node, 1);
+                List<IfNode> branches = new ArrayList<>(lists[list]);
+
+                for (int i = 1; i <= lists[list]; i++) {
+                    int branch = lists[list + i];
+
+                    branches.add(new IfNode(expression(field(branch, 0)), statements(field(branch, 1)),
+                            position(branch)));
+                }
+
+                ElseNode elseNode = elseBranch < 0 ? null
+                        : new ElseNode(statements(field(elseBranch, 0)), position(elseBranch));
+
+                return new IfStatementNode(branches, elseNode, position(node));
+            }
+
+            case WHILE:
+                return new WhileNode(expression(field(node, 0)), statements(field(node, 1)), position(node));
+
+            case FOR: {
+                int initialization = field(node, 0);
+
+                return new ForNode(initialization < 0 ? null : (AssignmentNode) statement(initialization),
+                        expression(field(node, 1)), (AssignmentNode) statement(field(node, 2)),
+                        statements(field(node, 3)), position(node));
+            }
+
+            case BREAK:
+                return new BreakNode(position(node));
+
+            case CONTINUE:
+                return new ContinueNode(position(node));
+
+            default:
+                throw new IllegalStateException("Node " + node + " is not a statement");
+        }
+    }
+
+    private ExpressionNode expression(int node) {
+        ExpressionNode expression;
+
+        switch (kind(node)) {
+            case BINARY:
+                expression = new BinaryNode(expression(field(node, 0)), token(field(node, 1)),
+                        expression(field(node, 2)));
+                break;
+
+            case UNARY:
+                expression = new UnaryNode(token(field(node, 0)), expression(field(node, 1)));
+                break;
+
+            case LITERAL:
+                expression = new LiteralNode(token(field(node, 0)));
+                break;
+
+            case VARIABLE:
+                expression = new VariableNode(token(field(node, 0)));
+                break;
+
+            default:
+                throw new IllegalStateException("Node " + node + " is not an expression");
+        }
+
+        int type = field(node, 3);
+
+        if (type >= 0) {
+            expression.setType(TYPES[type]);
+        }
+
+        return expression;
+    }
+
+    private Token token(int id) {
+        if (decoded[id] == null) {
+            int at = id * TOKEN_SIZE;
+            Token token = new Token(TYPES[tokens[at]], strings[tokens[at + 1]],
+                    position(tokens[at + 2], tokens[at + 3]));
+
+            token.setSlot(tokens[at + 4]);
+            decoded[id] = token;
+        }
+
+        return decoded[id];
+    }
+
+    private static Position position(int line, int column) {
+        if (line == NO_LINE) {
+            return null;
+        }
+
+        if (line == 0 && column == 0) {
+            return Position.NONE;
+        }
+
+        return new Position(line, column);
+    }
+}
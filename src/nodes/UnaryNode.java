@@ -1,21 +1,16 @@
 package src.nodes;
 
 import java.util.List;
-import java.util.ArrayList;
 import src.utils.Token;
 
 public class UnaryNode extends ExpressionNode {
     private final Token operator;
     private final ExpressionNode operand;
-    private final List<Token> tokens = new ArrayList<>();
 
     public UnaryNode(Token operator, ExpressionNode operand) {
         super(operator.getPosition());
         this.operator = operator;
         this.operand = operand;
-
-        tokens.add(operator);
-        tokens.addAll(operand.getTokens());
     }
 
     public Token getOperator() {
@@ -37,12 +32,8 @@ public class UnaryNode extends ExpressionNode {
     }
 
     @Override
-    public List<Token> getTokens() {
-        return tokens;
-    }
-
-    @Override
-    public Token getToken(int index) {
-        return tokens.get(index);
+    public void addTokens(List<Token> tokens) {
+        tokens.add(operator);
+        operand.addTokens(tokens);
     }
 }
\ No newline at end of file
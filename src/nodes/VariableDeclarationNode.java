@@ -30,6 +30,18 @@ public class VariableDeclarationNode extends ASTNode {
         return identifier.getLexeme();
     }
 
+    public Token getDataType() {
+        return dataType;
+    }
+
+    public Token getIdentifier() {
+        return identifier;
+    }
+
+    public Token getLiteral() {
+        return literal;
+    }
+
     public String getValue() {
         if (literal != null) {
             return literal.getLexeme();
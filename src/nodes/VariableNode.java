@@ -1,36 +1,47 @@
 package src.nodes;
 
 import java.util.List;
-import java.util.ArrayList;
 import src.utils.Token;
+import src.utils.Type;
 
 public class VariableNode extends ExpressionNode {
     private final Token name;
-    private List<Token> tokens = new ArrayList<>(1);
 
     public VariableNode(Token name) {
         super(name.getPosition());
         this.name = name;
-        tokens.add(name);
+    }
+
+    // A DISPLAY argument is only a token, the engines give it the type of its variable
+    public VariableNode(Token name, Type type) {
+        super(name.getPosition(), type);
+        this.name = name;
+    }
+
+    public Token getToken() {
+        return name;
     }
 
     public String getName() {
         return name.getLexeme();
     }
 
-    @Override
-    public String toString() {
-        return name.getLexeme();
+    public int getSlot() {
+        return name.getSlot();
+    }
+
+    public void setSlot(int slot) {
+        name.setSlot(slot);
     }
 
     @Override
-    public List<Token> getTokens() {
-        return tokens;
+    public String toString() {
+        return name.getLexeme();
     }
 
     @Override
-    public Token getToken(int index) {
-        return tokens.get(index);
+    public void addTokens(List<Token> tokens) {
+        tokens.add(name);
     }
 
     @Override
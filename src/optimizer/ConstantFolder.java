@@ -0,0 +1,373 @@
+package src.optimizer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import src.nodes.*;
+import src.utils.Symbol;
+import src.utils.SymbolTable;
+import src.utils.Token;
+import src.utils.Type;
+
+// Works out before the program runs what does not depend on it running. An
+// expression over literals becomes one literal, a variable that keeps its
+// declared value for the whole program becomes that value, and AND or OR
+// with a constant left side becomes what it short-circuits to. Runs on an
+// analyzed program, the new nodes get the types the analyzer resolved.
+//
+// Nothing that fails at run time is folded, like a division by zero, so the
+// error still comes from the statement that runs it
+public class ConstantFolder {
+    private final Symbol[] frame;
+
+    // The slots of declared variables that are never assigned, scanned or used as a FOR counter
+    private boolean[] constant;
+
+    public ConstantFolder(SymbolTable symbolTable) {
+        this.frame = symbolTable.getFrame();
+    }
+
+    public ProgramNode fold(ProgramNode program) {
+        constant = new boolean[frame.length];
+
+        for (int i = 0; i < frame.length; i++) {
+            constant[i] = frame[i].hasValue();
+        }
+
+        markAssigned(program.getStatements());
+
+        return new ProgramNode(program.getDeclarations(), foldStatements(program.getStatements()));
+    }
+
+    private void markAssigned(List<StatementNode> statements) {
+        for (StatementNode statement : statements) {
+            if (statement instanceof AssignmentNode) {
+                constant[((AssignmentNode) statement).getVariable().getSlot()] = false;
+            } else if (statement instanceof ScanNode) {
+                for (Token identifier : ((ScanNode) statement).getIdentifiers()) {
+                    constant[identifier.getSlot()] = false;
+                }
+            } else if (statement instanceof IfStatementNode) {
+                IfStatementNode chain = (IfStatementNode) statement;
+
+                for (IfNode branch : chain.getBranches()) {
+                    markAssigned(branch.getStatements());
+                }
+
+                if (chain.getElseBranch() != null) {
+                    markAssigned(chain.getElseBranch().getStatements());
+                }
+            } else if (statement instanceof WhileNode) {
+                markAssigned(((WhileNode) statement).getStatements());
+            } else if (statement instanceof ForNode) {
+                ForNode loop = (ForNode) statement;
+
+                if (loop.getInitialization() != null) {
+                    constant[loop.getInitialization().getVariable().getSlot()] = false;
+                }
+
+                constant[loop.getUpdate().getVariable().getSlot()] = false;
+                markAssigned(loop.getStatements());
+            }
+        }
+    }
+
+    private List<StatementNode> foldStatements(List<StatementNode> statements) {
+        List<StatementNode> folded = new ArrayList<>(statements.size());
+
+        for (StatementNode statement : statements) {
+            folded.add(foldStatement(statement));
+        }
+
+        return folded;
+    }
+
+    private StatementNode foldStatement(StatementNode statement) {
+        if (statement instanceof AssignmentNode) {
+            return foldAssignment((AssignmentNode) statement);
+
+        } else if (statement instanceof DisplayNode) {
+            DisplayNode display = (DisplayNode) statement;
+            List<ExpressionNode> expressions = new ArrayList<>(display.getExpressions().size());
+
+            for (ExpressionNode expression : display.getExpressions()) {
+                expressions.add(fold(expression));
+            }
+
+            return new DisplayNode(display.getArguments(), expressions);
+
+        } else if (statement instanceof IfStatementNode) {
+            IfStatementNode chain = (IfStatementNode) statement;
+            List<IfNode> branches = new ArrayList<>();
+
+            for (IfNode branch : chain.getBranches()) {
+                branches.add(new IfNode(fold(branch.getCondition()), foldStatements(branch.getStatements()),
+                        branch.getPosition()));
+            }
+
+            ElseNode elseBranch = chain.getElseBranch();
+
+            if (elseBranch != null) {
+                elseBranch = new ElseNode(foldStatements(elseBranch.getStatements()), elseBranch.getPosition());
+            }
+
+            return new IfStatementNode(branches, elseBranch, chain.getPosition());
+
+        } else if (statement instanceof WhileNode) {
+            WhileNode loop = (WhileNode) statement;
+
+            return new WhileNode(fold(loop.getCondition()), foldStatements(loop.getStatements()), loop.getPosition());
+
+        } else if (statement instanceof ForNode) {
+            ForNode loop = (ForNode) statement;
+            AssignmentNode initialization = loop.getInitialization();
+
+            return new ForNode(initialization != null ? foldAssignment(initialization) : null,
+                    fold(loop.getCondition()), foldAssignment(loop.getUpdate()),
+                    foldStatements(loop.getStatements()), loop.getPosition());
+        }
+
+        return statement;
+    }
+
+    // The analyzer only lets an INT and a FLOAT mix when the value of the
+    // expression is converted, so a folded literal takes the type of the variable
+    private AssignmentNode foldAssignment(AssignmentNode assignment) {
+        ExpressionNode expression = assignment.getExpression();
+        Type target = frame[assignment.getVariable().getSlot()].getType();
+        ExpressionNode folded = fold(expression);
+
+        if (folded instanceof LiteralNode && folded.getType() != target) {
+            LiteralNode literal = (LiteralNode) folded;
+
+            folded = target == Type.INT
+                    ? LiteralNode.of(Type.INT, (long) literal.getFloatValue(), 0, literal.getPosition())
+                    : LiteralNode.of(Type.FLOAT, 0, literal.getIntValue(), literal.getPosition());
+        }
+
+        if (folded == expression) {
+            return assignment;
+        }
+
+        return new AssignmentNode(assignment.getVariable(), folded);
+    }
+
+    private ExpressionNode fold(ExpressionNode node) {
+        if (node instanceof VariableNode) {
+            int slot = ((VariableNode) node).getSlot();
+
+            if (!constant[slot]) {
+                return node;
+            }
+
+            Symbol symbol = frame[slot];
+
+            switch (symbol.getType()) {
+                case INT:
+                    return LiteralNode.of(Type.INT, symbol.getIntValue(), 0, node.getPosition());
+                case FLOAT:
+                    return LiteralNode.of(Type.FLOAT, 0, symbol.getFloatValue(), node.getPosition());
+                case BOOL:
+                    return LiteralNode.of(Type.BOOL, symbol.getBoolValue() ? 1 : 0, 0, node.getPosition());
+                default:
+                    return LiteralNode.of(Type.CHAR, symbol.getCharValue(), 0, node.getPosition());
+            }
+
+        } else if (node instanceof UnaryNode) {
+            UnaryNode unary = (UnaryNode) node;
+            ExpressionNode operand = fold(unary.getOperand());
+
+            if (isConstant(operand)) {
+                LiteralNode literal = (LiteralNode) operand;
+
+                switch (unary.getOperator().getType()) {
+                    case NOT:
+                        return LiteralNode.of(Type.BOOL, literal.getBoolValue() ? 0 : 1, 0, node.getPosition());
+                    case NEGATIVE:
+                        return LiteralNode.of(literal.getType(), -literal.getIntValue(), -literal.getFloatValue(),
+                                node.getPosition());
+                    default:
+                        return LiteralNode.of(literal.getType(), literal.getIntValue(), literal.getFloatValue(),
+                                node.getPosition());
+                }
+            }
+
+            if (operand == unary.getOperand()) {
+                return node;
+            }
+
+            UnaryNode folded = new UnaryNode(unary.getOperator(), operand);
+            folded.setType(node.getType());
+            return folded;
+
+        } else if (node instanceof BinaryNode) {
+            BinaryNode binary = (BinaryNode) node;
+            ExpressionNode left = fold(binary.getLeft());
+            ExpressionNode right = fold(binary.getRight());
+            Type operator = binary.getOperator().getType();
+
+            // The right side of AND and OR only runs when the left one does not decide
+            if ((operator == Type.AND || operator == Type.OR) && isConstant(left)) {
+                boolean decides = ((LiteralNode) left).getBoolValue() == (operator == Type.OR);
+
+                return decides ? left : right;
+            }
+
+            if (isConstant(left) && isConstant(right)) {
+                LiteralNode folded = evaluate(binary, (LiteralNode) left, (LiteralNode) right);
+
+                if (folded != null) {
+                    return folded;
+                }
+            }
+
+            return binary(binary, left, right);
+        }
+
+        return node;
+    }
+
+    // The value of an operator over two literals, or null when it has to fail at run time
+    private LiteralNode evaluate(BinaryNode node, LiteralNode left, LiteralNode right) {
+        Type operator = node.getOperator().getType();
+        Type leftType = left.getType();
+        Type rightType = right.getType();
+
+        if (node.getType() == Type.INT) {
+            long a = left.getIntValue();
+            long b = right.getIntValue();
+            long value;
+
+            switch (operator) {
+                case ADD:
+                    value = a + b;
+                    break;
+                case SUBTRACT:
+                    value = a - b;
+                    break;
+                case MULTIPLY:
+                    value = a * b;
+                    break;
+                case DIVIDE:
+                    if (b == 0) {
+                        return null;
+                    }
+                    value = a / b;
+                    break;
+                case MODULO:
+                    if (b == 0) {
+                        return null;
+                    }
+                    value = a % b;
+                    break;
+                default:
+                    return null;
+            }
+
+            return LiteralNode.of(Type.INT, value, 0, node.getPosition());
+        }
+
+        if (node.getType() == Type.FLOAT) {
+            double a = floatValue(left);
+            double b = floatValue(right);
+            double value;
+
+            switch (operator) {
+                case ADD:
+                    value = a + b;
+                    break;
+                case SUBTRACT:
+                    value = a - b;
+                    break;
+                case MULTIPLY:
+                    value = a * b;
+                    break;
+                case DIVIDE:
+                    if (b == 0) {
+                        return null;
+                    }
+                    value = a / b;
+                    break;
+                case MODULO:
+                    if (b == 0) {
+                        return null;
+                    }
+                    value = a % b;
+                    break;
+                default:
+                    return null;
+            }
+
+            // A literal cannot be written for an infinite result, it is left to the engine
+            if (!Double.isFinite(value)) {
+                return null;
+            }
+
+            return LiteralNode.of(Type.FLOAT, 0, value, node.getPosition());
+        }
+
+        int order;
+
+        // Folded values are always finite, so the order of two FLOATs is all a comparison needs
+        if (leftType == Type.BOOL) {
+            order = Boolean.compare(left.getBoolValue(), right.getBoolValue());
+        } else if (leftType == Type.FLOAT || rightType == Type.FLOAT) {
+            double a = floatValue(left);
+            double b = floatValue(right);
+
+            order = a < b ? -1 : a > b ? 1 : 0;
+        } else {
+            order = Long.compare(intValue(left), intValue(right));
+        }
+
+        boolean value;
+
+        switch (operator) {
+            case LESS:
+                value = order < 0;
+                break;
+            case GREATER:
+                value = order > 0;
+                break;
+            case LESS_EQUAL:
+                value = order <= 0;
+                break;
+            case GREATER_EQUAL:
+                value = order >= 0;
+                break;
+            case EQUAL:
+                value = order == 0;
+                break;
+            case NOT_EQUAL:
+                value = order != 0;
+                break;
+            default:
+                return null;
+        }
+
+        return LiteralNode.of(Type.BOOL, value ? 1 : 0, 0, node.getPosition());
+    }
+
+    private static BinaryNode binary(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+        if (left == node.getLeft() && right == node.getRight()) {
+            return node;
+        }
+
+        BinaryNode folded = new BinaryNode(left, node.getOperator(), right);
+        folded.setType(node.getType());
+        return folded;
+    }
+
+    // A literal whose value is known, an INT too large for a long only fails when it runs
+    private static boolean isConstant(ExpressionNode node) {
+        return node instanceof LiteralNode && ((LiteralNode) node).isConverted();
+    }
+
+    private static long intValue(LiteralNode literal) {
+        return literal.getType() == Type.CHAR ? literal.getCharValue() : literal.getIntValue();
+    }
+
+    private static double floatValue(LiteralNode literal) {
+        return literal.getType() == Type.INT ? literal.getIntValue() : literal.getFloatValue();
+    }
+}
@@ -0,0 +1,99 @@
+package src.optimizer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import src.nodes.*;
+
+// Takes out statements that can never run, after the ConstantFolder has
+// turned the conditions it could work out into TRUE or FALSE literals. A
+// statement after a BREAK or CONTINUE in the same loop body goes, an IF or
+// ELSE IF branch whose condition is FALSE goes, and a branch whose condition
+// is TRUE becomes the ELSE of the chain, or replaces the whole chain when it
+// is the first branch left. A WHILE whose condition is FALSE goes, and a FOR
+// whose condition is FALSE is only its initialization.
+//
+// The parser only allows BREAK and CONTINUE right in a loop body, so the
+// statements of an IF can be moved into the block around it
+public class DeadCodeEliminator {
+
+    public ProgramNode eliminate(ProgramNode program) {
+        return new ProgramNode(program.getDeclarations(), eliminate(program.getStatements()));
+    }
+
+    private List<StatementNode> eliminate(List<StatementNode> statements) {
+        List<StatementNode> live = new ArrayList<>(statements.size());
+
+        for (StatementNode statement : statements) {
+            if (statement instanceof IfStatementNode) {
+                eliminateIf((IfStatementNode) statement, live);
+
+            } else if (statement instanceof WhileNode) {
+                WhileNode loop = (WhileNode) statement;
+
+                if (!isFalse(loop.getCondition())) {
+                    live.add(new WhileNode(loop.getCondition(), eliminate(loop.getStatements()), loop.getPosition()));
+                }
+
+            } else if (statement instanceof ForNode) {
+                ForNode loop = (ForNode) statement;
+
+                if (!isFalse(loop.getCondition())) {
+                    live.add(new ForNode(loop.getInitialization(), loop.getCondition(), loop.getUpdate(),
+                            eliminate(loop.getStatements()), loop.getPosition()));
+                } else if (loop.getInitialization() != null) {
+                    live.add(loop.getInitialization());
+                }
+
+            } else {
+                live.add(statement);
+
+                // Nothing after these runs, they only ever appear right in a loop body
+                if (statement instanceof BreakNode || statement instanceof ContinueNode) {
+                    break;
+                }
+            }
+        }
+
+        return live;
+    }
+
+    // Adds what is left of the chain to live
+    private void eliminateIf(IfStatementNode chain, List<StatementNode> live) {
+        List<IfNode> branches = new ArrayList<>();
+        ElseNode elseBranch = chain.getElseBranch();
+
+        if (elseBranch != null) {
+            elseBranch = new ElseNode(eliminate(elseBranch.getStatements()), elseBranch.getPosition());
+        }
+
+        for (IfNode branch : chain.getBranches()) {
+            if (isFalse(branch.getCondition())) {
+                continue;
+            }
+
+            List<StatementNode> statements = eliminate(branch.getStatements());
+
+            if (isTrue(branch.getCondition())) {
+                elseBranch = new ElseNode(statements, branch.getPosition());
+                break;
+            }
+
+            branches.add(new IfNode(branch.getCondition(), statements, branch.getPosition()));
+        }
+
+        if (!branches.isEmpty()) {
+            live.add(new IfStatementNode(branches, elseBranch, chain.getPosition()));
+        } else if (elseBranch != null) {
+            live.addAll(elseBranch.getStatements());
+        }
+    }
+
+    private static boolean isTrue(ExpressionNode condition) {
+        return condition instanceof LiteralNode && ((LiteralNode) condition).getBoolValue();
+    }
+
+    private static boolean isFalse(ExpressionNode condition) {
+        return condition instanceof LiteralNode && !((LiteralNode) condition).getBoolValue();
+    }
+}
@@ -5,18 +5,26 @@ import java.util.List;
 import java.util.Set;
 import java.util.HashSet;
 
+import src.utils.Position;
 import src.utils.Token;
+import src.utils.TokenStream;
 import src.utils.Type;
 import src.nodes.*;
 
 public class Parser {
-    private final List<Token> tokens;
+    private final TokenStream tokens;
     private int currentTokenIndex = 0;
     private Set<String> declaredVariableNames = new HashSet<>();
     private List<VariableDeclarationNode> declarations = new ArrayList<>();
     private List<StatementNode> programStatements = new ArrayList<>();
 
-    public Parser(List<Token> tokens) {
+    // Where each statement of the program body starts, as a token index and
+    // as the number of statement nodes before it, and last where the body ends.
+    // Lets an edit be parsed again one statement at a time
+    private final List<Integer> statementStarts = new ArrayList<>();
+    private final List<Integer> statementCounts = new ArrayList<>();
+
+    public Parser(TokenStream tokens) {
         this.tokens = tokens;
         this.currentTokenIndex = 0;
     }
@@ -25,17 +33,32 @@ public class Parser {
         return parseProgram();
     }
 
+    // Statements cut out of a program body, up to the end of the tokens
+    public List<StatementNode> parseStatementList() {
+        List<StatementNode> statements = parseStatements(false, false);
+        markStatement(statements.size());
+        return statements;
+    }
+
+    public List<Integer> getStatementStarts() {
+        return statementStarts;
+    }
+
+    public List<Integer> getStatementCounts() {
+        return statementCounts;
+    }
+
     private ProgramNode parseProgram() {
 
-        consume(Type.BEGIN_CODE, "Expected BEGIN CODE but found " + peek().getLexeme());
+        consume(Type.BEGIN_CODE, "Expected BEGIN CODE but found " + peekLexeme());
 
-        consume(Type.NEWLINE, "Expected NEWLINE AFTER BEGIN CODE but found " + peek().getLexeme());
+        consume(Type.NEWLINE, "Expected NEWLINE AFTER BEGIN CODE but found " + peekLexeme());
 
         if (!match(Type.INDENT)) {
 
             if (match(Type.END_CODE)) {
 
-                consume(Type.NEWLINE, "Expected NEWLINE AFTER END CODE but found " + peek().getLexeme());
+                consume(Type.NEWLINE, "Expected NEWLINE AFTER END CODE but found " + peekLexeme());
 
                 while (!match(Type.EOF)) {
                     if (!match(Type.NEWLINE)) {
@@ -51,14 +74,14 @@ public class Parser {
                 return new ProgramNode(declarations, programStatements);
             }
 
-            error("Expected INDENTION AFTER BEGIN CODE but found " + peek().getLexeme(), peek());
+            error("Expected INDENTION AFTER BEGIN CODE but found " + peekLexeme(), peek());
         }
 
         parseDeclaration();
 
-        consume(Type.DEDENT, "Expected DEDENTION IN END CODE but found " + peek().getLexeme());
-        consume(Type.END_CODE, "Expected END CODE but found " + peek().getLexeme());
-        consume(Type.NEWLINE, "Expected NEWLINE AFTER END CODE but found " + peek().getLexeme());
+        consume(Type.DEDENT, "Expected DEDENTION IN END CODE but found " + peekLexeme());
+        consume(Type.END_CODE, "Expected END CODE but found " + peekLexeme());
+        consume(Type.NEWLINE, "Expected NEWLINE AFTER END CODE but found " + peekLexeme());
 
         while (!match(Type.EOF)) {
             if (!match(Type.NEWLINE)) {
@@ -78,12 +101,14 @@ public class Parser {
 
         while (match(Type.INT) || match(Type.CHAR) || match(Type.FLOAT) || match(Type.BOOL)) {
             declarations.addAll(parseVariableDeclaration());
+            tokens.release(currentTokenIndex - 1);
         }
 
         if (declarations.size() == 0) {
             error("Invalid Data Type Detected", peek());
         }
         programStatements.addAll(parseStatements(false, false));
+        markStatement(programStatements.size());
     }
 
     private List<VariableDeclarationNode> parseVariableDeclaration() {
@@ -91,31 +116,32 @@ public class Parser {
         List<VariableDeclarationNode> variables = new ArrayList<>();
 
         do {
-            Token identifier = consume(Type.IDENTIFIER, "Expected an identifier but got a/an" + peek().getType());
+            Token identifier = tokens.get(consume(Type.IDENTIFIER, "Expected an identifier but got a/an" + peekType()));
 
             if (match(Type.ASSIGNMENT)) {
-                Token unary = null;
+                // The declaration keeps a new token for the value, not the ones it was written with
                 if (match(Type.NEGATIVE) || match(Type.POSITIVE)) {
-                    unary = previous();
-                    Token literal = consume(Type.LITERAL, "Expected literal after assignment");
+                    String unary = tokens.getLexeme(currentTokenIndex - 1);
+                    int literal = consume(Type.LITERAL, "Expected literal after assignment");
 
                     variables.add(new VariableDeclarationNode(dataType, identifier,
-                            new Token(Type.LITERAL, unary.getLexeme() + literal.getLexeme(), null)));
+                            new Token(Type.LITERAL, unary + tokens.getLexeme(literal), null)));
                 } else {
-                    Token literal = consume(Type.LITERAL, "Expected literal after assignment");
+                    int literalIndex = consume(Type.LITERAL, "Expected literal after assignment");
+                    String literal = tokens.getLexeme(literalIndex);
 
-                    if (!literal.getLexeme().matches("[0-9]+") &&
-                            !literal.getLexeme().equalsIgnoreCase("TRUE") &&
-                            !literal.getLexeme().equalsIgnoreCase("FALSE") &&
-                            !literal.getLexeme().matches("[0-9]*\\.?[0-9]+")) {
+                    if (!literal.matches("[0-9]+") &&
+                            !literal.equalsIgnoreCase("TRUE") &&
+                            !literal.equalsIgnoreCase("FALSE") &&
+                            !literal.matches("[0-9]*\\.?[0-9]+")) {
 
-                        if (literal.getLexeme().length() > 3) {
-                            error("Invalid character literal", literal);
+                        if (literal.length() > 3) {
+                            error("Invalid character literal", tokens.getPosition(literalIndex));
                         }
                     }
 
                     variables.add(new VariableDeclarationNode(dataType, identifier,
-                            new Token(Type.LITERAL, literal.getLexeme(), null)));
+                            new Token(Type.LITERAL, literal, null)));
                 }
 
             } else {
@@ -133,59 +159,23 @@ public class Parser {
 
         List<StatementNode> statements = new ArrayList<>();
 
-        while (!match(Type.EOF) && !(currentTokenIndex >= tokens.size())) {
+        while (!match(Type.EOF) && tokens.has(currentTokenIndex)) {
+
+            // Nothing before the statement is looked at again, a streamed source can let go of it
+            tokens.release(currentTokenIndex - 1);
+
+            if (!isIfStatement && !isLoopStatement && peekType() != Type.DEDENT) {
+                markStatement(statements.size());
+            }
 
             if (match(Type.INT) || match(Type.CHAR) || match(Type.FLOAT) || match(Type.BOOL)) {
                 error("Found a variable declaration in the executable code", previous());
             }
 
             if (match(Type.IDENTIFIER)) {
-
-                int counter = 1;
-                boolean isAssignment = true;
-
-                while (currentTokenIndex + counter < tokens.size() && peekNext(counter).getType() != Type.NEWLINE) {
-
-                    if (peekNext(counter).getType() == Type.ADD
-                            || peekNext(counter).getType() == Type.SUBTRACT
-                            || peekNext(counter).getType() == Type.MULTIPLY
-                            || peekNext(counter).getType() == Type.DIVIDE
-                            || peekNext(counter).getType() == Type.MODULO) {
-
-                        statements.add(parseArithmeticStatement());
-                        consume(Type.NEWLINE,
-                                "Expected a newline after the statement. Please ensure each statement is on its own line.");
-
-                        isAssignment = false;
-                        break;
-
-                    } else if (peekNext(counter).getType() == Type.LESS ||
-                            peekNext(counter).getType() == Type.GREATER ||
-                            peekNext(counter).getType() == Type.LESS_EQUAL ||
-                            peekNext(counter).getType() == Type.GREATER_EQUAL ||
-                            peekNext(counter).getType() == Type.NOT_EQUAL ||
-                            peekNext(counter).getType() == Type.EQUAL ||
-                            peekNext(counter).getType() == Type.AND ||
-                            peekNext(counter).getType() == Type.OR ||
-                            peekNext(counter).getType() == Type.NOT) {
-
-                        statements.add(parseLogicalStatement());
-
-                        consume(Type.NEWLINE,
-                                "Expected a newline after the statement. Please ensure each statement is on its own line.");
-
-                        isAssignment = false;
-                        break;
-                    }
-                    counter++;
-                }
-
-                if (isAssignment) {
-                    statements.addAll(parseAssignmentStatement());
-                    consume(Type.NEWLINE,
-                            "Expected a newline after the statement. Please ensure each statement is on its own line.");
-
-                }
+                statements.addAll(parseAssignmentStatement());
+                consume(Type.NEWLINE,
+                        "Expected a newline after the statement. Please ensure each statement is on its own line.");
 
                 continue;
             }
@@ -207,7 +197,7 @@ public class Parser {
             }
 
             if (match(Type.IF)) {
-                statements.addAll(parseIfStatement());
+                statements.add(parseIfStatement());
                 continue;
             }
 
@@ -239,7 +229,7 @@ public class Parser {
                     error("Continue statement can only be used inside a loop", previous());
                 }
 
-                statements.add(new ContinueNode(previous().getPosition()));
+                statements.add(new ContinueNode(previousPosition()));
                 consume(Type.NEWLINE,
                         "Expected a newline after the statement. Please ensure each statement is on its own line.");
 
@@ -252,7 +242,7 @@ public class Parser {
                     error("Break statement can only be used inside a loop", previous());
                 }
 
-                statements.add(new BreakNode(previous().getPosition()));
+                statements.add(new BreakNode(previousPosition()));
 
                 consume(Type.NEWLINE,
                         "Expected a newline after the statement. Please ensure each statement is on its own line.");
@@ -260,16 +250,16 @@ public class Parser {
                 continue;
             }
 
-            if (peek().getType() == Type.DEDENT) {
+            if (peekType() == Type.DEDENT) {
                 if (isIfStatement || isLoopStatement) {
-                    if (peekNext(1).getType() == Type.END_IF || peekNext(1).getType() == Type.END_WHILE
-                            || peekNext(1).getType() == Type.END_FOR) {
+                    if (peekNextType(1) == Type.END_IF || peekNextType(1) == Type.END_WHILE
+                            || peekNextType(1) == Type.END_FOR) {
                         return statements;
                     } else {
                         error("Invalid indentation found", peek());
                     }
                 } else {
-                    if (peekNext(1).getType() == Type.END_CODE) {
+                    if (peekNextType(1) == Type.END_CODE) {
                         return statements;
                     } else {
                         error("Invalid indentation found", peek());
@@ -293,122 +283,70 @@ public class Parser {
         return statements;
     }
 
+    // Parses any statement that starts with a name in one pass, the names
+    // followed by '=' are the targets and what comes after the last one is
+    // the value, so a = b = 5 gives both a and b the value 5
     private List<StatementNode> parseAssignmentStatement() {
 
         List<StatementNode> assignments = new ArrayList<>();
 
         Token identifierToken = previous();
-        VariableNode identifier = new VariableNode(identifierToken);
 
         consume(Type.ASSIGNMENT,
-                "While parsing an assignment statement, expected assignment '=' but got '" + peek().getType()
+                "While parsing an assignment statement, expected assignment '=' but got '" + peekType()
                         + "'");
 
-        if (peekNext(1).getType() != Type.ASSIGNMENT) {
+        List<Token> variableTokens = new ArrayList<>();
+        variableTokens.add(identifierToken);
 
-            if (match(Type.IDENTIFIER)) {
-                assignments.add(new AssignmentNode(identifier, new VariableNode(previous())));
-            } else if (match(Type.LITERAL)) {
-                assignments.add(new AssignmentNode(identifier, new LiteralNode(previous())));
-            } else if (match(Type.NEGATIVE) || match(Type.POSITIVE) || match(Type.NOT)) {
-
-                Token unary = previous();
-
-                if (match(Type.IDENTIFIER)) {
-                    assignments.add(new AssignmentNode(identifier, new UnaryNode(unary, new VariableNode(previous()))));
-                } else if (match(Type.LITERAL)) {
-                    assignments.add(new AssignmentNode(identifier, new UnaryNode(unary, new LiteralNode(previous()))));
-                } else {
-                    error("Expected an identifier or literal after a unary operator", identifierToken);
-                }
-            }
-
-        } else {
-
-            List<Token> variableTokens = new ArrayList<>();
-            variableTokens.add(identifierToken);
-
-            do {
-
-                if (peek().getType() != Type.IDENTIFIER && peek().getType() != Type.LITERAL
-                        && peek().getType() != Type.NEGATIVE && peek().getType() != Type.POSITIVE
-                        && peek().getType() != Type.NOT) {
-                    error("Expected an identifier or literal or unary operator after an assigment '=' operator.",
-                            identifierToken);
-                }
-
-                if (match(Type.IDENTIFIER)) {
-
-                    Token var = previous();
-
-                    if (peek().getType() == Type.ASSIGNMENT) {
-
-                        variableTokens.add(var);
-
-                    } else {
-
-                        for (Token token : variableTokens) {
-
-                            VariableNode left = new VariableNode(token);
-                            VariableNode right = new VariableNode(var);
-
-                            assignments.add(new AssignmentNode(left, right));
-                        }
-                    }
-
-                } else if (match(Type.LITERAL)) {
-
-                    Token var = previous();
-
-                    if (peek().getType() == Type.ASSIGNMENT) {
-                        error("Can't assign value to a Literal.", var);
-                    }
-
-                    for (Token token : variableTokens) {
-                        VariableNode left = new VariableNode(token);
-                        LiteralNode right = new LiteralNode(var);
-
-                        AssignmentNode assignment = new AssignmentNode(left, right);
-
-                        assignments.add(new AssignmentNode(left, right));
-                    }
+        while (peekType() == Type.IDENTIFIER && peekNextType(1) == Type.ASSIGNMENT) {
+            variableTokens.add(peek());
+            currentTokenIndex += 2;
+        }
 
-                } else if (match(Type.NOT) || match(Type.POSITIVE) || match(Type.NEGATIVE)) {
+        if (peekType() == Type.LITERAL && peekNextType(1) == Type.ASSIGNMENT) {
+            error("Can't assign value to a Literal.", peek());
+        }
 
-                    Token UnaryOperator = previous();
+        if (variableTokens.size() == 1) {
 
-                    if (peek().getType() == Type.ASSIGNMENT) {
-                        error("Can't assign value to a NOT operator.", UnaryOperator);
-                    }
+            // A single target takes any expression. Nothing after the '=' assigns nothing
+            if (peekType() != Type.NEWLINE) {
+                assignments.add(new AssignmentNode(new VariableNode(identifierToken), parseExpression()));
+            }
 
-                    if (match(Type.IDENTIFIER)) {
+            return assignments;
+        }
 
-                        Token unaryOperand = previous();
+        // A chain takes a single operand, each target gets its own node for it
+        Token unaryOperator = null;
 
-                        for (Token token : variableTokens) {
+        if (match(Type.NOT) || match(Type.POSITIVE) || match(Type.NEGATIVE)) {
+            unaryOperator = previous();
 
-                            VariableNode left = new VariableNode(token);
-                            UnaryNode right = new UnaryNode(UnaryOperator, new VariableNode(unaryOperand));
+            if (peekType() == Type.ASSIGNMENT) {
+                error("Can't assign value to a NOT operator.", unaryOperator);
+            }
+        }
 
-                            assignments.add(new AssignmentNode(left, right));
-                        }
-                    } else if (match(Type.LITERAL)) {
+        if (!match(Type.IDENTIFIER) && !match(Type.LITERAL)) {
+            error("Expected an identifier or literal or unary operator after an assigment '=' operator.",
+                    identifierToken);
+        }
 
-                        Token unaryOperand = previous();
+        Token operand = previous();
 
-                        for (Token token : variableTokens) {
-                            VariableNode left = new VariableNode(token);
-                            UnaryNode right = new UnaryNode(UnaryOperator, new LiteralNode(unaryOperand));
+        for (Token token : variableTokens) {
 
-                            assignments.add(new AssignmentNode(left, right));
-                        }
-                    } else {
-                        error("Expected an identifier or literal after a unary operator", identifierToken);
+            ExpressionNode right = operand.getType() == Type.IDENTIFIER
+                    ? new VariableNode(operand)
+                    : new LiteralNode(operand);
 
-                    }
-                }
-            } while (match(Type.ASSIGNMENT));
+            if (unaryOperator != null) {
+                right = new UnaryNode(unaryOperator, right);
+            }
 
+            assignments.add(new AssignmentNode(new VariableNode(token), right));
         }
 
         return assignments;
@@ -429,21 +367,6 @@ public class Parser {
         return new AssignmentNode(variable, expression);
     }
 
-    private AssignmentNode parseLogicalStatement() {
-
-        Token variableName = previous();
-
-        if (!match(Type.ASSIGNMENT)) {
-            error("Invalid logical statement", peek());
-            return null;
-        }
-
-        VariableNode variable = new VariableNode(variableName);
-        ExpressionNode expression = parseExpression();
-
-        return new AssignmentNode(variable, expression);
-    }
-
     private ExpressionNode parseExpression() {
         return parseLogicalOr();
     }
@@ -528,7 +451,7 @@ public class Parser {
             ExpressionNode expression = parsePrimary();
             return new UnaryNode(operatorToken, expression);
         } else {
-            error("Expected an expression but got " + peek().getType() + ".", peek());
+            error("Expected an expression but got " + peekType() + ".", peek());
         }
 
         return null;
@@ -540,7 +463,7 @@ public class Parser {
         List<Token> arguments = new ArrayList<>();
         List<ExpressionNode> expressions = new ArrayList<ExpressionNode>();
 
-        while (peek().getType() != Type.NEWLINE) {
+        while (peekType() != Type.NEWLINE) {
 
             if (match(Type.CONCATENATION)) {
 
@@ -578,7 +501,8 @@ public class Parser {
                     error("Can't add another argument without concatenation", previous());
                 }
 
-                arguments.add(consume(Type.SPECIAL_CHARACTER, "Expected special character after escape code open"));
+                arguments.add(tokens.get(consume(Type.SPECIAL_CHARACTER,
+                        "Expected special character after escape code open")));
                 consume(Type.ESCAPE_CODE_CLOSE, "Expected escape code close");
             }
 
@@ -588,7 +512,7 @@ public class Parser {
                     error("Can't add another argument without concatention", previous());
                 }
 
-                arguments.add(consume(Type.STRING_LITERAL, "Expected string literal after delimiter"));
+                arguments.add(tokens.get(consume(Type.STRING_LITERAL, "Expected string literal after delimiter")));
 
                 consume(Type.DELIMITER, "Expected closing delimiter after the string literal");
             }
@@ -642,9 +566,9 @@ public class Parser {
                 arguments.add(previous());
             }
 
-            else if (peek().getType() == Type.ADD || peek().getType() == Type.SUBTRACT ||
-                    peek().getType() == Type.MULTIPLY || peek().getType() == Type.DIVIDE ||
-                    peek().getType() == Type.MODULO) {
+            else if (peekType() == Type.ADD || peekType() == Type.SUBTRACT ||
+                    peekType() == Type.MULTIPLY || peekType() == Type.DIVIDE ||
+                    peekType() == Type.MODULO) {
 
                 if (arguments.size() == 0 && arguments.getLast().getType() != Type.LITERAL
                         && arguments.getLast().getType() != Type.IDENTIFIER) {
@@ -657,19 +581,21 @@ public class Parser {
                 ExpressionNode expression = parseExpression();
                 expressions.add(expression);
 
+                List<Token> expressionTokens = expression.getTokens();
+
                 StringBuilder sb = new StringBuilder();
-                for (Token token : expression.getTokens()) {
+                for (Token token : expressionTokens) {
                     sb.append(token.getLexeme() + " ");
                 }
 
                 arguments.add(new Token(Type.EXPRESSION, sb.toString(),
-                        expression.getToken(expression.countTokens() - 1).getPosition()));
+                        expressionTokens.get(expression.countTokens() - 1).getPosition()));
             }
 
-            else if (peek().getType() == Type.GREATER || peek().getType() == Type.LESS ||
-                    peek().getType() == Type.GREATER_EQUAL || peek().getType() == Type.LESS_EQUAL ||
-                    peek().getType() == Type.NOT_EQUAL || peek().getType() == Type.EQUAL ||
-                    peek().getType() == Type.AND || peek().getType() == Type.OR) {
+            else if (peekType() == Type.GREATER || peekType() == Type.LESS ||
+                    peekType() == Type.GREATER_EQUAL || peekType() == Type.LESS_EQUAL ||
+                    peekType() == Type.NOT_EQUAL || peekType() == Type.EQUAL ||
+                    peekType() == Type.AND || peekType() == Type.OR) {
 
                 if (arguments.size() == 0 && arguments.getLast().getType() != Type.LITERAL
                         && arguments.getLast().getType() != Type.IDENTIFIER) {
@@ -686,13 +612,15 @@ public class Parser {
                 ExpressionNode expression = parseExpression();
                 expressions.add(expression);
 
+                List<Token> expressionTokens = expression.getTokens();
+
                 StringBuilder sb = new StringBuilder();
-                for (Token token : expression.getTokens()) {
+                for (Token token : expressionTokens) {
                     sb.append(token.getLexeme() + " ");
                 }
 
                 arguments.add(new Token(Type.EXPRESSION, sb.toString(),
-                        expression.getToken(expression.countTokens() - 1).getPosition()));
+                        expressionTokens.get(expression.countTokens() - 1).getPosition()));
             }
 
             else if (match(Type.NOT)) {
@@ -716,8 +644,8 @@ public class Parser {
                 ExpressionNode expression = new UnaryNode(notToken, operand);
                 expressions.add(expression);
 
-                arguments.add(new Token(Type.EXPRESSION, expression.toString(),
-                        expression.getToken(expression.countTokens() - 1).getPosition()));
+                // The operand is the last token of the expression
+                arguments.add(new Token(Type.EXPRESSION, expression.toString(), previousPosition()));
             }
 
             else if (match(Type.STRING_LITERAL) || match(Type.SPECIAL_CHARACTER) || match(Type.COLON)
@@ -730,7 +658,7 @@ public class Parser {
             }
         }
 
-        if (previous().getType() == Type.CONCATENATION) {
+        if (tokens.getType(currentTokenIndex - 1) == Type.CONCATENATION) {
             error("Missing argument after concatenation symbol", previous());
         }
 
@@ -738,7 +666,7 @@ public class Parser {
     }
 
     private StatementNode parseScanStatement() {
-        Token scanToken = previous();
+        Position position = previousPosition();
 
         consume(Type.COLON, "Expected a COLON Token"); // Consume the colon ":" after SCAN
 
@@ -754,120 +682,121 @@ public class Parser {
         }
 
         // Create a SCAN statement node with the list of identifiers
-        return new ScanNode(identifiers, scanToken.getPosition());
+        return new ScanNode(identifiers, position);
     }
 
-    private List<StatementNode> parseIfStatement() {
+    private StatementNode parseIfStatement() {
 
-        List<StatementNode> ifStatements = new ArrayList<>();
-        Token token = previous();
+        List<IfNode> branches = new ArrayList<>();
+        ElseNode elseBranch = null;
+        Position position = previousPosition();
 
-        consume(Type.LEFT_PARENTHESIS, "Expected '(', after 'IF' keyword but got " + peek().getLexeme());
+        consume(Type.LEFT_PARENTHESIS, "Expected '(', after 'IF' keyword but got " + peekLexeme());
         // Parse the conditional expression
         ExpressionNode ifCondition = parseExpression();
 
-        consume(Type.RIGHT_PARENTHESIS, "Expected ')', after the conditional expression but got " + peek().getLexeme());
-        consume(Type.NEWLINE, "Expected new line before the BEGIN IF statement but got " + peek().getLexeme());
-        consume(Type.BEGIN_IF, "Expected 'BEGIN IF' after the conditional expression but got " + peek().getLexeme());
-        consume(Type.NEWLINE, "Expected new line after the BEGIN IF statement but got " + peek().getLexeme());
-        consume(Type.INDENT, "Expected INDENT after the BEGIN IF statement but got " + peek().getLexeme());
+        consume(Type.RIGHT_PARENTHESIS, "Expected ')', after the conditional expression but got " + peekLexeme());
+        consume(Type.NEWLINE, "Expected new line before the BEGIN IF statement but got " + peekLexeme());
+        consume(Type.BEGIN_IF, "Expected 'BEGIN IF' after the conditional expression but got " + peekLexeme());
+        consume(Type.NEWLINE, "Expected new line after the BEGIN IF statement but got " + peekLexeme());
+        consume(Type.INDENT, "Expected INDENT after the BEGIN IF statement but got " + peekLexeme());
 
         // Parse the body of the if statement
         List<StatementNode> body = parseStatements(true, false);
 
-        consume(Type.DEDENT, "Expected DEDENTION after the body of the if statement but got " + peek().getLexeme());
-        consume(Type.END_IF, "Expected 'END IF' after the body of the if statement but got " + peek().getLexeme());
-        consume(Type.NEWLINE, "Expected new line after the END IF statement but got " + peek().getLexeme());
+        consume(Type.DEDENT, "Expected DEDENTION after the body of the if statement but got " + peekLexeme());
+        consume(Type.END_IF, "Expected 'END IF' after the body of the if statement but got " + peekLexeme());
+        consume(Type.NEWLINE, "Expected new line after the END IF statement but got " + peekLexeme());
 
-        ifStatements.add(new IfNode(ifCondition, body, token.getPosition()));
+        branches.add(new IfNode(ifCondition, body, position));
 
         while (match(Type.ELSE_IF)) {
 
-            Token ifElseToken = previous();
+            Position ifElsePosition = previousPosition();
 
-            consume(Type.LEFT_PARENTHESIS, "Expected a '(', after 'ELSE IF' keyword but got " + peek().getLexeme());
+            consume(Type.LEFT_PARENTHESIS, "Expected a '(', after 'ELSE IF' keyword but got " + peekLexeme());
             // Parse the conditional expression
             ExpressionNode ifElseCondition = parseExpression();
 
             // Expect ')'
             consume(Type.RIGHT_PARENTHESIS,
-                    "Expected a ')', after the conditional expression but got " + peek().getLexeme());
-            consume(Type.NEWLINE, "Expected a new line after the ELSE IF statement but got " + peek().getLexeme());
+                    "Expected a ')', after the conditional expression but got " + peekLexeme());
+            consume(Type.NEWLINE, "Expected a new line after the ELSE IF statement but got " + peekLexeme());
             consume(Type.BEGIN_IF,
-                    "Expected a 'BEGIN IF' after the conditional expression but got " + peek().getLexeme());
-            consume(Type.NEWLINE, "Expected a NEW LINE after the BEGIN IF statement but got " + peek().getLexeme());
-            consume(Type.INDENT, "Expected an INDENTION after the BEGIN IF statement but got " + peek().getLexeme());
+                    "Expected a 'BEGIN IF' after the conditional expression but got " + peekLexeme());
+            consume(Type.NEWLINE, "Expected a NEW LINE after the BEGIN IF statement but got " + peekLexeme());
+            consume(Type.INDENT, "Expected an INDENTION after the BEGIN IF statement but got " + peekLexeme());
 
             // Parse the body of the if statement
             List<StatementNode> ifElseBody = parseStatements(true, false);
 
             consume(Type.DEDENT,
-                    "Expected DEDENTION after the body of the IF ELSE statement but got " + peek().getLexeme());
+                    "Expected DEDENTION after the body of the IF ELSE statement but got " + peekLexeme());
             consume(Type.END_IF,
-                    "Expected an 'END ELSE' after the body of the IF ELSE statement but got " + peek().getLexeme());
-            consume(Type.NEWLINE, "Expected a new line after the END IF statement but got " + peek().getLexeme());
+                    "Expected an 'END ELSE' after the body of the IF ELSE statement but got " + peekLexeme());
+            consume(Type.NEWLINE, "Expected a new line after the END IF statement but got " + peekLexeme());
 
-            ifStatements.add(new ElseIfNode(ifElseCondition, ifElseBody, ifElseToken.getPosition()));
+            branches.add(new IfNode(ifElseCondition, ifElseBody, ifElsePosition));
         }
 
         if (match(Type.ELSE)) {
 
-            Token elseToken = previous();
+            Position elsePosition = previousPosition();
 
-            consume(Type.NEWLINE, "Expected a new line after the END IF statement but got " + peek().getLexeme());
+            consume(Type.NEWLINE, "Expected a new line after the END IF statement but got " + peekLexeme());
             consume(Type.BEGIN_IF,
-                    "Expected a 'BEGIN ELSE' after the conditional expression but got " + peek().getLexeme());
-            consume(Type.NEWLINE, "Expected a new line after the BEGIN ELSE statement but got " + peek().getLexeme());
-            consume(Type.INDENT, "Expected an INDENTION after the BEGIN ELSE statement but got " + peek().getLexeme());
+                    "Expected a 'BEGIN ELSE' after the conditional expression but got " + peekLexeme());
+            consume(Type.NEWLINE, "Expected a new line after the BEGIN ELSE statement but got " + peekLexeme());
+            consume(Type.INDENT, "Expected an INDENTION after the BEGIN ELSE statement but got " + peekLexeme());
 
             // Parse the body of the if statement
             List<StatementNode> elseBody = parseStatements(true, false);
 
             consume(Type.DEDENT,
-                    "Expected a DEDENTION after the body of the if statement but got " + peek().getLexeme());
+                    "Expected a DEDENTION after the body of the if statement but got " + peekLexeme());
             consume(Type.END_IF,
-                    "Expected an 'END ELSE' after the body of the if statement but got " + peek().getLexeme());
-            consume(Type.NEWLINE, "Expected a new line after the END IF statement but got " + peek().getLexeme());
+                    "Expected an 'END ELSE' after the body of the if statement but got " + peekLexeme());
+            consume(Type.NEWLINE, "Expected a new line after the END IF statement but got " + peekLexeme());
 
-            ifStatements.add(new ElseNode(elseBody, elseToken.getPosition()));
+            elseBranch = new ElseNode(elseBody, elsePosition);
         }
 
         // Create and return the IfStatementNode
-        return ifStatements;
+        return new IfStatementNode(branches, elseBranch, position);
     }
 
     private StatementNode parseWhileStatement() {
 
-        Token token = previous();
+        Position position = previousPosition();
 
-        consume(Type.LEFT_PARENTHESIS, "Expected '(', after 'WHILE' keyword but got " + peek().getLexeme());
+        consume(Type.LEFT_PARENTHESIS, "Expected '(', after 'WHILE' keyword but got " + peekLexeme());
 
         ExpressionNode condition = parseExpression();
 
-        consume(Type.RIGHT_PARENTHESIS, "Expected ')', after the conditional expression but got " + peek().getLexeme());
-        consume(Type.NEWLINE, "Expected new line before the BEGIN WHILE statement but got " + peek().getLexeme());
+        consume(Type.RIGHT_PARENTHESIS, "Expected ')', after the conditional expression but got " + peekLexeme());
+        consume(Type.NEWLINE, "Expected new line before the BEGIN WHILE statement but got " + peekLexeme());
         consume(Type.BEGIN_WHILE,
-                "Expected 'BEGIN WHILE' after the conditional expression but got " + peek().getLexeme());
-        consume(Type.NEWLINE, "Expected new line after the BEGIN WHILE statement but got " + peek().getLexeme());
-        consume(Type.INDENT, "Expected INDENT after the BEGIN WHILE statement but got " + peek().getLexeme());
+                "Expected 'BEGIN WHILE' after the conditional expression but got " + peekLexeme());
+        consume(Type.NEWLINE, "Expected new line after the BEGIN WHILE statement but got " + peekLexeme());
+        consume(Type.INDENT, "Expected INDENT after the BEGIN WHILE statement but got " + peekLexeme());
 
         List<StatementNode> body = parseStatements(false, true);
 
-        consume(Type.DEDENT, "Expected DEDENTION after the body of the while statement but got " + peek().getLexeme());
+        consume(Type.DEDENT, "Expected DEDENTION after the body of the while statement but got " + peekLexeme());
         consume(Type.END_WHILE,
-                "Expected 'END WHILE' after the body of the while statement but got " + peek().getLexeme());
+                "Expected 'END WHILE' after the body of the while statement but got " + peekLexeme());
 
-        return new WhileNode(condition, body, token.getPosition());
+        return new WhileNode(condition, body, position);
     }
 
     private StatementNode parseForStatement() {
-        Token token = previous();
+        Position position = previousPosition();
 
         consume(Type.LEFT_PARENTHESIS, "Expected '(', after 'FOR' keyword");
 
         AssignmentNode initialization = null;
 
-        if (peek().getType() != Type.DELIMITER) {
+        if (peekType() != Type.DELIMITER) {
 
             if (match(Type.INT) || match(Type.CHAR) || match(Type.FLOAT) || match(Type.BOOL)) {
                 error("Variable declaration inside the for loop is not allowed. It should be at the start of the begin code.",
@@ -879,7 +808,7 @@ public class Parser {
             List<StatementNode> initializations = parseAssignmentStatement();
 
             if (initializations.size() > 1) {
-                error("Expected a single assignment inside the FOR LOOP initialization", token);
+                error("Expected a single assignment inside the FOR LOOP initialization", position);
             }
 
             initialization = (AssignmentNode) initializations.get(0);
@@ -905,13 +834,29 @@ public class Parser {
         consume(Type.DEDENT, "Expected DEDENTION after the body of the loop statement");
         consume(Type.END_FOR, "Expected 'END LOOP' after the body of the loop statement");
 
-        return new ForNode(initialization, condition, update, body, token.getPosition());
+        return new ForNode(initialization, condition, update, body, position);
+    }
+
+    private void markStatement(int count) {
+        int last = statementStarts.size() - 1;
+
+        // A token no statement starts with is looked at again without moving on
+        if (last >= 0 && statementStarts.get(last) == currentTokenIndex) {
+            return;
+        }
+
+        statementStarts.add(currentTokenIndex);
+        statementCounts.add(count);
     }
 
     private void error(String message, Token token) {
+        error(message, token.getPosition());
+    }
+
+    private void error(String message, Position position) {
         System.err.println("Syntax error: " + message + " at Line " +
-                token.getPosition().getLine()
-                + " and Column " + token.getPosition().getColumn() + "\n");
+                position.getLine()
+                + " and Column " + position.getColumn() + "\n");
         System.exit(1);
     }
 
@@ -919,16 +864,35 @@ public class Parser {
         return tokens.get(currentTokenIndex);
     }
 
+    // The parser mostly looks at types, which come straight from the stream
+    // without building a Token
+    private Type peekType() {
+        return tokens.getType(currentTokenIndex);
+    }
+
+    private Type peekNextType(int index) {
+        return tokens.getType(currentTokenIndex + index);
+    }
+
+    private String peekLexeme() {
+        return tokens.getLexeme(currentTokenIndex);
+    }
+
+    // Builds the Token, only for a node that keeps it
     private Token previous() {
         return tokens.get(currentTokenIndex - 1);
     }
 
+    private Position previousPosition() {
+        return tokens.getPosition(currentTokenIndex - 1);
+    }
+
     private boolean isAtEnd() {
-        return currentTokenIndex >= tokens.size();
+        return !tokens.has(currentTokenIndex);
     }
 
     private boolean match(Type type) {
-        if (currentTokenIndex < tokens.size() && tokens.get(currentTokenIndex).getType() == type) {
+        if (tokens.has(currentTokenIndex) && tokens.getType(currentTokenIndex) == type) {
             currentTokenIndex++;
             return true;
         }
@@ -939,15 +903,12 @@ public class Parser {
         return tokens.get(currentTokenIndex + index);
     }
 
-    private Token consume(Type expectedType, String errorMessage) {
-        Token token = peek();
-        if (token.getType() == expectedType) {
-            currentTokenIndex++;
-            return token;
-        } else {
-            error(errorMessage, token);
+    // Returns the index of the token, a node that keeps it gets it from the stream
+    private int consume(Type expectedType, String errorMessage) {
+        if (peekType() != expectedType) {
+            error(errorMessage, peek());
         }
 
-        return null;
+        return currentTokenIndex++;
     }
 }
\ No newline at end of file
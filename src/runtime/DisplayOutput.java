@@ -0,0 +1,200 @@
+package src.runtime;
+
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+
+import src.utils.Symbol;
+
+// Everything DISPLAY and SCAN print goes through here. Text and numbers are
+// encoded straight into one reusable byte buffer, which is handed to the
+// stream in large chunks instead of locking the stream on every print
+public class DisplayOutput {
+
+    // When the buffer is written out besides when it is full, at the end of
+    // the program and before a runtime error is reported
+    public enum FlushPolicy {
+        // Only then
+        SIZE,
+        // Also before SCAN waits for input, so its prompt and the lines before it are seen
+        SCAN,
+        // Also after every DISPLAY, the same as printing directly
+        LINE
+    }
+
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final byte[] NEW_LINE = System.lineSeparator().getBytes();
+
+    private final PrintStream out;
+    private final Charset charset;
+    private final FlushPolicy policy;
+    private final byte[] buffer;
+    private int count;
+
+    public DisplayOutput(PrintStream out, FlushPolicy policy) {
+        this(out, policy, DEFAULT_CAPACITY);
+    }
+
+    public DisplayOutput(PrintStream out, FlushPolicy policy, int capacity) {
+        this.out = out;
+        this.charset = out.charset();
+        this.policy = policy;
+        this.buffer = new byte[Math.max(capacity, 32)];
+    }
+
+    public void write(String text) {
+        if (text == null) {
+            text = "null";
+        }
+
+        int length = text.length();
+
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+
+            // Anything that is not ASCII is left to the charset of the stream
+            if (c >= 0x80) {
+                write(text.substring(i).getBytes(charset));
+                return;
+            }
+
+            if (count == buffer.length) {
+                flushBuffer();
+            }
+            buffer[count++] = (byte) c;
+        }
+    }
+
+    public void write(char c) {
+        if (c >= 0x80) {
+            write(String.valueOf(c).getBytes(charset));
+            return;
+        }
+
+        if (count == buffer.length) {
+            flushBuffer();
+        }
+        buffer[count++] = (byte) c;
+    }
+
+    // The digits are written from the back straight into the buffer
+    public void write(long value) {
+        if (value == Long.MIN_VALUE) {
+            write(Long.toString(value));
+            return;
+        }
+
+        if (buffer.length - count < 20) {
+            flushBuffer();
+        }
+
+        boolean negative = value < 0;
+        long rest = negative ? -value : value;
+        int digits = 1;
+
+        for (long limit = 10; digits < 19 && rest >= limit; limit *= 10) {
+            digits++;
+        }
+
+        if (negative) {
+            buffer[count++] = '-';
+        }
+
+        int end = count + digits;
+
+        for (int i = end - 1; i >= count; i--) {
+            buffer[i] = (byte) ('0' + rest % 10);
+            rest /= 10;
+        }
+
+        count = end;
+    }
+
+    // Doubles keep the exact formatting of Double.toString
+    public void write(double value) {
+        write(Double.toString(value));
+    }
+
+    public void write(boolean value) {
+        write(value ? "TRUE" : "FALSE");
+    }
+
+    // A CHAR value is displayed with its quotes
+    public void writeChar(char value) {
+        write('\'');
+        write(value);
+        write('\'');
+    }
+
+    // The value of a variable the same way Symbol.getValue() writes it
+    public void write(Symbol symbol) {
+        if (!symbol.hasValue()) {
+            write("null");
+            return;
+        }
+
+        switch (symbol.getType()) {
+            case INT:
+                write(symbol.getIntValue());
+                break;
+            case FLOAT:
+                write(symbol.getFloatValue());
+                break;
+            case BOOL:
+                write(symbol.getBoolValue());
+                break;
+            case CHAR:
+                writeChar(symbol.getCharValue());
+                break;
+            default:
+                write("null");
+                break;
+        }
+    }
+
+    public void newLine() {
+        write(NEW_LINE);
+    }
+
+    // The end of a DISPLAY statement
+    public void endLine() {
+        newLine();
+
+        if (policy == FlushPolicy.LINE) {
+            flush();
+        }
+    }
+
+    // Called right before SCAN reads from the input
+    public void beforeScan() {
+        if (policy != FlushPolicy.SIZE) {
+            flush();
+        }
+    }
+
+    public void flush() {
+        flushBuffer();
+        out.flush();
+    }
+
+    private void write(byte[] bytes) {
+        if (bytes.length > buffer.length - count) {
+            flushBuffer();
+
+            if (bytes.length > buffer.length) {
+                out.write(bytes, 0, bytes.length);
+                return;
+            }
+        }
+
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+
+    private void flushBuffer() {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package src.runtime;
+
+import src.compiler.CompiledExpression;
+import src.utils.Position;
+import src.utils.Symbol;
+
+// Runs compiled expressions on three preallocated primitive stacks. The stacks
+// only grow the first time a deeper expression is seen, so evaluating an
+// expression in a loop does not allocate anything
+public class ExpressionEvaluator {
+    private final Symbol[] frame;
+    private final DisplayOutput output;
+    private long[] ints = new long[8];
+    private double[] floats = new double[8];
+    private boolean[] bools = new boolean[8];
+
+    public ExpressionEvaluator(Symbol[] frame, DisplayOutput output) {
+        this.frame = frame;
+        this.output = output;
+    }
+
+    public long evaluateInt(CompiledExpression expression) {
+        run(expression);
+        return ints[0];
+    }
+
+    public double evaluateFloat(CompiledExpression expression) {
+        run(expression);
+        return floats[0];
+    }
+
+    public boolean evaluateBool(CompiledExpression expression) {
+        run(expression);
+        return bools[0];
+    }
+
+    public char evaluateChar(CompiledExpression expression) {
+        run(expression);
+        return (char) ints[0];
+    }
+
+    private void run(CompiledExpression expression) {
+        ensureCapacity(expression);
+
+        int[] code = expression.getCode();
+        long[] ints = this.ints;
+        double[] floats = this.floats;
+        boolean[] bools = this.bools;
+        int ip = 0, fp = 0, bp = 0;
+
+        for (int pc = 0; pc < code.length; pc += 2) {
+            int operand = code[pc + 1];
+
+            switch (code[pc]) {
+                case CompiledExpression.PUSH_INT:
+                    ints[ip++] = expression.getIntConstants()[operand];
+                    break;
+                case CompiledExpression.PUSH_FLOAT:
+                    floats[fp++] = expression.getFloatConstants()[operand];
+                    break;
+                case CompiledExpression.PUSH_BOOL:
+                    bools[bp++] = operand != 0;
+                    break;
+                case CompiledExpression.LOAD_INT:
+                    ints[ip++] = frame[operand].getIntValue();
+                    break;
+                case CompiledExpression.LOAD_FLOAT:
+                    floats[fp++] = frame[operand].getFloatValue();
+                    break;
+                case CompiledExpression.LOAD_BOOL:
+                    bools[bp++] = frame[operand].getBoolValue();
+                    break;
+                case CompiledExpression.LOAD_CHAR:
+                    ints[ip++] = frame[operand].getCharValue();
+                    break;
+                case CompiledExpression.INT_TO_FLOAT:
+                    floats[fp++] = ints[--ip];
+                    break;
+
+                case CompiledExpression.IADD:
+                    ip--;
+                    ints[ip - 1] += ints[ip];
+                    break;
+                case CompiledExpression.ISUB:
+                    ip--;
+                    ints[ip - 1] -= ints[ip];
+                    break;
+                case CompiledExpression.IMUL:
+                    ip--;
+                    ints[ip - 1] *= ints[ip];
+                    break;
+                case CompiledExpression.IDIV:
+                    ip--;
+                    if (ints[ip] == 0) {
+                        error("Cannot divide by zero", expression.getTokens()[operand].getPosition());
+                    }
+                    ints[ip - 1] /= ints[ip];
+                    break;
+                case CompiledExpression.IMOD:
+                    ip--;
+                    if (ints[ip] == 0) {
+                        error("Cannot divide by zero", expression.getTokens()[operand].getPosition());
+                    }
+                    ints[ip - 1] %= ints[ip];
+                    break;
+                case CompiledExpression.INEG:
+                    ints[ip - 1] = -ints[ip - 1];
+                    break;
+
+                case CompiledExpression.FADD:
+                    fp--;
+                    floats[fp - 1] += floats[fp];
+                    break;
+                case CompiledExpression.FSUB:
+                    fp--;
+                    floats[fp - 1] -= floats[fp];
+                    break;
+                case CompiledExpression.FMUL:
+                    fp--;
+                    floats[fp - 1] *= floats[fp];
+                    break;
+                case CompiledExpression.FDIV:
+                    fp--;
+                    if (floats[fp] == 0) {
+                        error("Cannot divide by zero", expression.getTokens()[operand].getPosition());
+                    }
+                    floats[fp - 1] /= floats[fp];
+                    break;
+                case CompiledExpression.FMOD:
+                    fp--;
+                    if (floats[fp] == 0) {
+                        error("Cannot divide by zero", expression.getTokens()[operand].getPosition());
+                    }
+                    floats[fp - 1] %= floats[fp];
+                    break;
+                case CompiledExpression.FNEG:
+                    floats[fp - 1] = -floats[fp - 1];
+                    break;
+
+                case CompiledExpression.ILT:
+                    ip -= 2;
+                    bools[bp++] = ints[ip] < ints[ip + 1];
+                    break;
+                case CompiledExpression.IGT:
+                    ip -= 2;
+                    bools[bp++] = ints[ip] > ints[ip + 1];
+                    break;
+                case CompiledExpression.ILE:
+                    ip -= 2;
+                    bools[bp++] = ints[ip] <= ints[ip + 1];
+                    break;
+                case CompiledExpression.IGE:
+                    ip -= 2;
+                    bools[bp++] = ints[ip] >= ints[ip + 1];
+                    break;
+                case CompiledExpression.IEQ:
+                    ip -= 2;
+                    bools[bp++] = ints[ip] == ints[ip + 1];
+                    break;
+                case CompiledExpression.INE:
+                    ip -= 2;
+                    bools[bp++] = ints[ip] != ints[ip + 1];
+                    break;
+
+                case CompiledExpression.FLT:
+                    fp -= 2;
+                    bools[bp++] = floats[fp] < floats[fp + 1];
+                    break;
+                case CompiledExpression.FGT:
+                    fp -= 2;
+                    bools[bp++] = floats[fp] > floats[fp + 1];
+                    break;
+                case CompiledExpression.FLE:
+                    fp -= 2;
+                    bools[bp++] = floats[fp] <= floats[fp + 1];
+                    break;
+                case CompiledExpression.FGE:
+                    fp -= 2;
+                    bools[bp++] = floats[fp] >= floats[fp + 1];
+                    break;
+                case CompiledExpression.FEQ:
+                    fp -= 2;
+                    bools[bp++] = floats[fp] == floats[fp + 1];
+                    break;
+                case CompiledExpression.FNE:
+                    fp -= 2;
+                    bools[bp++] = floats[fp] != floats[fp + 1];
+                    break;
+
+                case CompiledExpression.BEQ:
+                    bp--;
+                    bools[bp - 1] = bools[bp - 1] == bools[bp];
+                    break;
+                case CompiledExpression.BNE:
+                    bp--;
+                    bools[bp - 1] = bools[bp - 1] != bools[bp];
+                    break;
+                case CompiledExpression.JUMP_IF_FALSE:
+                    if (!bools[bp - 1]) {
+                        pc = operand - 2;
+                    } else {
+                        bp--;
+                    }
+                    break;
+                case CompiledExpression.JUMP_IF_TRUE:
+                    if (bools[bp - 1]) {
+                        pc = operand - 2;
+                    } else {
+                        bp--;
+                    }
+                    break;
+                case CompiledExpression.NOT:
+                    bools[bp - 1] = !bools[bp - 1];
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown instruction " + code[pc]);
+            }
+        }
+    }
+
+    private void ensureCapacity(CompiledExpression expression) {
+        if (expression.getMaxIntDepth() > ints.length) {
+            ints = new long[expression.getMaxIntDepth()];
+        }
+
+        if (expression.getMaxFloatDepth() > floats.length) {
+            floats = new double[expression.getMaxFloatDepth()];
+        }
+
+        if (expression.getMaxBoolDepth() > bools.length) {
+            bools = new boolean[expression.getMaxBoolDepth()];
+        }
+    }
+
+    private void error(String message, Position position) {
+        output.flush();
+        System.err.println("Runtime Error: " + message + " at Line " +
+                position.getLine() + " and Column " + position.getColumn() + "\n");
+
+        System.exit(1);
+    }
+}
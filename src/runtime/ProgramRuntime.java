@@ -0,0 +1,88 @@
+package src.runtime;
+
+import src.utils.Position;
+import src.utils.Symbol;
+
+// The calls a program compiled to JVM bytecode makes for everything that is not
+// plain arithmetic or control flow: DISPLAY, SCAN and runtime errors
+public class ProgramRuntime {
+    private final Symbol[] frame;
+    private final DisplayOutput output;
+    private final ScanInput scanInput;
+    private boolean displayError = true;
+
+    public ProgramRuntime(Symbol[] frame, DisplayOutput output) {
+        this.frame = frame;
+        this.output = output;
+        this.scanInput = new ScanInput(output);
+    }
+
+    public void beginDisplay() {
+        displayError = false;
+    }
+
+    public void text(String text) {
+        output.write(text);
+    }
+
+    public void appendInt(long value) {
+        output.write(value);
+    }
+
+    public void appendFloat(double value) {
+        output.write(value);
+    }
+
+    public void appendBool(boolean value) {
+        output.write(value);
+    }
+
+    public void appendChar(char value) {
+        output.writeChar(value);
+    }
+
+    public void endDisplay() {
+        output.endLine();
+    }
+
+    // SCAN reads into the symbol so the prompt and the type checks stay the same,
+    // then hands the value back to the compiled code
+    public long scanInt(int slot, int line, int column) {
+        scan(slot, line, column);
+        return frame[slot].getIntValue();
+    }
+
+    public double scanFloat(int slot, int line, int column) {
+        scan(slot, line, column);
+        return frame[slot].getFloatValue();
+    }
+
+    public boolean scanBool(int slot, int line, int column) {
+        scan(slot, line, column);
+        return frame[slot].getBoolValue();
+    }
+
+    public char scanChar(int slot, int line, int column) {
+        scan(slot, line, column);
+        return frame[slot].getCharValue();
+    }
+
+    private void scan(int slot, int line, int column) {
+        displayError = false;
+        scanInput.read(frame[slot], new Position(line, column));
+    }
+
+    public void error(String message, int line, int column) {
+        output.flush();
+        System.err.println("Runtime Error: " + message + " at Line " + line + " and Column " + column + "\n");
+
+        System.exit(1);
+    }
+
+    public void finish() {
+        if (displayError) {
+            output.write("No Error");
+            output.newLine();
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package src.runtime;
+
+import src.compiler.RegisterProgram;
+import src.utils.Position;
+import src.utils.Symbol;
+import src.utils.Type;
+
+// Runs a RegisterProgram in one dispatch loop over its instruction stream.
+// All values stay in the two register banks, only SCAN goes through the symbols
+public class RegisterMachine {
+    private final RegisterProgram program;
+    private final Symbol[] frame;
+    private final DisplayOutput output;
+    private final ScanInput scanInput;
+
+    public RegisterMachine(RegisterProgram program, Symbol[] frame, DisplayOutput output) {
+        this.program = program;
+        this.frame = frame;
+        this.output = output;
+        this.scanInput = new ScanInput(output);
+    }
+
+    public void run() {
+        int[] code = program.getCode();
+        long[] intConstants = program.getIntConstants();
+        double[] floatConstants = program.getFloatConstants();
+        String[] strings = program.getStrings();
+        long[] ints = new long[program.getIntRegisterCount()];
+        double[] floats = new double[program.getFloatRegisterCount()];
+        boolean displayError = true;
+
+        load(ints, floats);
+
+        int pc = 0;
+
+        while (true) {
+            switch (code[pc]) {
+                case RegisterProgram.ICONST:
+                    ints[code[pc + 1]] = intConstants[code[pc + 2]];
+                    pc += 3;
+                    break;
+                case RegisterProgram.DCONST:
+                    floats[code[pc + 1]] = floatConstants[code[pc + 2]];
+                    pc += 3;
+                    break;
+                case RegisterProgram.IMOV:
+                    ints[code[pc + 1]] = ints[code[pc + 2]];
+                    pc += 3;
+                    break;
+                case RegisterProgram.DMOV:
+                    floats[code[pc + 1]] = floats[code[pc + 2]];
+                    pc += 3;
+                    break;
+                case RegisterProgram.I2D:
+                    floats[code[pc + 1]] = ints[code[pc + 2]];
+                    pc += 3;
+                    break;
+                case RegisterProgram.D2I:
+                    ints[code[pc + 1]] = (long) floats[code[pc + 2]];
+                    pc += 3;
+                    break;
+                case RegisterProgram.I2C:
+                    ints[code[pc + 1]] = (char) ints[code[pc + 2]];
+                    pc += 3;
+                    break;
+
+                case RegisterProgram.IADD:
+                    ints[code[pc + 1]] = ints[code[pc + 2]] + ints[code[pc + 3]];
+                    pc += 4;
+                    break;
+                case RegisterProgram.ISUB:
+                    ints[code[pc + 1]] = ints[code[pc + 2]] - ints[code[pc + 3]];
+                    pc += 4;
+                    break;
+                case RegisterProgram.IMUL:
+                    ints[code[pc + 1]] = ints[code[pc + 2]] * ints[code[pc + 3]];
+                    pc += 4;
+                    break;
+                case RegisterProgram.IDIV:
+                    if (ints[code[pc + 3]] == 0) {
+                        error("Cannot divide by zero", program.getPositions()[code[pc + 4]]);
+                    }
+                    ints[code[pc + 1]] = ints[code[pc + 2]] / ints[code[pc + 3]];
+                    pc += 5;
+                    break;
+                case RegisterProgram.IMOD:
+                    if (ints[code[pc + 3]] == 0) {
+                        error("Cannot divide by zero", program.getPositions()[code[pc + 4]]);
+                    }
+                    ints[code[pc + 1]] = ints[code[pc + 2]] % ints[code[pc + 3]];
+                    pc += 5;
+                    break;
+                case RegisterProgram.INEG:
+                    ints[code[pc + 1]] = -ints[code[pc + 2]];
+                    pc += 3;
+                    break;
+
+                case RegisterProgram.DADD:
+                    floats[code[pc + 1]] = floats[code[pc + 2]] + floats[code[pc + 3]];
+                    pc += 4;
+                    break;
+                case RegisterProgram.DSUB:
+                    floats[code[pc + 1]] = floats[code[pc + 2]] - floats[code[pc + 3]];
+                    pc += 4;
+                    break;
+                case RegisterProgram.DMUL:
+                    floats[code[pc + 1]] = floats[code[pc + 2]] * floats[code[pc + 3]];
+                    pc += 4;
+                    break;
+                case RegisterProgram.DDIV:
+                    if (floats[code[pc + 3]] == 0) {
+                        error("Cannot divide by zero", program.getPositions()[code[pc + 4]]);
+                    }
+                    floats[code[pc + 1]] = floats[code[pc + 2]] / floats[code[pc + 3]];
+                    pc += 5;
+                    break;
+                case RegisterProgram.DMOD:
+                    if (floats[code[pc + 3]] == 0) {
+                        error("Cannot divide by zero", program.getPositions()[code[pc + 4]]);
+                    }
+                    floats[code[pc + 1]] = floats[code[pc + 2]] % floats[code[pc + 3]];
+                    pc += 5;
+                    break;
+                case RegisterProgram.DNEG:
+                    floats[code[pc + 1]] = -floats[code[pc + 2]];
+                    pc += 3;
+                    break;
+
+                case RegisterProgram.ICMP_LT:
+                    ints[code[pc + 1]] = ints[code[pc + 2]] < ints[code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                    break;
+                case RegisterProgram.ICMP_GT:
+                    ints[code[pc + 1]] = ints[code[pc + 2]] > ints[code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                    break;
+                case RegisterProgram.ICMP_LE:
+                    ints[code[pc + 1]] = ints[code[pc + 2]] <= ints[code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                    break;
+                case RegisterProgram.ICMP_GE:
+                    ints[code[pc + 1]] = ints[code[pc + 2]] >= ints[code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                    break;
+                case RegisterProgram.ICMP_EQ:
+                    ints[code[pc + 1]] = ints[code[pc + 2]] == ints[code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                    break;
+                case RegisterProgram.ICMP_NE:
+                    ints[code[pc + 1]] = ints[code[pc + 2]] != ints[code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                    break;
+
+                case RegisterProgram.DCMP_LT:
+                    ints[code[pc + 1]] = floats[code[pc + 2]] < floats[code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                    break;
+                case RegisterProgram.DCMP_GT:
+                    ints[code[pc + 1]] = floats[code[pc + 2]] > floats[code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                    break;
+                case RegisterProgram.DCMP_LE:
+                    ints[code[pc + 1]] = floats[code[pc + 2]] <= floats[code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                    break;
+                case RegisterProgram.DCMP_GE:
+                    ints[code[pc + 1]] = floats[code[pc + 2]] >= floats[code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                    break;
+                case RegisterProgram.DCMP_EQ:
+                    ints[code[pc + 1]] = floats[code[pc + 2]] == floats[code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                    break;
+                case RegisterProgram.DCMP_NE:
+                    ints[code[pc + 1]] = floats[code[pc + 2]] != floats[code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                    break;
+
+                case RegisterProgram.NOT:
+                    ints[code[pc + 1]] = ints[code[pc + 2]] ^ 1;
+                    pc += 3;
+                    break;
+
+                case RegisterProgram.JMP:
+                    pc = code[pc + 1];
+                    break;
+                case RegisterProgram.JMP_IF_FALSE:
+                    pc = ints[code[pc + 1]] == 0 ? code[pc + 2] : pc + 3;
+                    break;
+                case RegisterProgram.JMP_IF_TRUE:
+                    pc = ints[code[pc + 1]] != 0 ? code[pc + 2] : pc + 3;
+                    break;
+
+                case RegisterProgram.DISPLAY_BEGIN:
+                    displayError = false;
+                    pc += 1;
+                    break;
+                case RegisterProgram.DISPLAY_SEGMENT:
+                    output.write(strings[code[pc + 1]]);
+                    pc += 2;
+                    break;
+                case RegisterProgram.DISPLAY_INT:
+                    output.write(ints[code[pc + 1]]);
+                    pc += 2;
+                    break;
+                case RegisterProgram.DISPLAY_FLOAT:
+                    output.write(floats[code[pc + 1]]);
+                    pc += 2;
+                    break;
+                case RegisterProgram.DISPLAY_BOOL:
+                    output.write(ints[code[pc + 1]] != 0);
+                    pc += 2;
+                    break;
+                case RegisterProgram.DISPLAY_CHAR:
+                    output.writeChar((char) ints[code[pc + 1]]);
+                    pc += 2;
+                    break;
+                case RegisterProgram.DISPLAY_END:
+                    output.endLine();
+                    pc += 1;
+                    break;
+
+                case RegisterProgram.SCAN:
+                    displayError = false;
+                    scan(code[pc + 1], frame[code[pc + 2]], program.getPositions()[code[pc + 3]], ints, floats);
+                    pc += 4;
+                    break;
+                case RegisterProgram.HALT:
+                    if (displayError) {
+                        output.write("No Error");
+                        output.newLine();
+                    }
+                    return;
+                default:
+                    throw new IllegalStateException("Unknown instruction " + code[pc] + " at " + pc);
+            }
+        }
+    }
+
+    // The declared values of the variables are the starting values of their registers
+    private void load(long[] ints, double[] floats) {
+        int[] intRegisters = program.getIntRegisters();
+        int[] floatRegisters = program.getFloatRegisters();
+
+        for (Symbol symbol : frame) {
+            int slot = symbol.getSlot();
+
+            switch (symbol.getType()) {
+                case INT:
+                    ints[intRegisters[slot]] = symbol.getIntValue();
+                    break;
+                case FLOAT:
+                    floats[floatRegisters[slot]] = symbol.getFloatValue();
+                    break;
+                case BOOL:
+                    ints[intRegisters[slot]] = symbol.getBoolValue() ? 1 : 0;
+                    break;
+                default:
+                    ints[intRegisters[slot]] = symbol.getCharValue();
+                    break;
+            }
+        }
+    }
+
+    private void scan(int register, Symbol symbol, Position position, long[] ints, double[] floats) {
+        scanInput.read(symbol, position);
+
+        if (symbol.getType() == Type.INT) {
+            ints[register] = symbol.getIntValue();
+        } else if (symbol.getType() == Type.FLOAT) {
+            floats[register] = symbol.getFloatValue();
+        } else if (symbol.getType() == Type.BOOL) {
+            ints[register] = symbol.getBoolValue() ? 1 : 0;
+        } else {
+            ints[register] = symbol.getCharValue();
+        }
+    }
+
+    private void error(String message, Position position) {
+        output.flush();
+        System.err.println("Runtime Error: " + message + " at Line " +
+                position.getLine() + " and Column " + position.getColumn() + "\n");
+
+        System.exit(1);
+    }
+}
@@ -0,0 +1,68 @@
+package src.runtime;
+
+import java.util.Scanner;
+
+import src.utils.Position;
+import src.utils.Symbol;
+import src.utils.Type;
+
+// Reads the values of a SCAN statement. Shared by the execution engines so
+// they all accept and reject the same input
+public class ScanInput {
+    private final DisplayOutput output;
+    private Scanner scanner;
+
+    public ScanInput(DisplayOutput output) {
+        this.output = output;
+    }
+
+    public void read(Symbol symbol, Position position) {
+
+        // One scanner is kept for the whole run, closing it would also close System.in
+        if (scanner == null) {
+            scanner = new Scanner(System.in);
+        }
+
+        output.write(symbol.getType().toString());
+        output.write(" ");
+        output.write(symbol.getName());
+        output.write(": ");
+        output.beforeScan();
+        String input = scanner.next();
+
+        // Convert to a Data Type
+
+        Type inputDataType = null;
+
+        if (input.matches("[-+]?[0-9]+")) {
+            inputDataType = Type.INT;
+        } else if (input.matches("[-+]?[0-9]+(\\.[0-9]+)?")) {
+            inputDataType = Type.FLOAT;
+        } else if (input.matches("'[a-zA-Z0-9]'")) {
+            inputDataType = Type.CHAR;
+        } else if (input.equals("\"TRUE\"") || input.equals("\"FALSE\"")) {
+            inputDataType = Type.BOOL;
+        } else {
+            error("Invalid input entered. Couldn't be converted to a suitable data type", position);
+        }
+
+        if (symbol.getType() != inputDataType) {
+            error("Type mismatch. Assigning a " + inputDataType + " to a " + symbol.getType() + " datatype",
+                    position);
+        }
+
+        if (inputDataType == Type.BOOL) {
+            symbol.setBoolValue(input.equals("\"TRUE\""));
+        } else {
+            symbol.setValue(input);
+        }
+    }
+
+    private void error(String message, Position position) {
+        output.flush();
+        System.err.println("Runtime Error: " + message + " at Line " +
+                position.getLine() + " and Column " + position.getColumn() + "\n");
+
+        System.exit(1);
+    }
+}
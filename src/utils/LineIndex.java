@@ -0,0 +1,94 @@
+package src.utils;
+
+import java.util.Arrays;
+
+// Where every line of the source starts. Turns a source offset into a line
+// and column with a binary search, so positions can be kept as one offset
+// and only worked out when an error message needs them. The table itself is
+// built the first time a line is asked for.
+//
+// When the source is edited after the positions were taken, moveLines
+// records how the lines below the edit moved, so the positions that survive
+// the edit keep reporting where their text is now
+public class LineIndex {
+    private final CharSequence source;
+    private int[] starts;
+    private int count;
+
+    // Applied in order, each one to the line the ones before it give
+    private int[] movedFrom = new int[0];
+    private int[] movedBy = new int[0];
+    private int moves;
+
+    public LineIndex(CharSequence source) {
+        this.source = source;
+    }
+
+    public int lineOf(int offset) {
+        int line = rawLineOf(offset);
+
+        for (int i = 0; i < moves; i++) {
+            if (line >= movedFrom[i]) {
+                line += movedBy[i];
+            }
+        }
+
+        return line;
+    }
+
+    public int columnOf(int offset) {
+        return offset - starts[rawLineOf(offset) - 1] + 1;
+    }
+
+    // Every line from this one down, as lineOf reports it now, is that many lines further down
+    public void moveLines(int from, int lines) {
+        if (moves == movedFrom.length) {
+            movedFrom = Arrays.copyOf(movedFrom, Math.max(moves * 2, 4));
+            movedBy = Arrays.copyOf(movedBy, Math.max(moves * 2, 4));
+        }
+
+        movedFrom[moves] = from;
+        movedBy[moves] = lines;
+        moves++;
+    }
+
+    // The line within the source itself
+    private int rawLineOf(int offset) {
+        if (starts == null) {
+            build();
+        }
+
+        int low = 0;
+        int high = count - 1;
+
+        // The last line that starts at or before the offset
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+
+            if (starts[middle] <= offset) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        return low + 1;
+    }
+
+    private void build() {
+        int[] starts = new int[64];
+        int count = 1;
+
+        for (int i = 0; i < source.length(); i++) {
+            if (source.charAt(i) == '\n') {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                }
+                starts[count++] = i + 1;
+            }
+        }
+
+        this.starts = starts;
+        this.count = count;
+    }
+}
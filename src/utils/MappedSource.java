@@ -0,0 +1,111 @@
+package src.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// A source file mapped into memory and read by the lexer in place. Each byte
+// is one character, so nothing is decoded or copied up front and only the
+// lexemes that are asked for become Strings. The source is seen the same way
+// as when it is read line by line, with a newline after the last line
+public class MappedSource implements CharSequence {
+    private final ByteBuffer bytes;
+    private final int start;
+    private final int length;
+
+    private MappedSource(ByteBuffer bytes, int start, int length) {
+        this.bytes = bytes;
+        this.start = start;
+        this.length = length;
+    }
+
+    // Falls back to decoding the file when a byte is not ASCII or a line ends
+    // with a carriage return, which only reading line by line gets right
+    public static CharSequence load(Path path) throws IOException {
+        ByteBuffer bytes;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE - 1) {
+                throw new IOException("File is too large to map: " + path);
+            }
+
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        int size = bytes.limit();
+
+        for (int i = 0; i < size; i++) {
+            byte b = bytes.get(i);
+
+            if (b < 0 || b == '\r') {
+                return decode(path);
+            }
+        }
+
+        if (size > 0 && bytes.get(size - 1) != '\n') {
+            return new MappedSource(bytes, 0, size + 1);
+        }
+
+        return new MappedSource(bytes, 0, size);
+    }
+
+    private static String decode(Path path) throws IOException {
+        StringBuilder sb = new StringBuilder();
+
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            sb.append(line).append('\n');
+        }
+
+        return sb.toString();
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    // The newline added after a last line that has none is past the end of the file
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new StringIndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+        }
+
+        int position = start + index;
+
+        if (position == bytes.limit()) {
+            return '\n';
+        }
+
+        return (char) bytes.get(position);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        if (from < 0 || to > length || from > to) {
+            throw new StringIndexOutOfBoundsException("begin " + from + ", end " + to + ", length " + length);
+        }
+
+        return new MappedSource(bytes, start + from, to - from);
+    }
+
+    @Override
+    public String toString() {
+        byte[] text = new byte[length];
+        int available = Math.max(Math.min(length, bytes.limit() - start), 0);
+
+        if (available > 0) {
+            bytes.get(start, text, 0, available);
+        }
+
+        if (available < length) {
+            text[available] = '\n';
+        }
+
+        return new String(text, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -1,42 +1,41 @@
 package src.utils;
 
 public class Position {
-    private int line;
-    private int column;
+
+    // For tokens that do not come from the source, like the parentheses a BinaryNode adds
+    public static final Position NONE = new Position(0, 0);
+
+    private final LineIndex lines;
+    private final int offset;
+    private final int line;
+    private final int column;
 
     public Position(int line, int column) {
+        this.lines = null;
+        this.offset = -1;
         this.line = line;
         this.column = column;
     }
 
-    public void setLine(int line) {
-        this.line = line;
+    // A position in the source that only looks up its line and column when asked
+    // The line is not kept, an edit above it can still move it
+    public Position(LineIndex lines, int offset) {
+        this.lines = lines;
+        this.offset = offset;
+        this.line = 0;
+        this.column = 0;
     }
 
     public int getLine() {
-        return line;
-    }
-
-    public void setColumn(int column) {
-        this.column = column;
+        return lines != null ? lines.lineOf(offset) : line;
     }
 
     public int getColumn() {
-        return column;
-    }
-
-    public void add(int value) {
-        column += value;
-    }
-
-    public void newLine() {
-        line++;
-        column = 1;
+        return lines != null ? lines.columnOf(offset) : column;
     }
 
     @Override
     public String toString() {
-        return " at Line: " + line + ", Column: " + column;
+        return " at Line: " + getLine() + ", Column: " + getColumn();
     }
 }
-
@@ -3,9 +3,17 @@ package src.utils;
 public class Symbol {
     Type type;
     String name;
-    String value;
+    int slot = -1;
     boolean initialized = false;
 
+    // Only the field matching the type is used. The values are kept as
+    // primitives so the interpreter never has to parse or format text
+    boolean hasValue = false;
+    long intValue;
+    double floatValue;
+    boolean boolValue;
+    char charValue;
+
     public Symbol(Type type, String name) {
         this.name = name;
         this.type = type;
@@ -13,10 +21,9 @@ public class Symbol {
 
     public Symbol(Type type, String name, String value) {
         this(type, name);
-        this.value = value;
 
         if (value != null) {
-            this.initialized = true;
+            setValue(value);
         }
     }
 
@@ -28,12 +35,112 @@ public class Symbol {
         return name;
     }
 
+    // Index of the variable in the interpreter's frame, assigned by the symbol table
+    public int getSlot() {
+        return slot;
+    }
+
+    // Text form of the value, the same way it is written in a CODE program
     public String getValue() {
-        return value;
+        if (!hasValue) {
+            return null;
+        }
+
+        switch (type) {
+            case INT:
+                return String.valueOf(intValue);
+            case FLOAT:
+                return String.valueOf(floatValue);
+            case BOOL:
+                return boolValue ? "TRUE" : "FALSE";
+            case CHAR:
+                return "'" + charValue + "'";
+            default:
+                return null;
+        }
+    }
+
+    public boolean hasValue() {
+        return hasValue;
+    }
+
+    public final void setValue(String value) {
+        this.initialized = true;
+        this.hasValue = value != null;
+
+        if (value == null) {
+            return;
+        }
+
+        switch (type) {
+            case INT:
+                intValue = Long.parseLong(value);
+                break;
+            case FLOAT:
+                floatValue = Double.parseDouble(value);
+                break;
+            case BOOL:
+                boolValue = Boolean.parseBoolean(value);
+                break;
+            case CHAR:
+                if (value.length() == 3 && value.charAt(0) == '\'' && value.charAt(2) == '\'') {
+                    charValue = value.charAt(1);
+                } else {
+                    charValue = value.charAt(0);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    public long getIntValue() {
+        return intValue;
+    }
+
+    public void setIntValue(long value) {
+        this.intValue = value;
+        this.hasValue = true;
+        this.initialized = true;
+    }
+
+    public double getFloatValue() {
+        return floatValue;
+    }
+
+    public void setFloatValue(double value) {
+        this.floatValue = value;
+        this.hasValue = true;
+        this.initialized = true;
+    }
+
+    public boolean getBoolValue() {
+        return boolValue;
+    }
+
+    public void setBoolValue(boolean value) {
+        this.boolValue = value;
+        this.hasValue = true;
+        this.initialized = true;
+    }
+
+    public char getCharValue() {
+        return charValue;
+    }
+
+    public void setCharValue(char value) {
+        this.charValue = value;
+        this.hasValue = true;
+        this.initialized = true;
     }
 
-    public void setValue(String value) {
-        this.value = value;
+    // Copy the value of another symbol of the same type without going through text
+    public void copyValue(Symbol other) {
+        this.intValue = other.intValue;
+        this.floatValue = other.floatValue;
+        this.boolValue = other.boolValue;
+        this.charValue = other.charValue;
+        this.hasValue = other.hasValue;
         this.initialized = true;
     }
 
@@ -47,6 +154,10 @@ public class Symbol {
 
     // Copy constructor or a copy method for deep copying
     public Symbol copy() {
-        return new Symbol(this.type, this.name, this.value);
+        Symbol symbol = new Symbol(this.type, this.name);
+        symbol.slot = this.slot;
+        symbol.copyValue(this);
+        symbol.initialized = this.hasValue;
+        return symbol;
     }
-}
\ No newline at end of file
+}
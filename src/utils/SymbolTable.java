@@ -1,5 +1,8 @@
 package src.utils;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.List;
@@ -7,17 +10,22 @@ import java.util.ArrayList;
 
 public class SymbolTable {
     private Map<String, Symbol> symbols;
+    private List<Symbol> slots;
 
     public SymbolTable() {
         symbols = new HashMap<>();
+        slots = new ArrayList<>();
     }
 
+    // Every symbol gets the next free slot so the variables can be stored in a dense array
     public boolean insert(Symbol symbol) {
         if (symbols.containsKey(symbol.name)) {
             return false;
         }
 
+        symbol.slot = slots.size();
         symbols.put(symbol.name, symbol);
+        slots.add(symbol);
         return true;
     }
 
@@ -25,17 +33,99 @@ public class SymbolTable {
         return symbols.get(name);
     }
 
+    public Symbol get(int slot) {
+        return slots.get(slot);
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    // The symbols indexed by their slot
+    public Symbol[] getFrame() {
+        return slots.toArray(new Symbol[0]);
+    }
+
     public SymbolTable copy() {
         SymbolTable newTable = new SymbolTable();
-        for (Map.Entry<String, Symbol> entry : symbols.entrySet()) {
-            String newKey = new String(entry.getKey()); // Deep copy key if necessary, assuming keys are strings
-            Symbol newValue = entry.getValue().copy(); // Deep copy value
-            newTable.symbols.put(newKey, newValue);
+        for (Symbol symbol : slots) {
+            Symbol newValue = symbol.copy(); // Deep copy value, keeping the slot
+            newTable.symbols.put(newValue.name, newValue);
+            newTable.slots.add(newValue);
         }
         return newTable;
     }
 
+    // Unlike copy(), keeps whether each variable was initialized even when it has no value yet
+    public SymbolTable snapshot() {
+        SymbolTable newTable = copy();
+        for (Symbol symbol : slots) {
+            newTable.slots.get(symbol.slot).initialized = symbol.initialized;
+        }
+        return newTable;
+    }
+
+    // Whether every variable has the same value and is initialized the same as in the other table
+    public boolean matches(SymbolTable other) {
+        if (slots.size() != other.slots.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < slots.size(); i++) {
+            Symbol symbol = slots.get(i);
+            Symbol otherSymbol = other.slots.get(i);
+
+            if (symbol.initialized != otherSymbol.initialized
+                    || symbol.hasValue != otherSymbol.hasValue
+                    || symbol.intValue != otherSymbol.intValue
+                    || Double.compare(symbol.floatValue, otherSymbol.floatValue) != 0
+                    || symbol.boolValue != otherSymbol.boolValue
+                    || symbol.charValue != otherSymbol.charValue) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // The symbols in slot order with their values, a variable counts as
+    // initialized when it has a value, the same as after copy()
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(slots.size());
+
+        for (Symbol symbol : slots) {
+            out.writeInt(symbol.type.ordinal());
+            out.writeUTF(symbol.name);
+            out.writeBoolean(symbol.hasValue);
+            out.writeLong(symbol.intValue);
+            out.writeDouble(symbol.floatValue);
+            out.writeBoolean(symbol.boolValue);
+            out.writeChar(symbol.charValue);
+        }
+    }
+
+    public static SymbolTable read(DataInput in) throws IOException {
+        SymbolTable table = new SymbolTable();
+        Type[] types = Type.values();
+        int size = in.readInt();
+
+        for (int i = 0; i < size; i++) {
+            Symbol symbol = new Symbol(types[in.readInt()], in.readUTF());
+
+            symbol.hasValue = in.readBoolean();
+            symbol.intValue = in.readLong();
+            symbol.floatValue = in.readDouble();
+            symbol.boolValue = in.readBoolean();
+            symbol.charValue = in.readChar();
+            symbol.initialized = symbol.hasValue;
+
+            table.insert(symbol);
+        }
+
+        return table;
+    }
+
     public List<Symbol> getSymbols() {
-        return new ArrayList<>(symbols.values());
+        return new ArrayList<>(slots);
     }
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ public class Token {
     private Type type;
     private String lexeme;
     private Position position;
+    private int slot = -1;
 
     public Token(Type type, String lexeme, Position position) {
         this.type = type;
@@ -24,6 +25,15 @@ public class Token {
         return lexeme;
     }
 
+    // Frame slot of the variable an identifier refers to, resolved by the semantic analyzer
+    public int getSlot() {
+        return slot;
+    }
+
+    public void setSlot(int slot) {
+        this.slot = slot;
+    }
+
     @Override
     public String toString() {
         if (type == Type.LITERAL || type == Type.SPECIAL_CHARACTER) {
@@ -0,0 +1,289 @@
+package src.utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// The tokens of a program kept as parallel arrays instead of one object per
+// token. A token is its type, the span of its text in the source and the
+// source offset of its position. The lexeme String, the line and column and
+// the Token object are only worked out when something asks for them.
+//
+// A stream can also be filled on demand by a streaming lexer. Then the
+// source is not kept, so each token carries its lexeme, line and column, and
+// the tokens before the last release() are dropped to keep the window small.
+// The parser only looks ahead to the end of the current line, so the window
+// never holds much more than a statement
+public class TokenStream {
+    private static final Type[] TYPES = Type.values();
+
+    // Lexes at least one more token, returns false once the input is used up
+    public interface Filler {
+        boolean fill();
+    }
+
+    private final CharSequence source;
+    private final LineIndex lines;
+    private final Filler filler;
+
+    // Token i is kept at slot i - base
+    private int base;
+    private int count;
+    private int released;
+
+    private int[] types = new int[64];
+    private int[] offsets = new int[64];
+    private int[] lengths = new int[64];
+    private int[] positions = new int[64];
+
+    // The few lexemes that are not a piece of the source, like TRUE taken out of "TRUE"
+    private final Map<Integer, String> texts = new HashMap<>();
+
+    // Only for a streamed source, where positions holds the column
+    private String[] lexemes;
+    private int[] lineNumbers;
+
+    // Created on first use, so every caller of get(i) shares the same Token
+    private Token[] materialized;
+
+    public TokenStream(CharSequence source) {
+        this.source = source;
+        this.lines = new LineIndex(source);
+        this.filler = null;
+    }
+
+    public TokenStream(Filler filler) {
+        this.source = null;
+        this.lines = null;
+        this.filler = filler;
+        this.lexemes = new String[64];
+        this.lineNumbers = new int[64];
+    }
+
+    public void add(Type type, int offset, int length, int position) {
+        int slot = nextSlot();
+
+        types[slot] = type.ordinal();
+        offsets[slot] = offset;
+        lengths[slot] = length;
+        positions[slot] = position;
+        count++;
+    }
+
+    // For a token whose lexeme does not appear as is in the source
+    public void add(Type type, String text, int position) {
+        texts.put(base + count, text);
+        add(type, -1, text.length(), position);
+    }
+
+    // For a token of a streamed source
+    public void add(Type type, String text, int line, int column) {
+        int slot = nextSlot();
+
+        types[slot] = type.ordinal();
+        lengths[slot] = text.length();
+        positions[slot] = column;
+        lexemes[slot] = text;
+        lineNumbers[slot] = line;
+        count++;
+    }
+
+    // Appends tokens from..to of a stream over the same source
+    public void append(TokenStream other, int from, int to) {
+        int length = to - from;
+
+        if (count + length > types.length) {
+            resize(Math.max(count + length, types.length * 2));
+        }
+
+        System.arraycopy(other.types, from, types, count, length);
+        System.arraycopy(other.offsets, from, offsets, count, length);
+        System.arraycopy(other.lengths, from, lengths, count, length);
+        System.arraycopy(other.positions, from, positions, count, length);
+
+        for (Map.Entry<Integer, String> text : other.texts.entrySet()) {
+            if (text.getKey() >= from && text.getKey() < to) {
+                texts.put(count + text.getKey() - from, text.getValue());
+            }
+        }
+
+        count += length;
+    }
+
+    public void append(TokenStream other, int from) {
+        append(other, from, other.count);
+    }
+
+    // Drops the room left over from growing once the lexer is done
+    public void trimToSize() {
+        resize(count);
+    }
+
+    // The tokens before this index will not be asked for again
+    public void release(int index) {
+        if (filler != null && index > released) {
+            released = index;
+        }
+    }
+
+    public boolean has(int index) {
+        ensure(index);
+        return index < base + count;
+    }
+
+    public int size() {
+        return base + count;
+    }
+
+    public Type getType(int index) {
+        ensure(index);
+        return TYPES[types[slot(index)]];
+    }
+
+    // An empty stream is at the start of a line, the same as after a NEWLINE
+    public Type getLastType() {
+        if (count == 0) {
+            return Type.NEWLINE;
+        }
+
+        return TYPES[types[count - 1]];
+    }
+
+    public String getLexeme(int index) {
+        ensure(index);
+        int slot = slot(index);
+
+        if (lexemes != null) {
+            return lexemes[slot];
+        }
+
+        if (offsets[slot] < 0) {
+            return texts.get(index);
+        }
+
+        return source.subSequence(offsets[slot], offsets[slot] + lengths[slot]).toString();
+    }
+
+    public int getOffset(int index) {
+        ensure(index);
+        return offsets[slot(index)];
+    }
+
+    public int getLine(int index) {
+        ensure(index);
+
+        if (lineNumbers != null) {
+            return lineNumbers[slot(index)];
+        }
+
+        return lines.lineOf(positions[slot(index)]);
+    }
+
+    public int getColumn(int index) {
+        ensure(index);
+
+        if (lineNumbers != null) {
+            return positions[slot(index)];
+        }
+
+        return lines.columnOf(positions[slot(index)]);
+    }
+
+    public LineIndex getLines() {
+        return lines;
+    }
+
+    public Position positionAt(int offset) {
+        return new Position(lines, offset);
+    }
+
+    // For a node that keeps where a token was but not the token
+    public Position getPosition(int index) {
+        ensure(index);
+        int slot = slot(index);
+
+        return lineNumbers != null
+                ? new Position(lineNumbers[slot], positions[slot])
+                : positionAt(positions[slot]);
+    }
+
+    public Token get(int index) {
+        ensure(index);
+        int slot = slot(index);
+
+        if (materialized == null) {
+            materialized = new Token[types.length];
+        }
+
+        if (materialized[slot] == null) {
+            materialized[slot] = new Token(getType(index), getLexeme(index), getPosition(index));
+        }
+
+        return materialized[slot];
+    }
+
+    private void ensure(int index) {
+        while (filler != null && index >= base + count) {
+            if (!filler.fill()) {
+                break;
+            }
+        }
+    }
+
+    private int slot(int index) {
+        if (index < base || index >= base + count) {
+            throw new IndexOutOfBoundsException("Token " + index + " is not in the stream");
+        }
+
+        return index - base;
+    }
+
+    // Released tokens are dropped before the arrays are made any larger
+    private int nextSlot() {
+        if (count == types.length) {
+            int drop = released - base;
+
+            if (drop > 0) {
+                shift(drop);
+            } else {
+                resize(count * 2);
+            }
+        }
+
+        return count;
+    }
+
+    private void shift(int drop) {
+        count -= drop;
+        base += drop;
+
+        System.arraycopy(types, drop, types, 0, count);
+        System.arraycopy(offsets, drop, offsets, 0, count);
+        System.arraycopy(lengths, drop, lengths, 0, count);
+        System.arraycopy(positions, drop, positions, 0, count);
+        System.arraycopy(lexemes, drop, lexemes, 0, count);
+        System.arraycopy(lineNumbers, drop, lineNumbers, 0, count);
+        Arrays.fill(lexemes, count, lexemes.length, null);
+
+        if (materialized != null) {
+            System.arraycopy(materialized, drop, materialized, 0, count);
+            Arrays.fill(materialized, count, materialized.length, null);
+        }
+    }
+
+    private void resize(int capacity) {
+        types = Arrays.copyOf(types, capacity);
+        offsets = Arrays.copyOf(offsets, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        positions = Arrays.copyOf(positions, capacity);
+
+        if (lexemes != null) {
+            lexemes = Arrays.copyOf(lexemes, capacity);
+            lineNumbers = Arrays.copyOf(lineNumbers, capacity);
+        }
+
+        if (materialized != null) {
+            materialized = Arrays.copyOf(materialized, capacity);
+        }
+    }
+}